@@ -0,0 +1,88 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.benchmarks;
+
+import com.offbytwo.jenkins.JenkinsServer;
+import org.aerogear.digger.client.services.ArtifactsService;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy throughput of artifact downloads, to memory and to a file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ArtifactBenchmark {
+
+    /**
+     * Size of the artifact in bytes.
+     */
+    @Param({"1048576", "33554432"})
+    public int artifactSize;
+
+    private JenkinsServer jenkinsServer;
+    private ArtifactsService artifactsService;
+    private File outputFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        jenkinsServer = Stubs.jenkinsServer(new StubJenkinsHttpClient(10, 1, 0, artifactSize));
+        artifactsService = new ArtifactsService();
+        outputFile = File.createTempFile("digger-benchmark", ".apk");
+    }
+
+    @TearDown
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Benchmark
+    public long streamArtifact() throws Exception {
+        final InputStream inputStream = artifactsService.streamArtifact(jenkinsServer, StubJenkinsHttpClient.JOB_NAME, 10, StubJenkinsHttpClient.ARTIFACT_NAME);
+        try {
+            return IOUtils.copyLarge(inputStream, NullOutputStream.NULL_OUTPUT_STREAM);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Benchmark
+    public long saveArtifact() throws Exception {
+        artifactsService.saveArtifact(jenkinsServer, StubJenkinsHttpClient.JOB_NAME, 10, StubJenkinsHttpClient.ARTIFACT_NAME, outputFile);
+        return outputFile.length();
+    }
+}
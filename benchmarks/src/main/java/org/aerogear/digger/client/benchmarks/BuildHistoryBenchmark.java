@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.benchmarks;
+
+import com.offbytwo.jenkins.JenkinsServer;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import org.aerogear.digger.client.services.BuildService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of fetching the build history of a job, one details request per build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BuildHistoryBenchmark {
+
+    /**
+     * Number of builds in the history.
+     */
+    @Param({"10", "100"})
+    public int builds;
+
+    private JenkinsServer jenkinsServer;
+    private BuildService buildService;
+
+    @Setup
+    public void setUp() {
+        jenkinsServer = Stubs.jenkinsServer(new StubJenkinsHttpClient(builds, 1, 0, 0));
+        buildService = new BuildService(0, 0);
+    }
+
+    @Benchmark
+    public List<BuildWithDetails> getBuildHistory() throws Exception {
+        return buildService.getBuildHistory(jenkinsServer, StubJenkinsHttpClient.JOB_NAME);
+    }
+}
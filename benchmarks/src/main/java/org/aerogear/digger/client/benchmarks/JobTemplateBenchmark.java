@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.benchmarks;
+
+import com.offbytwo.jenkins.JenkinsServer;
+import org.aerogear.digger.client.model.BuildDiscarder;
+import org.aerogear.digger.client.model.BuildParameter;
+import org.aerogear.digger.client.services.JobService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering the job XML that is sent on job creation and update, through {@link JobService}.
+ * <p>
+ * An unchanged update renders the job and compares its fingerprint without sending it, so it is mostly the rendering.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JobTemplateBenchmark {
+
+    private static final String GIT_REPO = "https://github.com/aerogear/digger-helloworld";
+    private static final String GIT_BRANCH = "master";
+
+    /**
+     * Number of build parameters of the job.
+     */
+    @Param({"0", "10"})
+    public int buildParameters;
+
+    private JenkinsServer jenkinsServer;
+    private JobService jobService;
+    private BuildDiscarder buildDiscarder;
+    private List<BuildParameter> parameters;
+
+    @Setup
+    public void setUp() throws Exception {
+        jenkinsServer = Stubs.jenkinsServer(new StubJenkinsHttpClient(10, 1, 0, 0));
+        jobService = new JobService(false);
+        buildDiscarder = new BuildDiscarder();
+        parameters = new ArrayList<BuildParameter>();
+        for (int i = 0; i < buildParameters; i++) {
+            parameters.add(new BuildParameter("PARAM_" + i).setDescription("Parameter " + i).setDefaultValue("value" + i));
+        }
+        // the updates below find the configuration unchanged
+        jobService.create(jenkinsServer, StubJenkinsHttpClient.JOB_NAME, GIT_REPO, GIT_BRANCH, buildDiscarder, null, parameters);
+    }
+
+    @Benchmark
+    public void createJob() throws Exception {
+        jobService.create(jenkinsServer, StubJenkinsHttpClient.JOB_NAME, GIT_REPO, GIT_BRANCH, buildDiscarder, null, parameters);
+    }
+
+    @Benchmark
+    public void updateUnchangedJob() throws Exception {
+        jobService.update(jenkinsServer, StubJenkinsHttpClient.JOB_NAME, GIT_REPO, GIT_BRANCH, buildDiscarder, null, parameters);
+    }
+}
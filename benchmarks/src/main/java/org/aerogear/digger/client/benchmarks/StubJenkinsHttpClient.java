@@ -0,0 +1,166 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.benchmarks;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP client that answers like a Jenkins master with a single job, without any network.
+ * <p>
+ * All responses are rendered once up front, so the benchmarks measure the work done by the client:
+ * request building, response parsing and copying.
+ */
+public class StubJenkinsHttpClient extends CloseableHttpClient {
+
+    public static final String URL = "http://localhost:8080/";
+    public static final String JOB_NAME = "test";
+    public static final String ARTIFACT_NAME = "app.apk";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String JOB_URL = URL + "job/" + JOB_NAME + "/";
+
+    private final byte[] job;
+    private final byte[] build;
+    private final byte[] queueItemWaiting;
+    private final byte[] queueItemStarted;
+    private final byte[] log;
+    private final byte[] artifact;
+    private final int queuePollsBeforeStart;
+    private final AtomicLong queuePolls = new AtomicLong();
+
+    /**
+     * @param builds                number of builds in the history of the job
+     * @param queuePollsBeforeStart every how many queue polls the build leaves the queue
+     * @param logSize               size of the build log in bytes
+     * @param artifactSize          size of the build artifact in bytes
+     */
+    public StubJenkinsHttpClient(int builds, int queuePollsBeforeStart, int logSize, int artifactSize) {
+        this.job = jobJson(builds).getBytes(UTF_8);
+        this.build = buildJson(builds).getBytes(UTF_8);
+        this.queueItemWaiting = queueItemJson(null).getBytes(UTF_8);
+        this.queueItemStarted = queueItemJson(builds + 1).getBytes(UTF_8);
+        this.log = logText(logSize).getBytes(UTF_8);
+        this.artifact = new byte[artifactSize];
+        this.queuePollsBeforeStart = Math.max(1, queuePollsBeforeStart);
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) {
+        final String uri = request.getRequestLine().getUri();
+        final int queryStart = uri.indexOf('?');
+        final String path = queryStart >= 0 ? uri.substring(0, queryStart) : uri;
+
+        if (path.endsWith("/createItem")) {
+            return new StubResponse(200);
+        } else if (path.contains("/artifact/")) {
+            return ok(artifact, ContentType.APPLICATION_OCTET_STREAM);
+        } else if (path.contains("/logText/") || path.contains("/consoleText")) {
+            return ok(log, ContentType.TEXT_PLAIN);
+        } else if (path.contains("/queue/item/")) {
+            final boolean started = queuePolls.incrementAndGet() % queuePollsBeforeStart == 0;
+            return ok(started ? queueItemStarted : queueItemWaiting, ContentType.APPLICATION_JSON);
+        } else if (path.matches(".*/job/" + JOB_NAME + "/\\d+/.*")) {
+            return ok(build, ContentType.APPLICATION_JSON);
+        } else if (path.contains("/job/" + JOB_NAME)) {
+            return ok(job, ContentType.APPLICATION_JSON);
+        }
+        return new StubResponse(404);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return new BasicHttpParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        return null;
+    }
+
+    private static CloseableHttpResponse ok(byte[] content, ContentType contentType) {
+        final StubResponse response = new StubResponse(200);
+        response.setEntity(new ByteArrayEntity(content, contentType));
+        return response;
+    }
+
+    private static String jobJson(int builds) {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"name\":\"").append(JOB_NAME).append("\",\"url\":\"").append(JOB_URL).append("\",")
+            .append("\"buildable\":true,\"nextBuildNumber\":").append(builds + 1).append(",\"builds\":[");
+        for (int number = builds; number > 0; number--) {
+            json.append("{\"number\":").append(number).append(",\"url\":\"").append(JOB_URL).append(number).append("/\"}");
+            if (number > 1) {
+                json.append(',');
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String buildJson(int number) {
+        return "{\"number\":" + number + ",\"url\":\"" + JOB_URL + number + "/\",\"building\":false,\"result\":\"SUCCESS\","
+            + "\"duration\":120000,\"estimatedDuration\":120000,\"timestamp\":1490000000000,\"displayName\":\"#" + number + "\","
+            + "\"fullDisplayName\":\"" + JOB_NAME + " #" + number + "\",\"id\":\"" + number + "\",\"builtOn\":\"\","
+            + "\"actions\":[{\"causes\":[{\"shortDescription\":\"Started by user admin\",\"userId\":\"admin\",\"userName\":\"admin\"}]}],"
+            + "\"artifacts\":[{\"displayPath\":\"" + ARTIFACT_NAME + "\",\"fileName\":\"" + ARTIFACT_NAME + "\","
+            + "\"relativePath\":\"app/build/outputs/apk/" + ARTIFACT_NAME + "\"}]}";
+    }
+
+    private static String queueItemJson(Integer buildNumber) {
+        final String executable = buildNumber == null ? "null" : "{\"number\":" + buildNumber + ",\"url\":\"" + JOB_URL + buildNumber + "/\"}";
+        return "{\"id\":1,\"url\":\"queue/item/1/\",\"blocked\":false,\"buildable\":true,\"cancelled\":false,\"stuck\":false,"
+            + "\"inQueueSince\":1490000000000,\"why\":\"Waiting for next available executor\","
+            + "\"task\":{\"name\":\"" + JOB_NAME + "\",\"url\":\"" + JOB_URL + "\"},\"executable\":" + executable + "}";
+    }
+
+    private static String logText(int size) {
+        final String line = "[INFO] :app:compileDebugJavaWithJavac UP-TO-DATE\n";
+        final StringBuilder text = new StringBuilder(size + line.length());
+        while (text.length() < size) {
+            text.append(line);
+        }
+        return text.toString();
+    }
+
+    private static class StubResponse extends BasicHttpResponse implements CloseableHttpResponse {
+        StubResponse(int statusCode) {
+            super(HttpVersion.HTTP_1_1, statusCode, statusCode == 200 ? "OK" : "Not Found");
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.benchmarks;
+
+import com.offbytwo.jenkins.JenkinsServer;
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Helpers shared by the benchmarks.
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * @param httpClient the stub answering the requests
+     * @return a Jenkins server client that talks to the stub
+     */
+    static JenkinsServer jenkinsServer(StubJenkinsHttpClient httpClient) {
+        try {
+            return new JenkinsServer(new JenkinsHttpClient(new URI(StubJenkinsHttpClient.URL), httpClient));
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.benchmarks.load;
+
+import com.offbytwo.jenkins.helper.BuildConsoleStreamListener;
+import org.aerogear.digger.client.DiggerClient;
+import org.aerogear.digger.client.model.BuildTriggerStatus;
+import org.aerogear.digger.client.model.HttpTransportOptions;
+import org.aerogear.digger.client.model.LogStreamingOptions;
+import org.aerogear.digger.client.services.ArtifactsService;
+import org.aerogear.digger.client.services.BuildService;
+import org.aerogear.digger.client.services.JobService;
+import org.aerogear.digger.client.stub.FakeJenkinsServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives concurrent build workflows through {@link DiggerClient} and reports throughput, latency percentiles per stage,
+ * and thread and heap usage.
+ * <p>
+ * Each workflow creates a job, triggers a build, waits for it to start, streams its logs until it finishes,
+ * downloads its artifact and deletes the job. Without <code>--url</code> an embedded {@link FakeJenkinsServer}
+ * is started, configured with the <code>--fake-*</code> options. Usage:
+ * <pre>
+ * java -cp target/benchmarks.jar org.aerogear.digger.client.benchmarks.load.LoadGenerator \
+ *     --workflows=200 --concurrency=16 --fake-queue-delay=500 --fake-build-duration=2000
+ * java -cp target/benchmarks.jar org.aerogear.digger.client.benchmarks.load.LoadGenerator \
+ *     --url=https://jenkins.example.com --user=admin --password=secret --git-repo=https://github.com/org/app
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    enum Stage {
+        CREATE_JOB, TRIGGER, POLL, STREAM_LOGS, DOWNLOAD_ARTIFACT, DELETE_JOB, WORKFLOW
+    }
+
+    private final Map<String, String> options;
+    private final Map<Stage, LatencyRecorder> recorders = new EnumMap<Stage, LatencyRecorder>(Stage.class);
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private DiggerClient client;
+
+    private LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        for (Stage stage : Stage.values()) {
+            recorders.put(stage, new LatencyRecorder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = new HashMap<String, String>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Options must be given as --name=value, got " + arg);
+                System.exit(1);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadGenerator(options).run();
+    }
+
+    private void run() throws Exception {
+        FakeJenkinsServer fakeJenkins = null;
+        String url = options.get("url");
+        if (url == null) {
+            fakeJenkins = new FakeJenkinsServer()
+                .queueDelay(longOption("fake-queue-delay", 200))
+                .buildDuration(longOption("fake-build-duration", 1000))
+                .responseLatency(longOption("fake-response-latency", 0))
+                .executors(intOption("fake-executors", 16))
+                .logSize(intOption("fake-log-size", 64 * 1024))
+                .artifactSize(intOption("fake-artifact-size", 1024 * 1024))
+                .failureRate(Double.parseDouble(option("fake-failure-rate", "0")))
+                .start();
+            url = fakeJenkins.getUrl();
+        }
+
+        final int workflows = intOption("workflows", 100);
+        final int concurrency = intOption("concurrency", 8);
+        final long pollPeriod = longOption("poll-period", 200);
+        final HttpTransportOptions transportOptions = new HttpTransportOptions();
+        transportOptions.setMaxConnections(concurrency * 2);
+        transportOptions.setMaxConnectionsPerRoute(concurrency * 2);
+        client = DiggerClient.builder()
+            .withAuth(url, option("user", "admin"), option("password", "admin"))
+            .createJobService(new JobService(false))
+            .triggerBuildService(new BuildService(pollPeriod, pollPeriod))
+            .artifactsService(new ArtifactsService())
+            .transportOptions(transportOptions)
+            .crumbFlag(Boolean.parseBoolean(option("crumb", "false")))
+            .build();
+
+        System.out.println("Running " + workflows + " workflows with concurrency " + concurrency + " against " + url);
+        final ResourceSampler sampler = new ResourceSampler();
+        final ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        sampler.start();
+        final long start = System.nanoTime();
+        for (int i = 0; i < workflows; i++) {
+            workers.submit(new Runnable() {
+                @Override
+                public void run() {
+                    runWorkflow();
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        final long elapsed = System.nanoTime() - start;
+        sampler.stop();
+
+        report(workflows, elapsed, sampler);
+        client.close();
+        if (fakeJenkins != null) {
+            fakeJenkins.close();
+        }
+    }
+
+    private void runWorkflow() {
+        final String jobName = "digger-load-" + runId + "-" + sequence.incrementAndGet();
+        final long workflowStart = System.nanoTime();
+        boolean created = false;
+        Stage stage = Stage.CREATE_JOB;
+        try {
+            long stageStart = System.nanoTime();
+            client.createJob(jobName, option("git-repo", "https://github.com/aerogear/digger-helloworld"), option("git-branch", "master"), null);
+            created = true;
+            stageStart = record(Stage.CREATE_JOB, stageStart);
+
+            stage = Stage.TRIGGER;
+
+            final BuildTriggerStatus triggered = client.triggerBuild(jobName, null);
+            stageStart = record(Stage.TRIGGER, stageStart);
+
+            stage = Stage.POLL;
+
+            final BuildTriggerStatus started = client.pollBuild(jobName, triggered.getQueueReference(), longOption("build-timeout", 60 * 1000), null);
+            if (started.getState() != BuildTriggerStatus.State.STARTED_BUILDING) {
+                throw new IllegalStateException("Build didn't start: " + started.getState());
+            }
+            stageStart = record(Stage.POLL, stageStart);
+
+            stage = Stage.STREAM_LOGS;
+
+            client.streamLogs(jobName, started.getBuildNumber(), new LogStreamingOptions(new DiscardingListener(), 1, intOption("log-timeout", 600)));
+            stageStart = record(Stage.STREAM_LOGS, stageStart);
+
+            stage = Stage.DOWNLOAD_ARTIFACT;
+
+            final InputStream artifact = client.fetchArtifact(jobName, started.getBuildNumber(), option("artifact", ".*\\.apk"));
+            if (artifact == null) {
+                throw new IllegalStateException("No artifact found");
+            }
+            try {
+                IOUtils.copyLarge(artifact, NullOutputStream.NULL_OUTPUT_STREAM);
+            } finally {
+                artifact.close();
+            }
+            record(Stage.DOWNLOAD_ARTIFACT, stageStart);
+            record(Stage.WORKFLOW, workflowStart);
+        } catch (Exception e) {
+            failed(stage, e);
+        } finally {
+            if (created) {
+                final long stageStart = System.nanoTime();
+                try {
+                    client.deleteJob(jobName, null);
+                    record(Stage.DELETE_JOB, stageStart);
+                } catch (Exception e) {
+                    recorders.get(Stage.DELETE_JOB).recordFailure();
+                }
+            }
+        }
+    }
+
+    private long record(Stage stage, long stageStart) {
+        final long now = System.nanoTime();
+        recorders.get(stage).record(now - stageStart);
+        return now;
+    }
+
+    private void failed(Stage stage, Exception e) {
+        recorders.get(stage).recordFailure();
+        recorders.get(Stage.WORKFLOW).recordFailure();
+        if (Boolean.parseBoolean(option("verbose", "false"))) {
+            e.printStackTrace();
+        }
+    }
+
+    private void report(int workflows, long elapsed, ResourceSampler sampler) {
+        final double seconds = elapsed / 1e9;
+        final LatencyRecorder completed = recorders.get(Stage.WORKFLOW);
+        System.out.println();
+        System.out.printf("Workflows: %d completed, %d failed in %.1f s, %.2f workflows/s%n",
+            completed.getCount(), completed.getFailures(), seconds, completed.getCount() / seconds);
+        System.out.println();
+        System.out.printf("%-18s %8s %8s %10s %10s %10s %10s%n", "stage", "count", "failed", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Stage stage : Stage.values()) {
+            final LatencyRecorder recorder = recorders.get(stage);
+            System.out.printf("%-18s %8d %8d %10.1f %10.1f %10.1f %10.1f%n", stage, recorder.getCount(), recorder.getFailures(),
+                millis(recorder.percentile(50)), millis(recorder.percentile(95)), millis(recorder.percentile(99)), millis(recorder.percentile(100)));
+        }
+        System.out.println();
+        System.out.printf("Threads: %d peak%n", sampler.getPeakThreadCount());
+        System.out.printf("Heap: %d MB peak used of %d MB max%n", sampler.getPeakHeapUsed() >> 20, sampler.getMaxHeap() >> 20);
+        System.out.printf("GC: %d collections, %d ms%n", sampler.getGcCount(), sampler.getGcTime());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private String option(String name, String defaultValue) {
+        final String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+
+    private long longOption(String name, long defaultValue) {
+        return Long.parseLong(option(name, String.valueOf(defaultValue)));
+    }
+
+    private static class DiscardingListener implements BuildConsoleStreamListener {
+        @Override
+        public void onData(String newLogChunk) {
+        }
+
+        @Override
+        public void finished() {
+        }
+    }
+}
@@ -16,41 +16,112 @@
 package org.aerogear.digger.client;
 
 import com.offbytwo.jenkins.JenkinsServer;
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
 import com.offbytwo.jenkins.model.BuildWithDetails;
 import com.offbytwo.jenkins.model.JobWithDetails;
 import com.offbytwo.jenkins.model.QueueReference;
 import com.offbytwo.jenkins.model.credentials.Credential;
+import org.aerogear.digger.client.history.BuildHistoryIndex;
+import org.aerogear.digger.client.history.BuildRecord;
+import org.aerogear.digger.client.history.JobHistory;
+import org.aerogear.digger.client.journal.JournaledBuild;
+import org.aerogear.digger.client.journal.TriggerJournal;
+import org.aerogear.digger.client.metrics.DiggerMetrics;
+import org.aerogear.digger.client.metrics.Gauge;
+import org.aerogear.digger.client.metrics.InFlightGauge;
+import org.aerogear.digger.client.metrics.MetricsHttpClient;
+import org.aerogear.digger.client.metrics.NoopDiggerMetrics;
+import org.aerogear.digger.client.model.AdmissionOptions;
 import org.aerogear.digger.client.model.BuildDiscarder;
+import org.aerogear.digger.client.model.BuildField;
+import org.aerogear.digger.client.model.BuildProjection;
+import org.aerogear.digger.client.model.BuildSummary;
 import org.aerogear.digger.client.model.BuildTriggerStatus;
 import org.aerogear.digger.client.model.BuildParameter;
+import org.aerogear.digger.client.model.CircuitBreakerOptions;
+import org.aerogear.digger.client.model.HttpTransportOptions;
+import org.aerogear.digger.client.model.JobProvisioningReport;
+import org.aerogear.digger.client.model.JobSpec;
 import org.aerogear.digger.client.model.LogStreamingOptions;
+import org.aerogear.digger.client.model.MasterLoad;
+import org.aerogear.digger.client.model.QueueEstimate;
+import org.aerogear.digger.client.model.RetryOptions;
+import org.aerogear.digger.client.notification.BuildEvent;
+import org.aerogear.digger.client.notification.BuildEventListener;
+import org.aerogear.digger.client.notification.BuildNotificationReceiver;
 import org.aerogear.digger.client.services.ArtifactsService;
 import org.aerogear.digger.client.services.BuildService;
 import org.aerogear.digger.client.services.JobService;
+import org.aerogear.digger.client.stats.BuildStatistics;
+import org.aerogear.digger.client.stats.DurationHistogram;
+import org.aerogear.digger.client.tracing.DiggerTracer;
+import org.aerogear.digger.client.tracing.SlowCallLogger;
+import org.aerogear.digger.client.tracing.Span;
+import org.aerogear.digger.client.tracing.Tracing;
+import org.aerogear.digger.client.tracing.TracingHttpClient;
+import org.aerogear.digger.client.util.AdmissionControlledHttpClient;
+import org.aerogear.digger.client.util.CircuitBreaker;
+import org.aerogear.digger.client.util.CircuitBreakerHttpClient;
+import org.aerogear.digger.client.util.CrumbCache;
 import org.aerogear.digger.client.util.DiggerClientException;
+import org.aerogear.digger.client.util.DiggerFuture;
 import org.aerogear.digger.client.util.JenkinsAuth;
+import org.aerogear.digger.client.util.JenkinsHttpClientFactory;
+import org.aerogear.digger.client.util.NamedThreadFactory;
+import org.aerogear.digger.client.util.RetryingHttpClient;
+import org.aerogear.digger.client.watch.JobStatusWatcher;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Digger Java Client interact with Digger Jenkins api.
  */
-public class DiggerClient {
+public class DiggerClient implements Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(DiggerClient.class);
 
     public static final long DEFAULT_BUILD_TIMEOUT = 60 * 1000;
 
+    /**
+     * Default number of jobs that are created or updated at the same time in bulk calls.
+     */
+    public static final int DEFAULT_BULK_CONCURRENCY = 8;
+
     private JenkinsServer jenkinsServer;
+    private JenkinsHttpClient jenkinsHttpClient;
+    private CloseableHttpClient httpClient;
+    private RetryingHttpClient retryingHttpClient;
+    private CircuitBreaker circuitBreaker;
+    private InFlightGauge inFlightPolls = new InFlightGauge(Gauge.IN_FLIGHT_POLLS, NoopDiggerMetrics.INSTANCE);
+    private InFlightGauge logStreams = new InFlightGauge(Gauge.LOG_STREAMS, NoopDiggerMetrics.INSTANCE);
+    private Tracing tracing = new Tracing(null);
+    private ScheduledExecutorService completionScheduler;
+    private TriggerJournal triggerJournal;
+    private BuildStatistics buildStatistics;
+    private BuildNotificationReceiver notificationReceiver;
+    private BuildEventListener notificationListener;
+    private final List<DiggerFuture<BuildSummary>> pendingCompletions = new ArrayList<DiggerFuture<BuildSummary>>();
+    private final Map<JournaledBuild, Future<BuildSummary>> resumedBuilds = new LinkedHashMap<JournaledBuild, Future<BuildSummary>>();
+    private volatile boolean closed;
 
     private JobService jobService;
     private BuildService buildService;
@@ -76,6 +147,8 @@ public class DiggerClient {
 
     /**
      * Create a client with defaults using provided url and credentials, and specify if crumb is enabled on the Jenkins server.
+     * <p>
+     * If crumb is enabled, the crumb is fetched once and reused for all requests. See {@link DiggerClientBuilder#crumbFlag(boolean)}.
      *
      * @param url      Jenkins url
      * @param user     Jenkins user
@@ -86,12 +159,14 @@ public class DiggerClient {
      */
     public static DiggerClient createDefaultWithAuth(String url, String user, String password, boolean crumbFlag) throws DiggerClientException {
         BuildService buildService = new BuildService(BuildService.DEFAULT_FIRST_CHECK_DELAY, BuildService.DEFAULT_POLL_PERIOD);
-        JobService jobService = new JobService(crumbFlag);
+        // crumbs are handled by the client, not by the job service
+        JobService jobService = new JobService(false);
         ArtifactsService artifactsService = new ArtifactsService();
         return DiggerClient.builder()
             .createJobService(jobService)
             .triggerBuildService(buildService)
             .artifactsService(artifactsService)
+            .crumbFlag(crumbFlag)
             .withAuth(url, user, password)
             .build();
     }
@@ -107,12 +182,177 @@ public class DiggerClient {
         private JobService jobService;
         private BuildService buildService;
         private ArtifactsService artifactsService;
+        private HttpTransportOptions transportOptions = new HttpTransportOptions();
+        private HttpClientBuilder httpClientBuilder;
+        private boolean crumbFlag = false;
+        private AdmissionOptions admissionOptions;
+        private RetryOptions retryOptions;
+        private CircuitBreakerOptions circuitBreakerOptions;
+        private DiggerMetrics metrics = NoopDiggerMetrics.INSTANCE;
+        private DiggerTracer tracer;
+        private File triggerJournalFile;
+        private long resumeTimeout = DEFAULT_BUILD_TIMEOUT;
+        private BuildStatistics buildStatistics;
+        private BuildNotificationReceiver notificationReceiver;
 
         public DiggerClientBuilder withAuth(String url, String user, String password) {
             this.auth = new JenkinsAuth(url, user, password);
             return this;
         }
 
+        /**
+         * Configure the pooled HTTP connections made to Jenkins. Defaults are used if not called.
+         *
+         * @param transportOptions See {@link HttpTransportOptions}
+         * @return the builder
+         */
+        public DiggerClientBuilder transportOptions(HttpTransportOptions transportOptions) {
+            this.transportOptions = transportOptions;
+            return this;
+        }
+
+        /**
+         * Use the given builder to create the HTTP client, instead of creating one from the {@link HttpTransportOptions}.
+         * Authentication is added to it by the client.
+         *
+         * @param httpClientBuilder the builder of the HTTP client
+         * @return the builder
+         */
+        public DiggerClientBuilder httpClientBuilder(HttpClientBuilder httpClientBuilder) {
+            this.httpClientBuilder = httpClientBuilder;
+            return this;
+        }
+
+        /**
+         * Specify if CSRF Protection is enabled on the Jenkins server.
+         * <p>
+         * If enabled, the crumb is fetched once and added to every request that changes something, including
+         * build triggers. It is fetched again when it expires or Jenkins rejects it. The {@link JobService} should
+         * then be created with the crumb flag turned off, so it doesn't fetch a crumb itself for every request.
+         *
+         * @param crumbFlag If CSRF Protection is enabled on the Jenkins server
+         * @return the builder
+         */
+        public DiggerClientBuilder crumbFlag(boolean crumbFlag) {
+            this.crumbFlag = crumbFlag;
+            return this;
+        }
+
+        /**
+         * Limit the rate and the concurrency of the requests sent to Jenkins. Requests are not limited if not called.
+         * <p>
+         * Requests that can't be admitted in time fail with a {@link org.aerogear.digger.client.util.RequestRejectedException}.
+         *
+         * @param admissionOptions See {@link AdmissionOptions}
+         * @return the builder
+         */
+        public DiggerClientBuilder admissionOptions(AdmissionOptions admissionOptions) {
+            this.admissionOptions = admissionOptions;
+            return this;
+        }
+
+        /**
+         * Configure how idempotent requests are retried when Jenkins fails transiently.
+         * Requests are not retried if not called.
+         *
+         * @param retryOptions See {@link RetryOptions}
+         * @return the builder
+         */
+        public DiggerClientBuilder retryOptions(RetryOptions retryOptions) {
+            this.retryOptions = retryOptions;
+            return this;
+        }
+
+        /**
+         * Fail requests right away while Jenkins is unhealthy, instead of waiting for each of them to time out.
+         * There is no circuit breaker if not called.
+         * <p>
+         * Requests that are not sent fail with a {@link org.aerogear.digger.client.util.CircuitOpenException}.
+         *
+         * @param circuitBreakerOptions See {@link CircuitBreakerOptions}
+         * @return the builder
+         */
+        public DiggerClientBuilder circuitBreakerOptions(CircuitBreakerOptions circuitBreakerOptions) {
+            this.circuitBreakerOptions = circuitBreakerOptions;
+            return this;
+        }
+
+        /**
+         * Record the latency, the transferred bytes and the outcome of every request sent to Jenkins,
+         * and the number of polls and streams in progress. Nothing is recorded if not called.
+         *
+         * @param metrics See {@link DiggerMetrics}
+         * @return the builder
+         */
+        public DiggerClientBuilder metrics(DiggerMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Open a span for every client operation, with a child span for every HTTP request sent for it.
+         * There is no tracing if not called.
+         *
+         * @param tracer See {@link DiggerTracer}. Use {@link SlowCallLogger} to log slow operations.
+         * @return the builder
+         */
+        public DiggerClientBuilder tracer(DiggerTracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        /**
+         * Record the builds the client is waiting for in a journal file, so they can be waited for again after a
+         * restart. The builds that were still pending when the journal was last used are resumed when the client
+         * is built, see {@link DiggerClient#getResumedBuilds()}. There is no journal if not called.
+         *
+         * @param file the journal file. It is created if it doesn't exist, and must not be shared by running clients.
+         * @return the builder
+         */
+        public DiggerClientBuilder triggerJournal(File file) {
+            this.triggerJournalFile = file;
+            return this;
+        }
+
+        /**
+         * How long the builds resumed from the trigger journal may still wait in the queue, see
+         * {@link #triggerJournal(File)}. {@link DiggerClient#DEFAULT_BUILD_TIMEOUT} if not called.
+         *
+         * @param timeout how many milliseconds to wait for a resumed build to leave the queue
+         * @return the builder
+         */
+        public DiggerClientBuilder resumeTimeout(long timeout) {
+            this.resumeTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * Keep the build duration and queue wait percentiles of every job. Queue waits are recorded when a build is
+         * seen starting, durations when a build is seen finishing by {@link DiggerClient#awaitCompletion(String, int)}
+         * or by {@link DiggerClient#syncBuildHistory(BuildHistoryIndex, String)}. Nothing is recorded if not called.
+         *
+         * @param buildStatistics See {@link BuildStatistics}. It must not be shared by clients of different masters.
+         * @return the builder
+         */
+        public DiggerClientBuilder buildStatistics(BuildStatistics buildStatistics) {
+            this.buildStatistics = buildStatistics;
+            return this;
+        }
+
+        /**
+         * Check the builds of a job right away when Jenkins notifies that something happened to one of them, instead
+         * of waiting for the next poll. Build polls still run as a safety net for lost notifications, so the
+         * {@link BuildService} can be created with a much longer poll period. There are no notifications if not called.
+         *
+         * @param notificationReceiver See {@link BuildNotificationReceiver}. It is not started or closed by the
+         *                             client, and it can be shared by clients of different masters.
+         * @return the builder
+         */
+        public DiggerClientBuilder notificationReceiver(BuildNotificationReceiver notificationReceiver) {
+            this.notificationReceiver = notificationReceiver;
+            return this;
+        }
+
         public DiggerClientBuilder createJobService(JobService jobService) {
             this.jobService = jobService;
             return this;
@@ -131,13 +371,67 @@ public class DiggerClient {
         public DiggerClient build() throws DiggerClientException {
             final DiggerClient client = new DiggerClient();
             try {
-                client.jenkinsServer = new JenkinsServer(new URI(auth.getUrl()), auth.getUser(), auth.getPassword());
+                final URI uri = new URI(auth.getUrl());
+                final HttpClientBuilder builder = this.httpClientBuilder != null ? this.httpClientBuilder : JenkinsHttpClientFactory.newHttpClientBuilder(this.transportOptions);
+                final CrumbCache crumbCache = this.crumbFlag ? new CrumbCache(CrumbCache.DEFAULT_TTL) : null;
+                if (crumbCache != null) {
+                    crumbCache.install(builder);
+                }
+                final CloseableHttpClient httpClient = JenkinsHttpClientFactory.createHttpClient(auth, builder);
+                client.httpClient = this.admissionOptions != null ? new AdmissionControlledHttpClient(httpClient, this.admissionOptions) : httpClient;
+                if (this.circuitBreakerOptions != null) {
+                    final CircuitBreakerHttpClient circuitBreakerHttpClient = new CircuitBreakerHttpClient(client.httpClient, this.circuitBreakerOptions);
+                    client.circuitBreaker = circuitBreakerHttpClient.getCircuitBreaker();
+                    client.httpClient = circuitBreakerHttpClient;
+                }
+                if (this.tracer != null) {
+                    // one span per attempt, so retries and their backoff show up in the trace
+                    client.tracing = new Tracing(this.tracer);
+                    client.httpClient = new TracingHttpClient(client.httpClient, client.tracing);
+                }
+                if (this.retryOptions != null && this.retryOptions.getMaxAttempts() > 1) {
+                    // every attempt goes through the circuit breaker and waits for admission again
+                    client.retryingHttpClient = new RetryingHttpClient(client.httpClient, this.retryOptions);
+                    client.httpClient = client.retryingHttpClient;
+                }
+                if (this.metrics != NoopDiggerMetrics.INSTANCE) {
+                    client.httpClient = new MetricsHttpClient(client.httpClient, this.metrics);
+                    client.inFlightPolls = new InFlightGauge(Gauge.IN_FLIGHT_POLLS, this.metrics);
+                    client.logStreams = new InFlightGauge(Gauge.LOG_STREAMS, this.metrics);
+                }
+                client.jenkinsHttpClient = new JenkinsHttpClient(uri, client.httpClient);
+                if (crumbCache != null) {
+                    // crumb is fetched while a request is being sent, so it must not wait for admission again
+                    crumbCache.setJenkinsHttpClient(new JenkinsHttpClient(uri, httpClient));
+                }
+                client.jenkinsServer = new JenkinsServer(client.jenkinsHttpClient);
                 client.jobService = this.jobService;
                 client.buildService = this.buildService;
                 client.artifactsService = this.artifactsService;
+                client.buildStatistics = this.buildStatistics;
+                if (this.triggerJournalFile != null) {
+                    client.triggerJournal = TriggerJournal.open(this.triggerJournalFile);
+                }
+                if (this.notificationReceiver != null && this.buildService != null) {
+                    client.notificationReceiver = this.notificationReceiver;
+                    client.notificationListener = new BuildEventListener() {
+                        @Override
+                        public void onEvent(BuildEvent event) {
+                            client.buildService.wakeUp(event.getJobName());
+                        }
+                    };
+                    this.notificationReceiver.addListener(client.notificationListener);
+                }
+                if (client.triggerJournal != null && client.buildService != null) {
+                    for (JournaledBuild build : client.triggerJournal.getPendingBuilds()) {
+                        client.resumedBuilds.put(build, client.resumeBuild(build, this.resumeTimeout));
+                    }
+                }
                 return client;
             } catch (URISyntaxException e) {
                 throw new DiggerClientException("Invalid jenkins url format.");
+            } catch (IOException e) {
+                throw new DiggerClientException("Can not open the trigger journal", e);
             }
         }
     }
@@ -152,10 +446,13 @@ public class DiggerClient {
      * @throws DiggerClientException if something goes wrong
      */
     public void createJob(String name, String gitRepo, String gitBranch, BuildDiscarder buildDiscarder) throws DiggerClientException {
+        final Span span = tracing.start("createJob", "job", name);
         try {
             jobService.create(this.jenkinsServer, name, gitRepo, gitBranch, buildDiscarder);
         } catch (Throwable e) {
             throw new DiggerClientException(e);
+        } finally {
+            tracing.end(span);
         }
     }
 
@@ -170,10 +467,13 @@ public class DiggerClient {
      * @throws DiggerClientException if something goes wrong
      */
     public void createJob(String name, String gitRepo, String gitBranch, BuildDiscarder buildDiscarder, Credential gitRepoCredential, List<BuildParameter> buildParameters) throws DiggerClientException {
+        final Span span = tracing.start("createJob", "job", name);
         try {
             jobService.create(this.jenkinsServer, name, gitRepo, gitBranch, buildDiscarder, gitRepoCredential, buildParameters);
         } catch (Throwable e) {
             throw new DiggerClientException(e);
+        } finally {
+            tracing.end(span);
         }
     }
 
@@ -187,10 +487,13 @@ public class DiggerClient {
      * @throws DiggerClientException if something goes wrong
      */
     public void updateJob(String name, String gitRepo, String gitBranch, BuildDiscarder buildDiscarder) throws DiggerClientException {
+        final Span span = tracing.start("updateJob", "job", name);
         try {
             jobService.update(this.jenkinsServer, name, gitRepo, gitBranch, buildDiscarder);
         } catch (Throwable e) {
             throw new DiggerClientException(e);
+        } finally {
+            tracing.end(span);
         }
     }
 
@@ -206,10 +509,83 @@ public class DiggerClient {
      * @throws DiggerClientException if something goes wrong
      */
     public void updateJob(String name, String gitRepo, String gitBranch, BuildDiscarder buildDiscarder, Credential gitRepoCredential, List<BuildParameter> buildParameters) throws DiggerClientException {
+        final Span span = tracing.start("updateJob", "job", name);
         try {
             jobService.update(this.jenkinsServer, name, gitRepo, gitBranch, buildDiscarder, gitRepoCredential, buildParameters);
         } catch (Throwable e) {
             throw new DiggerClientException(e);
+        } finally {
+            tracing.end(span);
+        }
+    }
+
+    /**
+     * Create many Digger jobs on Jenkins platform with a concurrency of {@link #DEFAULT_BULK_CONCURRENCY}.
+     *
+     * @param specs the jobs to create. See {@link JobSpec}
+     * @return the report with one result per given spec
+     * @throws DiggerClientException if the bulk creation is interrupted
+     * @see #createJobs(List, int)
+     */
+    public JobProvisioningReport createJobs(List<JobSpec> specs) throws DiggerClientException {
+        return this.createJobs(specs, DEFAULT_BULK_CONCURRENCY);
+    }
+
+    /**
+     * Create many Digger jobs on Jenkins platform, running up to <code>concurrency</code> creations at the same time.
+     * <p>
+     * A failure of one job doesn't stop the others and doesn't throw an exception. Check the returned report
+     * to see the outcome of each job.
+     *
+     * @param specs       the jobs to create. See {@link JobSpec}
+     * @param concurrency max number of jobs that are created at the same time
+     * @return the report with one result per given spec
+     * @throws DiggerClientException if the bulk creation is interrupted
+     */
+    public JobProvisioningReport createJobs(List<JobSpec> specs, int concurrency) throws DiggerClientException {
+        final Span span = tracing.start("createJobs", "jobs", specs.size());
+        try {
+            return jobService.createAll(this.jenkinsServer, specs, concurrency);
+        } catch (InterruptedException e) {
+            LOG.debug("Interrupted while creating jobs", e);
+            throw new DiggerClientException("Interrupted while creating jobs", e);
+        } finally {
+            tracing.end(span);
+        }
+    }
+
+    /**
+     * Update many Digger jobs on Jenkins platform with a concurrency of {@link #DEFAULT_BULK_CONCURRENCY}.
+     *
+     * @param specs the jobs to update. See {@link JobSpec}
+     * @return the report with one result per given spec
+     * @throws DiggerClientException if the bulk update is interrupted
+     * @see #updateJobs(List, int)
+     */
+    public JobProvisioningReport updateJobs(List<JobSpec> specs) throws DiggerClientException {
+        return this.updateJobs(specs, DEFAULT_BULK_CONCURRENCY);
+    }
+
+    /**
+     * Update many Digger jobs on Jenkins platform, running up to <code>concurrency</code> updates at the same time.
+     * <p>
+     * A failure of one job doesn't stop the others and doesn't throw an exception. Check the returned report
+     * to see the outcome of each job.
+     *
+     * @param specs       the jobs to update. See {@link JobSpec}
+     * @param concurrency max number of jobs that are updated at the same time
+     * @return the report with one result per given spec
+     * @throws DiggerClientException if the bulk update is interrupted
+     */
+    public JobProvisioningReport updateJobs(List<JobSpec> specs, int concurrency) throws DiggerClientException {
+        final Span span = tracing.start("updateJobs", "jobs", specs.size());
+        try {
+            return jobService.updateAll(this.jenkinsServer, specs, concurrency);
+        } catch (InterruptedException e) {
+            LOG.debug("Interrupted while updating jobs", e);
+            throw new DiggerClientException("Interrupted while updating jobs", e);
+        } finally {
+            tracing.end(span);
         }
     }
 
@@ -220,10 +596,13 @@ public class DiggerClient {
      * @throws DiggerClientException if something goes wrong
      */
      public JobWithDetails getJob(String name) throws DiggerClientException {
+        final Span span = tracing.start("getJob", "job", name);
         try {
             return jobService.get(this.jenkinsServer, name);
         } catch (Throwable e) {
             throw new DiggerClientException(e);
+        } finally {
+            tracing.end(span);
         }
      }
 
@@ -235,6 +614,7 @@ public class DiggerClient {
      * <p>
      * This method will block until there is a build number, or the given timeout period is passed. If the build is still in the queue
      * after the given timeout period, a {@code BuildStatus} is returned with state {@link BuildTriggerStatus.State#TIMED_OUT}.
+     * It has a {@link QueueEstimate} if the queue could be checked, to help decide how much longer to wait.
      * <p>
      * Please note that timeout period is never meant to be very precise. It has the resolution of {@link BuildService#DEFAULT_POLL_PERIOD} because
      * timeout is checked before every pull.
@@ -250,9 +630,10 @@ public class DiggerClient {
      * @throws DiggerClientException if connection problems occur during connecting to Jenkins
      */
     public BuildTriggerStatus build(String jobName, long timeout, Map<String, String> params) throws DiggerClientException {
+        final Span span = tracing.start("build", "job", jobName);
         try {
-            BuildTriggerStatus buildTriggerStatus = buildService.triggerBuild(this.jenkinsServer, jobName, params);
-            return buildService.pollBuild(this.jenkinsServer, jobName, buildTriggerStatus.getQueueReference(),timeout, params);
+            BuildTriggerStatus buildTriggerStatus = triggerJournaled(jobName, params);
+            return pollBuildInFlight(jobName, buildTriggerStatus.getQueueReference(), timeout, params);
         } catch (IOException e) {
             LOG.debug("Exception while connecting to Jenkins", e);
             throw new DiggerClientException(e);
@@ -262,7 +643,84 @@ public class DiggerClient {
         } catch (Throwable e) {
             LOG.debug("Exception while triggering a build", e);
             throw new DiggerClientException(e);
+        } finally {
+            tracing.end(span);
+        }
+    }
+
+    /**
+     * Wait for a started build to finish, without blocking the caller.
+     * <p>
+     * The build is checked in the background with a lightweight query, less often while it is expected to run for
+     * a long time. See {@link BuildService#awaitCompletion(JenkinsHttpClient, ScheduledExecutorService, String, int)}.
+     * The checks of all builds share a single thread, which is stopped when the client is closed.
+     *
+     * @param jobName     name of the job
+     * @param buildNumber number of the build, for example from {@link BuildTriggerStatus#getBuildNumber()}
+     * @return future of the finished build, with its result and duration. Transient errors are tried again. It fails
+     * with an {@link IOException} if the build does not exist or can not be fetched
+     * {@link BuildService#MAX_COMPLETION_POLL_FAILURES} times in a row.
+     * @see DiggerClientBuilder#triggerJournal(File)
+     */
+    public Future<BuildSummary> awaitCompletion(String jobName, int buildNumber) {
+        return awaitJournaled(jobName, buildNumber);
+    }
+
+    private DiggerFuture<BuildSummary> awaitJournaled(final String jobName, final int buildNumber) {
+        if (triggerJournal != null) {
+            try {
+                triggerJournal.awaited(jobName, buildNumber);
+            } catch (Exception e) {
+                LOG.warn("Can not record the awaited build in the trigger journal", e);
+            }
+        }
+        final DiggerFuture<BuildSummary> future = buildService.awaitCompletion(jenkinsHttpClient, getCompletionScheduler(), jobName, buildNumber);
+        if (buildStatistics != null) {
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    final BuildSummary summary = future.getResult();
+                    if (summary != null) {
+                        buildStatistics.recordBuild(jobName, summary.getNumber(), summary.getDuration());
+                    }
+                }
+            });
+        }
+        if (triggerJournal != null) {
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (closed) {
+                        // still waited for, the build is resumed with the journal
+                        return;
+                    }
+                    try {
+                        triggerJournal.finished(jobName, buildNumber);
+                    } catch (Exception e) {
+                        LOG.warn("Can not record the finished build in the trigger journal", e);
+                    }
+                }
+            });
+        }
+        addPendingCompletion(future);
+        return future;
+    }
+
+    private synchronized void addPendingCompletion(DiggerFuture<BuildSummary> future) {
+        // forget the finished ones, the rest are failed when the client is closed
+        for (Iterator<DiggerFuture<BuildSummary>> it = pendingCompletions.iterator(); it.hasNext(); ) {
+            if (it.next().isDone()) {
+                it.remove();
+            }
+        }
+        pendingCompletions.add(future);
+    }
+
+    private synchronized ScheduledExecutorService getCompletionScheduler() {
+        if (completionScheduler == null) {
+            completionScheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("digger-build-watcher"));
         }
+        return completionScheduler;
     }
 
     /**
@@ -289,8 +747,9 @@ public class DiggerClient {
      * @throws DiggerClientException if connection problems occur during connecting to Jenkins
      */
     public BuildTriggerStatus triggerBuild(String jobName, Map<String, String> params) throws DiggerClientException {
+        final Span span = tracing.start("triggerBuild", "job", jobName);
         try{
-            return buildService.triggerBuild(this.jenkinsServer, jobName, params);
+            return triggerJournaled(jobName, params);
         } catch (IOException e){
             LOG.debug("Exception while connecting to Jenkins", e);
             throw new DiggerClientException("Exception while connecting to Jenkins", e);
@@ -300,6 +759,8 @@ public class DiggerClient {
         } catch (Throwable e){
             LOG.debug("Exception while triggering a build", e);
             throw new DiggerClientException("Exception while triggering a build", e);
+        } finally {
+            tracing.end(span);
         }
     }
 
@@ -313,8 +774,9 @@ public class DiggerClient {
      * @throws DiggerClientException if connection problems occur during connecting to Jenkins
      */
     public BuildTriggerStatus pollBuild(String jobName, QueueReference queueReference, long timeout, Map<String, String> params) throws DiggerClientException {
+        final Span span = tracing.start("pollBuild", "job", jobName);
         try{
-            return buildService.pollBuild(this.jenkinsServer, jobName, queueReference, timeout, params);
+            return pollBuildInFlight(jobName, queueReference, timeout, params);
         } catch (IOException e) {
             LOG.debug("Exception while connecting to Jenkins", e);
             throw new DiggerClientException("Exception while connecting to Jenkins", e);
@@ -324,7 +786,196 @@ public class DiggerClient {
         }  catch (Throwable e){
             LOG.debug("Exception while polling a build", e);
             throw new DiggerClientException("Exception while polling a build", e);
+        } finally {
+            tracing.end(span);
+        }
+    }
+
+    private BuildTriggerStatus pollBuildInFlight(String jobName, QueueReference queueReference, long timeout, Map<String, String> params) throws IOException, InterruptedException {
+        inFlightPolls.increment();
+        BuildTriggerStatus status;
+        try {
+            status = buildService.pollBuild(this.jenkinsServer, jobName, queueReference, timeout, params);
+        } catch (IOException e) {
+            if (BuildService.isClientError(e)) {
+                // the queue item is gone, the build can not be resumed
+                retireQueued(queueReference);
+            }
+            throw e;
+        } finally {
+            inFlightPolls.decrement();
+        }
+        if (status.getState() == BuildTriggerStatus.State.TIMED_OUT) {
+            status = withQueueEstimate(status);
+        }
+        if (buildStatistics != null && status.getState() == BuildTriggerStatus.State.STARTED_BUILDING && status.getQueueWait() >= 0) {
+            // coalesced triggers share the queue item, its wait is recorded once
+            buildStatistics.recordQueueWait(jobName, queueReference.getQueueItemUrlPart(), status.getQueueWait());
+        }
+        if (status.getState() != BuildTriggerStatus.State.TIMED_OUT) {
+            // the build left the queue, it is journaled again if it is awaited
+            retireQueued(queueReference);
+        }
+        return status;
+    }
+
+    private void retireQueued(QueueReference queueReference) {
+        if (triggerJournal != null) {
+            try {
+                triggerJournal.finished(queueReference.getQueueItemUrlPart());
+            } catch (Exception e) {
+                LOG.warn("Can not record the build leaving the queue in the trigger journal", e);
+            }
+        }
+    }
+
+    private BuildTriggerStatus withQueueEstimate(BuildTriggerStatus timedOut) {
+        try {
+            final BuildTriggerStatus status = buildService.getQueueStatus(jenkinsServer, jenkinsHttpClient, timedOut.getQueueReference(), masterDurations());
+            if (status.getState() != BuildTriggerStatus.State.TRIGGERED) {
+                // it left the queue since the last check
+                return status;
+            }
+            return new BuildTriggerStatus(BuildTriggerStatus.State.TIMED_OUT, timedOut.getQueueReference(), status.getQueueEstimate());
+        } catch (IOException e) {
+            LOG.debug("Can not estimate the start of the timed out build", e);
+            return timedOut;
+        }
+    }
+
+    private DurationHistogram masterDurations() {
+        // the statistics of a client only have the builds of its master
+        return buildStatistics != null ? buildStatistics.getAllDurations() : null;
+    }
+
+    /**
+     * Check once where a triggered build is, without waiting for it.
+     * <p>
+     * If the build is still in the queue, the status has a {@link QueueEstimate} with its position in the queue, why
+     * it is waiting and when it is expected to start. The start is estimated from the executors of the master and
+     * the median duration of all builds recorded in the {@link BuildStatistics} of the client, of every job of the
+     * master. It is only estimated if the client keeps statistics and they have recorded builds.
+     * It can be used to choose the timeout of {@link #pollBuild(String, QueueReference, long, Map)}.
+     *
+     * @param jobName        name of the job
+     * @param queueReference the queue reference, see {@link #triggerBuild(String, Map)}
+     * @return the build status. The state is {@link BuildTriggerStatus.State#TRIGGERED} if the build is still in the queue.
+     * @throws DiggerClientException if connection problems occur during connecting to Jenkins
+     */
+    public BuildTriggerStatus getQueueStatus(String jobName, QueueReference queueReference) throws DiggerClientException {
+        final Span span = tracing.start("getQueueStatus", "job", jobName);
+        try {
+            return buildService.getQueueStatus(jenkinsServer, jenkinsHttpClient, queueReference, masterDurations());
+        } catch (IOException e) {
+            LOG.debug("Exception while connecting to Jenkins", e);
+            throw new DiggerClientException("Exception while connecting to Jenkins", e);
+        } finally {
+            tracing.end(span);
+        }
+    }
+
+    private BuildTriggerStatus triggerJournaled(String jobName, Map<String, String> params) throws IOException, InterruptedException {
+        final BuildTriggerStatus status = buildService.triggerBuild(this.jenkinsServer, jobName, params);
+        if (triggerJournal != null) {
+            try {
+                triggerJournal.triggered(jobName, status.getQueueReference().getQueueItemUrlPart(), params);
+            } catch (Exception e) {
+                LOG.warn("Can not record the triggered build in the trigger journal", e);
+            }
         }
+        return status;
+    }
+
+    /**
+     * @return the builds the client is waiting for: triggered builds until they are seen leaving the queue, and
+     * builds given to {@link #awaitCompletion(String, int)} until the wait ends. Includes the builds that were
+     * pending in the journal when the client was built. Empty if the client has no trigger journal.
+     * @see DiggerClientBuilder#triggerJournal(File)
+     */
+    public List<JournaledBuild> getJournaledBuilds() {
+        return triggerJournal != null ? triggerJournal.getPendingBuilds() : Collections.<JournaledBuild>emptyList();
+    }
+
+    /**
+     * @return the builds that were pending in the trigger journal when the client was built, with the futures of
+     * their resumed waits, see {@link #resumeBuild(JournaledBuild, long)}. They wait up to
+     * {@link #DEFAULT_BUILD_TIMEOUT} for the builds that were still in the queue to start.
+     * @see DiggerClientBuilder#triggerJournal(File)
+     */
+    public Map<JournaledBuild, Future<BuildSummary>> getResumedBuilds() {
+        return Collections.unmodifiableMap(resumedBuilds);
+    }
+
+    /**
+     * Continue waiting for a build found in the trigger journal, without blocking the caller.
+     * <p>
+     * If the build was still in the queue, it is waited for in the background until it starts, like with
+     * {@link #pollBuild(String, QueueReference, long, Map)}. Then it is waited for like with
+     * {@link #awaitCompletion(String, int)}.
+     *
+     * @param build   the build, see {@link #getJournaledBuilds()}
+     * @param timeout how many milliseconds to wait for the build to leave the queue
+     * @return future of the finished build. It fails with an {@link IllegalStateException} if the build was cancelled,
+     * is stuck, did not leave the queue in time or if Jenkins already dropped its queue item, which happens some
+     * minutes after the build left the queue and when Jenkins restarts. A build that did not leave the queue in time
+     * stays in the journal.
+     */
+    public Future<BuildSummary> resumeBuild(final JournaledBuild build, long timeout) {
+        if (build.isStarted()) {
+            return awaitCompletion(build.getJobName(), build.getBuildNumber());
+        }
+        final DiggerFuture<BuildSummary> resumed = new DiggerFuture<BuildSummary>();
+        final DiggerFuture<BuildTriggerStatus> start = buildService.awaitStart(jenkinsServer, getCompletionScheduler(), build.getJobName(), build.getQueueReference(), timeout);
+        start.addListener(new Runnable() {
+            @Override
+            public void run() {
+                final BuildTriggerStatus status = start.getResult();
+                if (status == null) {
+                    // cancelled with the resumed wait, or failed
+                    if (BuildService.isClientError(start.getError())) {
+                        retireQueued(build.getQueueReference());
+                        resumed.fail(new IllegalStateException("Queue item is gone: " + build.getQueueItemUrl(), start.getError()));
+                    } else if (start.getError() != null) {
+                        resumed.fail(start.getError());
+                    }
+                    return;
+                }
+                if (status.getState() != BuildTriggerStatus.State.TIMED_OUT) {
+                    retireQueued(build.getQueueReference());
+                }
+                if (status.getState() != BuildTriggerStatus.State.STARTED_BUILDING) {
+                    resumed.fail(new IllegalStateException("Build did not start: " + status));
+                    return;
+                }
+                final DiggerFuture<BuildSummary> completion = awaitJournaled(build.getJobName(), status.getBuildNumber());
+                completion.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (completion.getResult() != null) {
+                            resumed.complete(completion.getResult());
+                        } else if (completion.getError() != null) {
+                            resumed.fail(completion.getError());
+                        } else {
+                            resumed.cancel(false);
+                        }
+                    }
+                });
+                resumed.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        completion.cancel(false);
+                    }
+                });
+            }
+        });
+        resumed.addListener(new Runnable() {
+            @Override
+            public void run() {
+                start.cancel(false);
+            }
+        });
+        addPendingCompletion(resumed);
+        return resumed;
     }
 
     /**
@@ -351,7 +1002,12 @@ public class DiggerClient {
      * @throws DiggerClientException - when problem with fetching artifacts from jenkins
      */
     public InputStream fetchArtifact(String jobName, int buildNumber, String artifactName) throws DiggerClientException {
-        return artifactsService.streamArtifact(jenkinsServer, jobName, buildNumber, artifactName);
+        final Span span = tracing.startForBuild("fetchArtifact", jobName, buildNumber);
+        try {
+            return artifactsService.streamArtifact(jenkinsServer, jobName, buildNumber, artifactName);
+        } finally {
+            tracing.end(span);
+        }
     }
 
     /**
@@ -365,11 +1021,14 @@ public class DiggerClient {
      * @throws DiggerClientException when problem with fetching artifacts from jenkins
      */
     public void saveArtifact(String jobName, int buildNumber, String artifactName, File outputFile) throws DiggerClientException {
+        final Span span = tracing.startForBuild("saveArtifact", jobName, buildNumber);
         try{
             artifactsService.saveArtifact(jenkinsServer, jobName, buildNumber, artifactName, outputFile);
         } catch (IOException e) {
             LOG.debug("Exception while saving a file", e);
             throw new DiggerClientException("Exception while saving a file", e);
+        } finally {
+            tracing.end(span);
         }
     }
 
@@ -382,11 +1041,14 @@ public class DiggerClient {
      * @throws DiggerClientException when problem with fetching artifacts from jenkins
      */
     public String getBuildLogs(String jobName, int buildNumber) throws DiggerClientException {
+        final Span span = tracing.startForBuild("getBuildLogs", jobName, buildNumber);
         try {
             return buildService.getBuildLogs(jenkinsServer, jobName, buildNumber);
         } catch (IOException e) {
             LOG.debug("Exception while retrieving logs", e);
             throw new DiggerClientException("Exception while retrieving logs", e);
+        } finally {
+            tracing.end(span);
         }
     }
 
@@ -400,7 +1062,12 @@ public class DiggerClient {
      * @throws DiggerClientException if connection problems occur
      */
     public List<BuildWithDetails> getBuildHistory(String jobName) throws DiggerClientException {
-        return buildService.getBuildHistory(jenkinsServer, jobName);
+        final Span span = tracing.start("getBuildHistory", "job", jobName);
+        try {
+            return buildService.getBuildHistory(jenkinsServer, jobName);
+        } finally {
+            tracing.end(span);
+        }
     }
 
     /**
@@ -412,6 +1079,8 @@ public class DiggerClient {
      * @throws DiggerClientException
      */
     public void streamLogs(String jobName, int buildNumber, LogStreamingOptions options) throws DiggerClientException {
+        final Span span = tracing.startForBuild("streamLogs", jobName, buildNumber);
+        logStreams.increment();
         try{
             buildService.streamBuildLogs(jenkinsServer, jobName, buildNumber, options);
         } catch (InterruptedException e) {
@@ -420,6 +1089,9 @@ public class DiggerClient {
         } catch (IOException e) {
             LOG.debug("Exception while streaming logs", e);
             throw new DiggerClientException("Exception while streaming logs", e);
+        } finally {
+            logStreams.decrement();
+            tracing.end(span);
         }
     }
 
@@ -431,13 +1103,92 @@ public class DiggerClient {
      * @throws DiggerClientException
      */
     public void deleteJob(String jobName, String credentialId) throws DiggerClientException {
+        final Span span = tracing.start("deleteJob", "job", jobName);
         try {
             jobService.delete(jenkinsServer, jobName, credentialId);
         } catch(IOException ioe) {
             throw new DiggerClientException(ioe);
+        } finally {
+            tracing.end(span);
+        }
+    }
+
+    /**
+     * Get only some fields of a build, for frequent status checks that don't need the full details.
+     * <p>
+     * Much less data is transferred and parsed than with {@link #getBuildDetails(String, int)}, see
+     * {@link BuildService#getBuildProjection(JenkinsHttpClient, String, int, java.util.Collection)}.
+     *
+     * @param jobName     the name of the job
+     * @param buildNumber the build number
+     * @param fields      the fields to fetch. The build number is always fetched.
+     * @return the build, with only the given fields set
+     * @throws DiggerClientException if connection problems occur during connecting to Jenkins
+     */
+    public BuildProjection getBuildProjection(String jobName, int buildNumber, BuildField... fields) throws DiggerClientException {
+        final Span span = tracing.startForBuild("getBuildProjection", jobName, buildNumber);
+        try {
+            return buildService.getBuildProjection(jenkinsHttpClient, jobName, buildNumber, Arrays.asList(fields));
+        } catch (IOException e) {
+            LOG.debug("Exception while connecting to Jenkins", e);
+            throw new DiggerClientException("Exception while connecting to Jenkins", e);
+        } finally {
+            tracing.end(span);
         }
     }
 
+    /**
+     * Bring the local history of a job up to date, fetching only the builds that are new or were running
+     * at the previous sync. Cheaper than {@link #getBuildHistory(String)} for jobs with long histories.
+     *
+     * @param index   the local index, see {@link BuildHistoryIndex}
+     * @param jobName the name of the job
+     * @return the history of the job after the sync
+     * @throws DiggerClientException if connection problems occur during connecting to Jenkins, or if the index can not be written
+     */
+    public JobHistory syncBuildHistory(BuildHistoryIndex index, String jobName) throws DiggerClientException {
+        final Span span = tracing.start("syncBuildHistory", "job", jobName);
+        try {
+            if (buildStatistics == null) {
+                return index.sync(jenkinsHttpClient, jobName);
+            }
+            final JobHistory previous = index.get(jobName);
+            final JobHistory history = index.sync(jenkinsHttpClient, jobName);
+            recordFinishedBuilds(previous, history);
+            return history;
+        } catch (IOException e) {
+            LOG.debug("Exception while syncing the build history", e);
+            throw new DiggerClientException("Exception while syncing the build history", e);
+        } finally {
+            tracing.end(span);
+        }
+    }
+
+    private void recordFinishedBuilds(JobHistory previous, JobHistory history) {
+        // the builds that were running at the previous sync, and the new ones
+        for (BuildRecord running : previous.getRunningBuilds()) {
+            final BuildRecord build = history.getBuild(running.getNumber());
+            if (build != null && !build.isBuilding()) {
+                buildStatistics.recordBuild(history.getJobName(), build.getNumber(), build.getDuration());
+            }
+        }
+        final List<BuildRecord> builds = history.getBuilds();
+        for (int i = builds.size() - 1; i >= 0 && builds.get(i).getNumber() > previous.getHighestBuildNumber(); i--) {
+            final BuildRecord build = builds.get(i);
+            if (!build.isBuilding()) {
+                buildStatistics.recordBuild(history.getJobName(), build.getNumber(), build.getDuration());
+            }
+        }
+    }
+
+    /**
+     * @return the build statistics the client records to. Null if it was built without them.
+     * @see DiggerClientBuilder#buildStatistics(BuildStatistics)
+     */
+    public BuildStatistics getBuildStatistics() {
+        return buildStatistics;
+    }
+
     /**
      * Get the details about a build.
      *
@@ -447,11 +1198,14 @@ public class DiggerClient {
      * @throws DiggerClientException
      */
     public BuildWithDetails getBuildDetails(String jobName, int buildNumber) throws DiggerClientException {
+        final Span span = tracing.startForBuild("getBuildDetails", jobName, buildNumber);
         try {
             return buildService.getBuildDetails(jenkinsServer, jobName, buildNumber);
         } catch (IOException e) {
             LOG.debug("Exception while connecting to Jenkins", e);
             throw new DiggerClientException("Exception while connecting to Jenkins", e);
+        } finally {
+            tracing.end(span);
         }
     }
 
@@ -463,11 +1217,103 @@ public class DiggerClient {
      * @throws DiggerClientException
      */
     public BuildWithDetails cancelBuild(String jobName, int buildNumber) throws DiggerClientException {
+        final Span span = tracing.startForBuild("cancelBuild", jobName, buildNumber);
         try {
             return buildService.cancelBuild(jenkinsServer, jobName, buildNumber);
         } catch (IOException e) {
             LOG.debug("Exception while connecting to Jenkins", e);
             throw new DiggerClientException("Exception while connecting to Jenkinss", e);
+        } finally {
+            tracing.end(span);
+        }
+    }
+
+    /**
+     * Get a snapshot of how busy the Jenkins master is.
+     *
+     * @return the queue length and executor usage of the master
+     * @throws DiggerClientException if connection problems occur during connecting to Jenkins
+     */
+    public MasterLoad getMasterLoad() throws DiggerClientException {
+        final Span span = tracing.start("getMasterLoad");
+        try {
+            return buildService.getMasterLoad(jenkinsHttpClient);
+        } catch (IOException e) {
+            LOG.debug("Exception while connecting to Jenkins", e);
+            throw new DiggerClientException("Exception while connecting to Jenkins", e);
+        } finally {
+            tracing.end(span);
+        }
+    }
+
+    /**
+     * Create a watcher of the last builds of all top level jobs. See {@link #createJobStatusWatcher(String, int)}.
+     *
+     * @return the watcher
+     */
+    public JobStatusWatcher createJobStatusWatcher() {
+        return createJobStatusWatcher("", JobStatusWatcher.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Create a watcher of the last builds of many jobs, that fetches all of them with a single request per refresh
+     * instead of calling {@link #getJob(String)} for each job.
+     * <p>
+     * The watcher is not refreshed until {@link JobStatusWatcher#refresh()} or {@link JobStatusWatcher#start(long)} is called,
+     * and must be closed before the client.
+     *
+     * @param folderPath path of the folder to watch, for example <code>/job/mobile-apps</code>. Empty to watch the top level jobs.
+     * @param pageSize   max number of jobs fetched by a single request. 0 fetches all jobs at once.
+     * @return the watcher
+     */
+    public JobStatusWatcher createJobStatusWatcher(String folderPath, int pageSize) {
+        return new JobStatusWatcher(jenkinsHttpClient, folderPath, pageSize);
+    }
+
+    /**
+     * @return state of the circuit breaker. Always {@link CircuitBreaker.State#CLOSED} if the client has no circuit breaker.
+     */
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker != null ? circuitBreaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * @return number of requests retried since the client was created
+     */
+    public long getRetryCount() {
+        return retryingHttpClient != null ? retryingHttpClient.getRetryCount() : 0;
+    }
+
+    /**
+     * Release the pooled connections of the client. The client can not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (notificationReceiver != null) {
+            notificationReceiver.removeListener(notificationListener);
+        }
+        // the builds that are still waited for stay in the journal
+        closed = true;
+        synchronized (this) {
+            if (completionScheduler != null) {
+                completionScheduler.shutdownNow();
+            }
+            for (DiggerFuture<BuildSummary> future : pendingCompletions) {
+                future.fail(new IOException("Client is closed"));
+            }
+            pendingCompletions.clear();
+        }
+        if (triggerJournal != null) {
+            try {
+                triggerJournal.close();
+            } catch (IOException e) {
+                LOG.debug("Exception while closing the trigger journal", e);
+            }
+        }
+        try {
+            this.httpClient.close();
+        } catch (IOException e) {
+            LOG.debug("Exception while closing the HTTP client", e);
         }
     }
 
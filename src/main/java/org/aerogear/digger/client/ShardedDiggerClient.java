@@ -0,0 +1,683 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client;
+
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.JobWithDetails;
+import com.offbytwo.jenkins.model.QueueReference;
+import com.offbytwo.jenkins.model.credentials.Credential;
+import org.aerogear.digger.client.history.BuildHistoryIndex;
+import org.aerogear.digger.client.history.JobHistory;
+import org.aerogear.digger.client.journal.JournaledBuild;
+import org.aerogear.digger.client.model.BuildDiscarder;
+import org.aerogear.digger.client.model.BuildField;
+import org.aerogear.digger.client.model.BuildParameter;
+import org.aerogear.digger.client.model.BuildPlacement;
+import org.aerogear.digger.client.model.BuildProjection;
+import org.aerogear.digger.client.model.BuildSummary;
+import org.aerogear.digger.client.model.BuildTriggerStatus;
+import org.aerogear.digger.client.model.JobProvisioningReport;
+import org.aerogear.digger.client.model.JobSpec;
+import org.aerogear.digger.client.model.LogStreamingOptions;
+import org.aerogear.digger.client.model.MasterLoad;
+import org.aerogear.digger.client.util.DiggerClientException;
+import org.aerogear.digger.client.util.JenkinsAuth;
+import org.aerogear.digger.client.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Digger client that spreads the jobs over multiple Jenkins masters.
+ * <p>
+ * Every job name is mapped to one master with consistent hashing. All calls for a job go to that master,
+ * so the API is the same as the one of {@link DiggerClient}.
+ * <p>
+ * Each master is placed on a hash ring many times (virtual nodes). When a master is added, only the jobs
+ * that now map to the new master move, which is roughly <code>1 / number of masters</code> of the jobs.
+ * Moving the existing jobs to their new master is up to the caller, see {@link #getMasterId(String)}.
+ * <p>
+ * Jobs that exist on more than one master can be built on the least loaded one with
+ * {@link #buildOnLeastLoadedMaster(String, Collection, long, Map)}. The load of the masters comes from
+ * snapshots that are refreshed periodically, see {@link #startLoadMonitor(long)}. Such a build may not be on the
+ * master the job belongs to, so the calls about it take the returned {@link BuildPlacement}.
+ */
+public class ShardedDiggerClient implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedDiggerClient.class);
+
+    /**
+     * Default number of places each master takes on the hash ring.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    /**
+     * Default refresh period of the master load snapshots, in milliseconds.
+     */
+    public static final long DEFAULT_LOAD_REFRESH_PERIOD = 10 * 1000L;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int virtualNodes;
+
+    private final Map<String, DiggerClient> masters = new LinkedHashMap<String, DiggerClient>();
+
+    // replaced as a whole on every change, so lookups don't need locking
+    private volatile SortedMap<Long, String> ring = new TreeMap<Long, String>();
+
+    private final ConcurrentMap<String, MasterLoad> loads = new ConcurrentHashMap<String, MasterLoad>();
+    private ScheduledExecutorService loadMonitor;
+
+    /**
+     * Create an empty client with {@link #DEFAULT_VIRTUAL_NODES}. Masters must be added with {@link #addMaster(String, DiggerClient)}.
+     */
+    public ShardedDiggerClient() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Create an empty client. Masters must be added with {@link #addMaster(String, DiggerClient)}.
+     *
+     * @param virtualNodes number of places each master takes on the hash ring. More places give a more even distribution.
+     */
+    public ShardedDiggerClient(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Virtual nodes must be at least 1");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Create a client with a default {@link DiggerClient} for each of the given masters. The url of a master is used as its id.
+     *
+     * @param masters   url and credentials of the masters
+     * @param crumbFlag If CSRF Protection is enabled on the Jenkins servers
+     * @return client instance
+     * @throws DiggerClientException if one of the clients can not be created
+     */
+    public static ShardedDiggerClient createDefaultWithAuth(List<JenkinsAuth> masters, boolean crumbFlag) throws DiggerClientException {
+        final ShardedDiggerClient client = new ShardedDiggerClient();
+        for (JenkinsAuth master : masters) {
+            client.addMaster(master.getUrl(), DiggerClient.createDefaultWithAuth(master.getUrl(), master.getUser(), master.getPassword(), crumbFlag));
+        }
+        return client;
+    }
+
+    /**
+     * Add a master. Jobs that map to the new master are not moved by this call.
+     *
+     * @param id     id of the master. It must stay the same between restarts, otherwise jobs map to different masters.
+     * @param client the client of the master
+     */
+    public synchronized void addMaster(String id, DiggerClient client) {
+        if (masters.containsKey(id)) {
+            throw new IllegalArgumentException("Master " + id + " is already added");
+        }
+        masters.put(id, client);
+        rebuildRing();
+    }
+
+    /**
+     * Remove a master. Its jobs will map to the remaining masters. The removed client is not closed.
+     *
+     * @param id id of the master
+     * @return the client of the removed master, null if there is no such master
+     */
+    public synchronized DiggerClient removeMaster(String id) {
+        final DiggerClient removed = masters.remove(id);
+        if (removed != null) {
+            loads.remove(id);
+            rebuildRing();
+        }
+        return removed;
+    }
+
+    /**
+     * @return the clients of the masters, by master id
+     */
+    public synchronized Map<String, DiggerClient> getMasters() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, DiggerClient>(masters));
+    }
+
+    /**
+     * @param jobName name of the job
+     * @return the id of the master the job belongs to
+     * @throws IllegalStateException if there are no masters
+     */
+    public String getMasterId(String jobName) {
+        final SortedMap<Long, String> current = this.ring;
+        if (current.isEmpty()) {
+            throw new IllegalStateException("There are no masters");
+        }
+        final SortedMap<Long, String> tail = current.tailMap(hash(jobName));
+        return tail.isEmpty() ? current.get(current.firstKey()) : tail.get(tail.firstKey());
+    }
+
+    /**
+     * @param jobName name of the job
+     * @return the client of the master the job belongs to
+     * @throws IllegalStateException if there are no masters
+     */
+    public synchronized DiggerClient getClient(String jobName) {
+        return masters.get(getMasterId(jobName));
+    }
+
+    /**
+     * @param masterId id of the master
+     * @return the client of the master
+     * @throws IllegalArgumentException if there is no master with the given id
+     */
+    public synchronized DiggerClient getMasterClient(String masterId) {
+        final DiggerClient client = masters.get(masterId);
+        if (client == null) {
+            throw new IllegalArgumentException("Unknown master " + masterId);
+        }
+        return client;
+    }
+
+    /**
+     * @param placement placement of a build triggered by {@link #buildOnLeastLoadedMaster(String, Collection, long, Map)}
+     *                  or {@link #triggerBuildOnLeastLoadedMaster(String, Collection, Map)}
+     * @return the client of the master the build was triggered on, which may not be the master the job belongs to
+     * @throws IllegalArgumentException if the master was removed
+     */
+    public DiggerClient getClient(BuildPlacement placement) {
+        return getMasterClient(placement.getMasterId());
+    }
+
+    /**
+     * See {@link DiggerClient#createJob(String, String, String, BuildDiscarder)}
+     */
+    public void createJob(String name, String gitRepo, String gitBranch, BuildDiscarder buildDiscarder) throws DiggerClientException {
+        getClient(name).createJob(name, gitRepo, gitBranch, buildDiscarder);
+    }
+
+    /**
+     * See {@link DiggerClient#createJob(String, String, String, BuildDiscarder, Credential, List)}
+     */
+    public void createJob(String name, String gitRepo, String gitBranch, BuildDiscarder buildDiscarder, Credential gitRepoCredential, List<BuildParameter> buildParameters) throws DiggerClientException {
+        getClient(name).createJob(name, gitRepo, gitBranch, buildDiscarder, gitRepoCredential, buildParameters);
+    }
+
+    /**
+     * See {@link DiggerClient#updateJob(String, String, String, BuildDiscarder)}
+     */
+    public void updateJob(String name, String gitRepo, String gitBranch, BuildDiscarder buildDiscarder) throws DiggerClientException {
+        getClient(name).updateJob(name, gitRepo, gitBranch, buildDiscarder);
+    }
+
+    /**
+     * See {@link DiggerClient#updateJob(String, String, String, BuildDiscarder, Credential, List)}
+     */
+    public void updateJob(String name, String gitRepo, String gitBranch, BuildDiscarder buildDiscarder, Credential gitRepoCredential, List<BuildParameter> buildParameters) throws DiggerClientException {
+        getClient(name).updateJob(name, gitRepo, gitBranch, buildDiscarder, gitRepoCredential, buildParameters);
+    }
+
+    /**
+     * Create many jobs. The jobs of different masters are created at the same time, each master with the given concurrency.
+     * See {@link DiggerClient#createJobs(List, int)}
+     */
+    public JobProvisioningReport createJobs(List<JobSpec> specs, int concurrency) throws DiggerClientException {
+        return provisionAll(specs, concurrency, false);
+    }
+
+    /**
+     * Update many jobs. The jobs of different masters are updated at the same time, each master with the given concurrency.
+     * See {@link DiggerClient#updateJobs(List, int)}
+     */
+    public JobProvisioningReport updateJobs(List<JobSpec> specs, int concurrency) throws DiggerClientException {
+        return provisionAll(specs, concurrency, true);
+    }
+
+    /**
+     * See {@link DiggerClient#getJob(String)}
+     */
+    public JobWithDetails getJob(String name) throws DiggerClientException {
+        return getClient(name).getJob(name);
+    }
+
+    /**
+     * See {@link DiggerClient#build(String, long, Map)}
+     */
+    public BuildTriggerStatus build(String jobName, long timeout, Map<String, String> params) throws DiggerClientException {
+        return getClient(jobName).build(jobName, timeout, params);
+    }
+
+    /**
+     * See {@link DiggerClient#build(String, long)}
+     */
+    public BuildTriggerStatus build(String jobName, long timeout) throws DiggerClientException {
+        return getClient(jobName).build(jobName, timeout);
+    }
+
+    /**
+     * See {@link DiggerClient#build(String)}
+     */
+    public BuildTriggerStatus build(String jobName) throws DiggerClientException {
+        return getClient(jobName).build(jobName);
+    }
+
+    /**
+     * See {@link DiggerClient#triggerBuild(String, Map)}
+     */
+    public BuildTriggerStatus triggerBuild(String jobName, Map<String, String> params) throws DiggerClientException {
+        return getClient(jobName).triggerBuild(jobName, params);
+    }
+
+    /**
+     * See {@link DiggerClient#pollBuild(String, QueueReference, long, Map)}
+     */
+    public BuildTriggerStatus pollBuild(String jobName, QueueReference queueReference, long timeout, Map<String, String> params) throws DiggerClientException {
+        return getClient(jobName).pollBuild(jobName, queueReference, timeout, params);
+    }
+
+    /**
+     * See {@link DiggerClient#pollBuild(String, QueueReference, long, Map)}, for the queue item of the placement,
+     * on the master the build was triggered on.
+     */
+    public BuildTriggerStatus pollBuild(BuildPlacement placement, String jobName, long timeout, Map<String, String> params) throws DiggerClientException {
+        return getClient(placement).pollBuild(jobName, placement.getStatus().getQueueReference(), timeout, params);
+    }
+
+    /**
+     * See {@link DiggerClient#getQueueStatus(String, QueueReference)}
+     */
+    public BuildTriggerStatus getQueueStatus(String jobName, QueueReference queueReference) throws DiggerClientException {
+        return getClient(jobName).getQueueStatus(jobName, queueReference);
+    }
+
+    /**
+     * See {@link DiggerClient#getQueueStatus(String, QueueReference)}, for the queue item of the placement,
+     * on the master the build was triggered on.
+     */
+    public BuildTriggerStatus getQueueStatus(BuildPlacement placement, String jobName) throws DiggerClientException {
+        return getClient(placement).getQueueStatus(jobName, placement.getStatus().getQueueReference());
+    }
+
+    /**
+     * See {@link DiggerClient#awaitCompletion(String, int)}
+     */
+    public Future<BuildSummary> awaitCompletion(String jobName, int buildNumber) {
+        return getClient(jobName).awaitCompletion(jobName, buildNumber);
+    }
+
+    /**
+     * See {@link DiggerClient#awaitCompletion(String, int)}, on the master the build was triggered on.
+     */
+    public Future<BuildSummary> awaitCompletion(BuildPlacement placement, String jobName, int buildNumber) {
+        return getClient(placement).awaitCompletion(jobName, buildNumber);
+    }
+
+    /**
+     * @return the journaled builds of all masters. See {@link DiggerClient#getJournaledBuilds()}
+     */
+    public synchronized List<JournaledBuild> getJournaledBuilds() {
+        final List<JournaledBuild> builds = new ArrayList<JournaledBuild>();
+        for (DiggerClient client : masters.values()) {
+            builds.addAll(client.getJournaledBuilds());
+        }
+        return builds;
+    }
+
+    /**
+     * See {@link DiggerClient#resumeBuild(JournaledBuild, long)}
+     */
+    public Future<BuildSummary> resumeBuild(JournaledBuild build, long timeout) {
+        return getClient(build.getJobName()).resumeBuild(build, timeout);
+    }
+
+    /**
+     * See {@link DiggerClient#fetchArtifact(String, int, String)}
+     */
+    public InputStream fetchArtifact(String jobName, int buildNumber, String artifactName) throws DiggerClientException {
+        return getClient(jobName).fetchArtifact(jobName, buildNumber, artifactName);
+    }
+
+    /**
+     * See {@link DiggerClient#fetchArtifact(String, int, String)}, on the master the build was triggered on.
+     */
+    public InputStream fetchArtifact(BuildPlacement placement, String jobName, int buildNumber, String artifactName) throws DiggerClientException {
+        return getClient(placement).fetchArtifact(jobName, buildNumber, artifactName);
+    }
+
+    /**
+     * See {@link DiggerClient#saveArtifact(String, int, String, File)}
+     */
+    public void saveArtifact(String jobName, int buildNumber, String artifactName, File outputFile) throws DiggerClientException {
+        getClient(jobName).saveArtifact(jobName, buildNumber, artifactName, outputFile);
+    }
+
+    /**
+     * See {@link DiggerClient#saveArtifact(String, int, String, File)}, on the master the build was triggered on.
+     */
+    public void saveArtifact(BuildPlacement placement, String jobName, int buildNumber, String artifactName, File outputFile) throws DiggerClientException {
+        getClient(placement).saveArtifact(jobName, buildNumber, artifactName, outputFile);
+    }
+
+    /**
+     * See {@link DiggerClient#getBuildLogs(String, int)}
+     */
+    public String getBuildLogs(String jobName, int buildNumber) throws DiggerClientException {
+        return getClient(jobName).getBuildLogs(jobName, buildNumber);
+    }
+
+    /**
+     * See {@link DiggerClient#getBuildLogs(String, int)}, on the master the build was triggered on.
+     */
+    public String getBuildLogs(BuildPlacement placement, String jobName, int buildNumber) throws DiggerClientException {
+        return getClient(placement).getBuildLogs(jobName, buildNumber);
+    }
+
+    /**
+     * See {@link DiggerClient#getBuildHistory(String)}
+     */
+    public List<BuildWithDetails> getBuildHistory(String jobName) throws DiggerClientException {
+        return getClient(jobName).getBuildHistory(jobName);
+    }
+
+    /**
+     * See {@link DiggerClient#streamLogs(String, int, LogStreamingOptions)}
+     */
+    public void streamLogs(String jobName, int buildNumber, LogStreamingOptions options) throws DiggerClientException {
+        getClient(jobName).streamLogs(jobName, buildNumber, options);
+    }
+
+    /**
+     * See {@link DiggerClient#streamLogs(String, int, LogStreamingOptions)}, on the master the build was triggered on.
+     */
+    public void streamLogs(BuildPlacement placement, String jobName, int buildNumber, LogStreamingOptions options) throws DiggerClientException {
+        getClient(placement).streamLogs(jobName, buildNumber, options);
+    }
+
+    /**
+     * See {@link DiggerClient#deleteJob(String, String)}
+     */
+    public void deleteJob(String jobName, String credentialId) throws DiggerClientException {
+        getClient(jobName).deleteJob(jobName, credentialId);
+    }
+
+    /**
+     * See {@link DiggerClient#getBuildDetails(String, int)}
+     */
+    public BuildWithDetails getBuildDetails(String jobName, int buildNumber) throws DiggerClientException {
+        return getClient(jobName).getBuildDetails(jobName, buildNumber);
+    }
+
+    /**
+     * See {@link DiggerClient#getBuildDetails(String, int)}, on the master the build was triggered on.
+     */
+    public BuildWithDetails getBuildDetails(BuildPlacement placement, String jobName, int buildNumber) throws DiggerClientException {
+        return getClient(placement).getBuildDetails(jobName, buildNumber);
+    }
+
+    /**
+     * See {@link DiggerClient#cancelBuild(String, int)}
+     */
+    public BuildWithDetails cancelBuild(String jobName, int buildNumber) throws DiggerClientException {
+        return getClient(jobName).cancelBuild(jobName, buildNumber);
+    }
+
+    /**
+     * See {@link DiggerClient#cancelBuild(String, int)}, on the master the build was triggered on.
+     */
+    public BuildWithDetails cancelBuild(BuildPlacement placement, String jobName, int buildNumber) throws DiggerClientException {
+        return getClient(placement).cancelBuild(jobName, buildNumber);
+    }
+
+    /**
+     * See {@link DiggerClient#getBuildProjection(String, int, BuildField...)}
+     */
+    public BuildProjection getBuildProjection(String jobName, int buildNumber, BuildField... fields) throws DiggerClientException {
+        return getClient(jobName).getBuildProjection(jobName, buildNumber, fields);
+    }
+
+    /**
+     * See {@link DiggerClient#getBuildProjection(String, int, BuildField...)}, on the master the build was triggered on.
+     */
+    public BuildProjection getBuildProjection(BuildPlacement placement, String jobName, int buildNumber, BuildField... fields) throws DiggerClientException {
+        return getClient(placement).getBuildProjection(jobName, buildNumber, fields);
+    }
+
+    /**
+     * See {@link DiggerClient#syncBuildHistory(BuildHistoryIndex, String)}.
+     * The same index can be used for the jobs of all masters.
+     */
+    public JobHistory syncBuildHistory(BuildHistoryIndex index, String jobName) throws DiggerClientException {
+        return getClient(jobName).syncBuildHistory(index, jobName);
+    }
+
+    /**
+     * Start refreshing the load snapshots of all masters periodically, in the background.
+     *
+     * @param refreshPeriod how often (in milliseconds) the snapshots are refreshed. See {@link #DEFAULT_LOAD_REFRESH_PERIOD}
+     */
+    public synchronized void startLoadMonitor(long refreshPeriod) {
+        if (loadMonitor != null) {
+            throw new IllegalStateException("Load monitor is already started");
+        }
+        loadMonitor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("digger-load-monitor"));
+        loadMonitor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                refreshLoads();
+            }
+        }, 0, refreshPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Refresh the load snapshots of all masters now. A master whose load can not be fetched has no snapshot until the next refresh.
+     */
+    public void refreshLoads() {
+        for (Map.Entry<String, DiggerClient> master : getMasters().entrySet()) {
+            try {
+                loads.put(master.getKey(), master.getValue().getMasterLoad());
+            } catch (Exception e) {
+                LOG.warn("Can not fetch the load of master " + master.getKey(), e);
+                loads.remove(master.getKey());
+            }
+        }
+    }
+
+    /**
+     * @return the latest load snapshots, by master id. Masters without a snapshot are missing.
+     */
+    public Map<String, MasterLoad> getMasterLoads() {
+        return Collections.unmodifiableMap(new HashMap<String, MasterLoad>(loads));
+    }
+
+    /**
+     * Trigger a build of a job on the least loaded of the given masters, without waiting for it to start.
+     * See {@link #buildOnLeastLoadedMaster(String, Collection, long, Map)}.
+     */
+    public BuildPlacement triggerBuildOnLeastLoadedMaster(String jobName, Collection<String> masterIds, Map<String, String> params) throws DiggerClientException {
+        final String masterId = selectLeastLoaded(masterIds);
+        final BuildTriggerStatus status = getMasterClient(masterId).triggerBuild(jobName, params);
+        recordQueued(masterId);
+        return new BuildPlacement(masterId, status);
+    }
+
+    /**
+     * Trigger a build of a job that exists on more than one master, on the master with the shortest backlog,
+     * and wait until it starts. See {@link DiggerClient#build(String, long, Map)}.
+     * <p>
+     * The backlog is the queue length minus the idle executors, taken from the latest load snapshots. Masters
+     * without a snapshot are only picked if no other master has one. Each build triggered here is counted in
+     * the snapshot of its master until the next refresh, so bursts are spread too.
+     *
+     * @param jobName   name of the job
+     * @param masterIds ids of the masters the job exists on
+     * @param timeout   how many milliseconds should this call block before returning {@link BuildTriggerStatus.State#TIMED_OUT}
+     * @param params    build parameters to be sent to the Jenkins build
+     * @return the master the build was triggered on and the build status
+     * @throws DiggerClientException if connection problems occur during connecting to Jenkins
+     */
+    public BuildPlacement buildOnLeastLoadedMaster(String jobName, Collection<String> masterIds, long timeout, Map<String, String> params) throws DiggerClientException {
+        final BuildPlacement placement = triggerBuildOnLeastLoadedMaster(jobName, masterIds, params);
+        return new BuildPlacement(placement.getMasterId(), pollBuild(placement, jobName, timeout, params));
+    }
+
+    /**
+     * Close the clients of all masters and stop the load monitor.
+     */
+    @Override
+    public synchronized void close() {
+        if (loadMonitor != null) {
+            loadMonitor.shutdownNow();
+            loadMonitor = null;
+        }
+        for (DiggerClient client : masters.values()) {
+            client.close();
+        }
+    }
+
+    String selectLeastLoaded(Collection<String> masterIds) {
+        final Set<String> knownIds;
+        synchronized (this) {
+            knownIds = new HashSet<String>(masters.keySet());
+        }
+        String selected = null;
+        MasterLoad selectedLoad = null;
+        for (String masterId : masterIds) {
+            if (!knownIds.contains(masterId)) {
+                throw new IllegalArgumentException("Unknown master " + masterId);
+            }
+            final MasterLoad load = loads.get(masterId);
+            if (selected == null || (load != null && (selectedLoad == null || load.compareTo(selectedLoad) < 0))) {
+                selected = masterId;
+                selectedLoad = load;
+            }
+        }
+        if (selected == null) {
+            throw new IllegalArgumentException("No masters given");
+        }
+        LOG.debug("Selected master {} with load {}", selected, selectedLoad);
+        return selected;
+    }
+
+    private void recordQueued(String masterId) {
+        while (true) {
+            final MasterLoad load = loads.get(masterId);
+            if (load == null || loads.replace(masterId, load, load.withQueued(1))) {
+                return;
+            }
+        }
+    }
+
+    private JobProvisioningReport provisionAll(List<JobSpec> specs, final int concurrency, final boolean update) throws DiggerClientException {
+        final long start = System.currentTimeMillis();
+
+        final Map<String, List<JobSpec>> specsByMaster = new LinkedHashMap<String, List<JobSpec>>();
+        // position of each spec of a master in the given list
+        final Map<String, List<Integer>> indexesByMaster = new HashMap<String, List<Integer>>();
+        for (int i = 0; i < specs.size(); i++) {
+            final JobSpec spec = specs.get(i);
+            final String masterId = getMasterId(spec.getName());
+            List<JobSpec> masterSpecs = specsByMaster.get(masterId);
+            if (masterSpecs == null) {
+                masterSpecs = new ArrayList<JobSpec>();
+                specsByMaster.put(masterId, masterSpecs);
+                indexesByMaster.put(masterId, new ArrayList<Integer>());
+            }
+            masterSpecs.add(spec);
+            indexesByMaster.get(masterId).add(i);
+        }
+        if (specsByMaster.isEmpty()) {
+            return new JobProvisioningReport(Collections.<JobProvisioningReport.Result>emptyList(), 0);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(specsByMaster.size(), new NamedThreadFactory("digger-shards"));
+        try {
+            final List<Future<JobProvisioningReport>> futures = new ArrayList<Future<JobProvisioningReport>>();
+            for (final Map.Entry<String, List<JobSpec>> entry : specsByMaster.entrySet()) {
+                final DiggerClient client = getMasterClient(entry.getKey());
+                futures.add(executor.submit(new Callable<JobProvisioningReport>() {
+                    @Override
+                    public JobProvisioningReport call() throws DiggerClientException {
+                        return update ? client.updateJobs(entry.getValue(), concurrency) : client.createJobs(entry.getValue(), concurrency);
+                    }
+                }));
+            }
+
+            // report the results in the order of the given specs
+            final JobProvisioningReport.Result[] results = new JobProvisioningReport.Result[specs.size()];
+            int i = 0;
+            for (String masterId : specsByMaster.keySet()) {
+                final List<JobProvisioningReport.Result> masterResults = futures.get(i++).get().getResults();
+                final List<Integer> indexes = indexesByMaster.get(masterId);
+                for (int j = 0; j < indexes.size(); j++) {
+                    results[indexes.get(j)] = masterResults.get(j);
+                }
+            }
+            return new JobProvisioningReport(Arrays.asList(results), System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            throw new DiggerClientException("Interrupted while provisioning jobs", e);
+        } catch (ExecutionException e) {
+            throw new DiggerClientException("Exception while provisioning jobs", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void rebuildRing() {
+        final SortedMap<Long, String> newRing = new TreeMap<Long, String>();
+        for (String id : masters.keySet()) {
+            for (int i = 0; i < virtualNodes; i++) {
+                newRing.put(hash(id + "#" + i), id);
+            }
+        }
+        this.ring = newRing;
+    }
+
+    private static long hash(String key) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
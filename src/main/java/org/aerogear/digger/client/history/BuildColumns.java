@@ -0,0 +1,331 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.history;
+
+import com.offbytwo.jenkins.model.BuildResult;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * The builds of a job in columns of primitives, ordered by build number.
+ * <p>
+ * A build takes 21 bytes: its timestamp and duration as longs, its number as an int and its result as a byte code.
+ * The columns share a single buffer, which can be on the heap or off-heap. Builds start in the order of their numbers,
+ * so the timestamps are ordered too, and ranges of time are found with a binary search. Instances are immutable.
+ */
+public class BuildColumns {
+
+    private static final byte RUNNING = -1;
+    private static final byte NO_RESULT = 0;
+    // a result is written as its position in this table plus one: add new results at the end, never reorder
+    private static final BuildResult[] RESULT_CODES = {
+        BuildResult.SUCCESS, BuildResult.UNSTABLE, BuildResult.FAILURE, BuildResult.NOT_BUILT, BuildResult.ABORTED,
+        BuildResult.CANCELLED, BuildResult.REBUILDING, BuildResult.BUILDING, BuildResult.UNKNOWN
+    };
+
+    private static final int BYTES_PER_BUILD = 8 + 8 + 4 + 1;
+
+    private static final BuildColumns EMPTY = allocate(0, false);
+
+    private final int size;
+    private final boolean offHeap;
+    private final LongBuffer timestamps;
+    private final LongBuffer durations;
+    private final IntBuffer numbers;
+    private final ByteBuffer results;
+    private boolean timeOrdered = true;
+
+    private BuildColumns(int size, boolean offHeap) {
+        this.size = size;
+        this.offHeap = offHeap;
+        final ByteBuffer buffer = (offHeap ? ByteBuffer.allocateDirect(size * BYTES_PER_BUILD) : ByteBuffer.allocate(size * BYTES_PER_BUILD))
+            .order(ByteOrder.nativeOrder());
+        // longs first, so they are aligned
+        this.timestamps = column(buffer, 0, size * 8).asLongBuffer();
+        this.durations = column(buffer, size * 8, size * 8).asLongBuffer();
+        this.numbers = column(buffer, size * 16, size * 4).asIntBuffer();
+        this.results = column(buffer, size * 20, size);
+    }
+
+    private static ByteBuffer column(ByteBuffer buffer, int offset, int length) {
+        final ByteBuffer column = buffer.duplicate();
+        column.position(offset);
+        column.limit(offset + length);
+        return column.slice().order(ByteOrder.nativeOrder());
+    }
+
+    private static BuildColumns allocate(int size, boolean offHeap) {
+        return new BuildColumns(size, offHeap);
+    }
+
+    /**
+     * @return columns without builds
+     */
+    public static BuildColumns empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param builds  the builds, ordered by number
+     * @param offHeap if the columns should be kept outside of the Java heap
+     * @return columns with the builds
+     */
+    public static BuildColumns of(Collection<BuildRecord> builds, boolean offHeap) {
+        final BuildColumns columns = allocate(builds.size(), offHeap);
+        int index = 0;
+        for (BuildRecord build : builds) {
+            columns.set(index++, build);
+        }
+        return columns.checkOrder();
+    }
+
+    /**
+     * @return number of builds
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return if the columns are kept outside of the Java heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * @return number of bytes taken by the columns
+     */
+    public long getSizeInBytes() {
+        return (long) size * BYTES_PER_BUILD;
+    }
+
+    public int getNumber(int index) {
+        return numbers.get(index);
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps.get(index);
+    }
+
+    public long getDuration(int index) {
+        return durations.get(index);
+    }
+
+    public boolean isBuilding(int index) {
+        return results.get(index) == RUNNING;
+    }
+
+    /**
+     * @param index index of the build
+     * @return the result of the build. Null if it is running.
+     */
+    public BuildResult getResult(int index) {
+        final byte code = results.get(index);
+        return code > NO_RESULT ? RESULT_CODES[code - 1] : null;
+    }
+
+    /**
+     * @param index index of the build
+     * @return the build as an object
+     */
+    public BuildRecord get(int index) {
+        return new BuildRecord(getNumber(index), isBuilding(index), getResult(index), getDuration(index), getTimestamp(index));
+    }
+
+    /**
+     * @param number number of a build
+     * @return index of the build. Negative if there is no such build.
+     */
+    public int indexOf(int number) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int value = numbers.get(middle);
+            if (value < number) {
+                low = middle + 1;
+            } else if (value > number) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return false if some build started before a build with a lower number, and time ranges can not be binary searched
+     */
+    public boolean isTimeOrdered() {
+        return timeOrdered;
+    }
+
+    /**
+     * @param timestamp time in milliseconds since epoch
+     * @return index of the first build that started at or after the given time. {@link #size()} if there is none.
+     * Only meaningful if the columns are {@link #isTimeOrdered() ordered by time}.
+     */
+    public int lowerBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (timestamps.get(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param changes builds to add or replace, by number
+     * @param removed numbers of the builds to remove
+     * @return new columns with the changes applied, on the heap or off-heap like these columns
+     */
+    public BuildColumns merge(SortedMap<Integer, BuildRecord> changes, Set<Integer> removed) {
+        int mergedSize = size + changes.size();
+        for (Integer number : changes.keySet()) {
+            if (indexOf(number) >= 0) {
+                mergedSize--;
+            }
+        }
+        for (Integer number : removed) {
+            if (indexOf(number) >= 0 && !changes.containsKey(number)) {
+                mergedSize--;
+            }
+        }
+
+        final BuildColumns merged = allocate(mergedSize, offHeap);
+        final Iterator<Map.Entry<Integer, BuildRecord>> changed = changes.entrySet().iterator();
+        Map.Entry<Integer, BuildRecord> change = changed.hasNext() ? changed.next() : null;
+        int target = 0;
+        for (int index = 0; index < size; index++) {
+            final int number = numbers.get(index);
+            while (change != null && change.getKey() < number) {
+                merged.set(target++, change.getValue());
+                change = changed.hasNext() ? changed.next() : null;
+            }
+            if (change != null && change.getKey() == number) {
+                merged.set(target++, change.getValue());
+                change = changed.hasNext() ? changed.next() : null;
+            } else if (!removed.contains(number)) {
+                merged.copy(target++, this, index);
+            }
+        }
+        while (change != null) {
+            merged.set(target++, change.getValue());
+            change = changed.hasNext() ? changed.next() : null;
+        }
+        return merged.checkOrder();
+    }
+
+    /**
+     * @param out stream to write the columns to
+     * @throws IOException if the columns can not be written
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(numbers.get(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(timestamps.get(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(durations.get(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeByte(results.get(i));
+        }
+    }
+
+    /**
+     * @param in      stream to read the columns from, as written by {@link #writeTo(DataOutputStream)}
+     * @param offHeap if the columns should be kept outside of the Java heap
+     * @return the columns
+     * @throws IOException if the columns can not be read
+     */
+    public static BuildColumns readFrom(DataInputStream in, boolean offHeap) throws IOException {
+        final BuildColumns columns = allocate(in.readInt(), offHeap);
+        for (int i = 0; i < columns.size; i++) {
+            columns.numbers.put(i, in.readInt());
+        }
+        for (int i = 0; i < columns.size; i++) {
+            columns.timestamps.put(i, in.readLong());
+        }
+        for (int i = 0; i < columns.size; i++) {
+            columns.durations.put(i, in.readLong());
+        }
+        for (int i = 0; i < columns.size; i++) {
+            final byte code = in.readByte();
+            if (code < RUNNING || code > RESULT_CODES.length) {
+                throw new IOException("Unknown result code " + code);
+            }
+            columns.results.put(i, code);
+        }
+        return columns.checkOrder();
+    }
+
+    private void set(int index, BuildRecord build) {
+        numbers.put(index, build.getNumber());
+        timestamps.put(index, build.getTimestamp());
+        durations.put(index, build.getDuration());
+        results.put(index, build.isBuilding() ? RUNNING : resultCode(build.getResult()));
+    }
+
+    private static byte resultCode(BuildResult result) {
+        if (result == null) {
+            return NO_RESULT;
+        }
+        for (int i = 0; i < RESULT_CODES.length; i++) {
+            if (RESULT_CODES[i] == result) {
+                return (byte) (i + 1);
+            }
+        }
+        throw new IllegalArgumentException("No code for build result " + result);
+    }
+
+    private void copy(int index, BuildColumns source, int sourceIndex) {
+        numbers.put(index, source.numbers.get(sourceIndex));
+        timestamps.put(index, source.timestamps.get(sourceIndex));
+        durations.put(index, source.durations.get(sourceIndex));
+        results.put(index, source.results.get(sourceIndex));
+    }
+
+    private BuildColumns checkOrder() {
+        for (int i = 1; i < size; i++) {
+            if (timestamps.get(i) < timestamps.get(i - 1)) {
+                timeOrdered = false;
+                break;
+            }
+        }
+        return this;
+    }
+}
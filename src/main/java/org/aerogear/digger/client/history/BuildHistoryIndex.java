@@ -0,0 +1,277 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.history;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.client.util.EncodingUtils;
+import com.offbytwo.jenkins.model.BaseModel;
+import org.aerogear.digger.client.model.BuildSummary;
+import org.aerogear.digger.client.util.TreeQuery;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Local copy of the build history of jobs, kept in a directory with one file per job.
+ * <p>
+ * A sync only fetches the builds that are newer than the highest build number seen before, and the builds
+ * that were still running at the previous sync. The builds are fetched newest first, a page at a time, with a
+ * <code>tree</code> query, so a sync of a job with a long history costs about one request. Builds discarded by
+ * Jenkins are kept in the index.
+ * <p>
+ * The histories that were read or synced stay in memory, in {@link BuildColumns} of about 21 bytes per build.
+ */
+public class BuildHistoryIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BuildHistoryIndex.class);
+
+    /**
+     * Default value of {@link #pageSize}
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final String BUILD_TREE = "number,building,result,duration,timestamp";
+    private static final String BUILDS_TREE = "allBuilds[" + BUILD_TREE + "]";
+    private static final int FORMAT_VERSION = 2;
+
+    private final File directory;
+
+    /**
+     * Number of builds fetched by a single request
+     */
+    private final int pageSize;
+
+    /**
+     * If the builds are kept outside of the Java heap
+     */
+    private final boolean offHeap;
+
+    private final ConcurrentMap<String, JobHistory> histories = new ConcurrentHashMap<String, JobHistory>();
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * @param directory directory to keep the index in. It is created if it does not exist.
+     */
+    public BuildHistoryIndex(File directory) {
+        this(directory, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param directory directory to keep the index in. It is created if it does not exist.
+     * @param pageSize  number of builds fetched by a single request
+     */
+    public BuildHistoryIndex(File directory, int pageSize) {
+        this(directory, pageSize, false);
+    }
+
+    /**
+     * @param directory directory to keep the index in. It is created if it does not exist.
+     * @param pageSize  number of builds fetched by a single request
+     * @param offHeap   if the builds should be kept outside of the Java heap, see {@link BuildColumns}
+     */
+    public BuildHistoryIndex(File directory, int pageSize, boolean offHeap) {
+        this.directory = directory;
+        this.pageSize = pageSize;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * @return the directory the index is kept in
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the history of a job as of the last sync, without talking to Jenkins.
+     *
+     * @param jobName name of the job
+     * @return the history. Empty if the job was never synced.
+     * @throws IOException if the index file of the job can not be read
+     */
+    public JobHistory get(String jobName) throws IOException {
+        final JobHistory cached = histories.get(jobName);
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (lock(jobName)) {
+            JobHistory history = histories.get(jobName);
+            if (history == null) {
+                history = load(jobName);
+                histories.put(jobName, history);
+            }
+            return history;
+        }
+    }
+
+    /**
+     * Fetch the new builds of a job and the builds that were running at the previous sync, and save them in the index.
+     *
+     * @param jenkinsHttpClient Jenkins HTTP client
+     * @param jobName           name of the job
+     * @return the history after the sync
+     * @throws IOException if connection problems occur during connecting to Jenkins, or if the index can not be written.
+     *                     The index is kept as it was then.
+     */
+    public JobHistory sync(JenkinsHttpClient jenkinsHttpClient, String jobName) throws IOException {
+        synchronized (lock(jobName)) {
+            final JobHistory previous = get(jobName);
+            final SortedMap<Integer, BuildRecord> changes = new TreeMap<Integer, BuildRecord>();
+            final Set<Integer> removed = new HashSet<Integer>();
+            final int highest = previous.getHighestBuildNumber();
+            final TreeSet<Integer> running = new TreeSet<Integer>();
+            for (BuildRecord build : previous.getRunningBuilds()) {
+                running.add(build.getNumber());
+            }
+            // once a build at or below this number is seen, all builds that need fetching are fetched
+            final int lowWater = running.isEmpty() ? highest : Math.min(highest, running.first());
+            final String jobPath = "/job/" + EncodingUtils.encode(jobName);
+
+            int fetched = 0;
+            int requests = 0;
+            for (int from = 0; ; from += pageSize) {
+                final String range = "{" + from + "," + (from + pageSize) + "}";
+                final List<BuildSummary> page = jenkinsHttpClient.get(TreeQuery.path(jobPath, BUILDS_TREE + range), JobBuilds.class).getAllBuilds();
+                requests++;
+                boolean reachedKnown = false;
+                for (BuildSummary build : page) {
+                    if (build.getNumber() > highest || running.remove(build.getNumber())) {
+                        changes.put(build.getNumber(), toRecord(build));
+                        fetched++;
+                    }
+                    reachedKnown |= build.getNumber() <= lowWater;
+                }
+                if (reachedKnown || page.size() < pageSize) {
+                    break;
+                }
+            }
+
+            // running builds that were not in the pages, probably deleted since
+            for (Integer number : running) {
+                requests++;
+                try {
+                    changes.put(number, toRecord(jenkinsHttpClient.get(TreeQuery.path(jobPath + "/" + number, BUILD_TREE), BuildSummary.class)));
+                    fetched++;
+                } catch (HttpResponseException e) {
+                    if (e.getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+                        throw e;
+                    }
+                    LOG.debug("Build {} #{} was deleted while it was running", jobName, number);
+                    removed.add(number);
+                }
+            }
+
+            final JobHistory history = new JobHistory(jobName, previous.getColumns().merge(changes, removed), System.currentTimeMillis());
+            save(history);
+            histories.put(jobName, history);
+            LOG.debug("Synced the history of job {} with {} requests, {} builds fetched", jobName, requests, fetched);
+            return history;
+        }
+    }
+
+    private Object lock(String jobName) {
+        final Object lock = new Object();
+        final Object existing = locks.putIfAbsent(jobName, lock);
+        return existing != null ? existing : lock;
+    }
+
+    private static BuildRecord toRecord(BuildSummary build) {
+        return new BuildRecord(build.getNumber(), build.isBuilding(), build.getResult(), build.getDuration(), build.getTimestamp());
+    }
+
+    private File file(String jobName) throws IOException {
+        return new File(directory, URLEncoder.encode(jobName, "UTF-8") + ".history");
+    }
+
+    private JobHistory load(String jobName) throws IOException {
+        final File file = file(jobName);
+        if (!file.exists()) {
+            return new JobHistory(jobName, offHeap ? BuildColumns.of(Collections.<BuildRecord>emptyList(), true) : BuildColumns.empty(), 0);
+        }
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            final int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unknown format version " + version + " of " + file);
+            }
+            in.readUTF();
+            final long lastSync = in.readLong();
+            return new JobHistory(jobName, BuildColumns.readFrom(in, offHeap), lastSync);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void save(JobHistory history) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory);
+        }
+        final File file = file(history.getJobName());
+        final File temp = new File(file.getPath() + ".tmp");
+        final FileOutputStream fileOut = new FileOutputStream(temp);
+        try {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(history.getJobName());
+            out.writeLong(history.getLastSync());
+            history.getColumns().writeTo(out);
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        // replace the old file only when the new one is complete
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException("Can not replace " + file);
+        }
+    }
+
+    /**
+     * A page of the builds of a job, with only the fields of {@link #BUILDS_TREE} fetched.
+     */
+    public static class JobBuilds extends BaseModel {
+        private List<BuildSummary> allBuilds = new ArrayList<BuildSummary>();
+
+        public List<BuildSummary> getAllBuilds() {
+            return allBuilds;
+        }
+
+        public void setAllBuilds(List<BuildSummary> allBuilds) {
+            this.allBuilds = allBuilds;
+        }
+    }
+}
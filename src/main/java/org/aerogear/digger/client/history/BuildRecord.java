@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.history;
+
+import com.offbytwo.jenkins.model.BuildResult;
+
+/**
+ * A build of a job, as kept in a {@link BuildHistoryIndex}.
+ */
+public class BuildRecord {
+
+    private final int number;
+    private final boolean building;
+    private final BuildResult result;
+    private final long duration;
+    private final long timestamp;
+
+    /**
+     * @param number    number of the build
+     * @param building  if the build was running when it was fetched
+     * @param result    result of the build. Null while it is running.
+     * @param duration  how long the build took, in milliseconds
+     * @param timestamp when the build started, in milliseconds since epoch
+     */
+    public BuildRecord(int number, boolean building, BuildResult result, long duration, long timestamp) {
+        this.number = number;
+        this.building = building;
+        this.result = result;
+        this.duration = duration;
+        this.timestamp = timestamp;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * @return if the build was running when it was fetched. Running builds are fetched again by the next sync.
+     */
+    public boolean isBuilding() {
+        return building;
+    }
+
+    /**
+     * @return result of the build. Null while it is running.
+     */
+    public BuildResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return how long the build took, in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return when the build started, in milliseconds since epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "BuildRecord{" +
+            "number=" + number +
+            ", building=" + building +
+            ", result=" + result +
+            ", duration=" + duration +
+            '}';
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.history;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The known builds of a job, including the builds Jenkins has already discarded.
+ * <p>
+ * The builds are kept in {@link BuildColumns}. The lists returned here are views that create the build objects
+ * when they are read, so reports that go over long histories should read the columns instead.
+ */
+public class JobHistory {
+
+    private final String jobName;
+    private final BuildColumns columns;
+    private final long lastSync;
+
+    /**
+     * @param jobName  name of the job
+     * @param columns  the builds
+     * @param lastSync when the history was synced for the last time, in milliseconds since epoch. 0 if never.
+     */
+    public JobHistory(String jobName, BuildColumns columns, long lastSync) {
+        this.jobName = jobName;
+        this.columns = columns;
+        this.lastSync = lastSync;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    /**
+     * @return the builds in columns of primitives, ordered by number
+     */
+    public BuildColumns getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the builds, oldest first
+     */
+    public List<BuildRecord> getBuilds() {
+        return view(0, columns.size());
+    }
+
+    /**
+     * @param from start of the time range, in milliseconds since epoch. Inclusive.
+     * @param to   end of the time range, in milliseconds since epoch. Exclusive.
+     * @return the builds that started in the time range, oldest first
+     */
+    public List<BuildRecord> getBuilds(long from, long to) {
+        if (columns.isTimeOrdered()) {
+            final int start = columns.lowerBound(from);
+            return view(start, Math.max(start, columns.lowerBound(to)));
+        }
+        final List<BuildRecord> builds = new ArrayList<BuildRecord>();
+        for (int i = 0; i < columns.size(); i++) {
+            final long timestamp = columns.getTimestamp(i);
+            if (timestamp >= from && timestamp < to) {
+                builds.add(columns.get(i));
+            }
+        }
+        return builds;
+    }
+
+    /**
+     * @param number number of the build
+     * @return the build. Null if it is not known.
+     */
+    public BuildRecord getBuild(int number) {
+        final int index = columns.indexOf(number);
+        return index >= 0 ? columns.get(index) : null;
+    }
+
+    /**
+     * @return the highest build number seen. 0 if no build was seen.
+     */
+    public int getHighestBuildNumber() {
+        return columns.size() == 0 ? 0 : columns.getNumber(columns.size() - 1);
+    }
+
+    /**
+     * @return the builds that were running at the last sync
+     */
+    public List<BuildRecord> getRunningBuilds() {
+        final List<BuildRecord> running = new ArrayList<BuildRecord>();
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.isBuilding(i)) {
+                running.add(columns.get(i));
+            }
+        }
+        return running;
+    }
+
+    /**
+     * @return when the history was synced for the last time, in milliseconds since epoch. 0 if never.
+     */
+    public long getLastSync() {
+        return lastSync;
+    }
+
+    private List<BuildRecord> view(final int start, final int end) {
+        return new AbstractList<BuildRecord>() {
+            @Override
+            public BuildRecord get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+                }
+                return columns.get(start + index);
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+}
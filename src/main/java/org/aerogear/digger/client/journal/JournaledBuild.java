@@ -0,0 +1,100 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.journal;
+
+import com.offbytwo.jenkins.model.QueueReference;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A build the client is waiting for, as recorded in a {@link TriggerJournal}. It is either still in the queue,
+ * or started and awaited.
+ */
+public class JournaledBuild {
+
+    private final String jobName;
+    private final String queueItemUrl;
+    private final Map<String, String> params;
+    private final long triggeredAt;
+    private final int buildNumber;
+
+    /**
+     * @param jobName      name of the job
+     * @param queueItemUrl url of the queue item created by the trigger. Null for awaited builds.
+     * @param params       build parameters the build was triggered with. Empty for awaited builds.
+     * @param triggeredAt  when the build was triggered, or when the client started waiting for it to finish,
+     *                     in milliseconds since epoch
+     * @param buildNumber  number of the build. -1 if the build did not leave the queue yet.
+     */
+    public JournaledBuild(String jobName, String queueItemUrl, Map<String, String> params, long triggeredAt, int buildNumber) {
+        this.jobName = jobName;
+        this.queueItemUrl = queueItemUrl;
+        this.params = Collections.unmodifiableMap(params);
+        this.triggeredAt = triggeredAt;
+        this.buildNumber = buildNumber;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getQueueItemUrl() {
+        return queueItemUrl;
+    }
+
+    /**
+     * @return a new reference to the queue item of the build. Null for awaited builds.
+     */
+    public QueueReference getQueueReference() {
+        return queueItemUrl != null ? new QueueReference(queueItemUrl) : null;
+    }
+
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    /**
+     * @return when the build was triggered, or when the client started waiting for it to finish,
+     * in milliseconds since epoch
+     */
+    public long getTriggeredAt() {
+        return triggeredAt;
+    }
+
+    /**
+     * @return number of the build. -1 if the build did not leave the queue yet.
+     */
+    public int getBuildNumber() {
+        return buildNumber;
+    }
+
+    /**
+     * @return true if the build left the queue and is awaited
+     */
+    public boolean isStarted() {
+        return buildNumber >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "JournaledBuild{" +
+            "jobName='" + jobName + '\'' +
+            ", queueItemUrl='" + queueItemUrl + '\'' +
+            ", buildNumber=" + buildNumber +
+            '}';
+    }
+}
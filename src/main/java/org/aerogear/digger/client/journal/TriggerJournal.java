@@ -0,0 +1,381 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the builds a client is waiting for, kept in a memory-mapped file so the client can find
+ * them again after a restart.
+ * <p>
+ * A build is pending from when it is triggered until it leaves the queue, and from when the client starts waiting
+ * for it to finish until it is seen finishing. Pending builds are either still in the queue, with the url of their
+ * queue item, or awaited, with their build number.
+ * <p>
+ * Each state change is a record: the length and the CRC32 of the content, followed by the content. When the
+ * journal is opened, the records are replayed until the end of the file or the first incomplete record, which
+ * is what a crash in the middle of a write leaves behind. Records are written to the mapping without forcing
+ * them to the disk, so they survive a restart of the process but not necessarily a crash of the machine.
+ * <p>
+ * Records of finished builds are dropped by compacting the journal: the records of the builds that are still
+ * pending are written again from the start of the mapping, and the rest of the old records is cleared. The file
+ * stays mapped, so this also works where a mapped file can not be replaced, like on Windows. A crash of the process
+ * in the middle of a compaction can lose the pending builds that were not written again yet. Compaction happens on
+ * its own when the journal has grown to twice its size after the last compaction, and at least to
+ * {@link #DEFAULT_COMPACTION_THRESHOLD}.
+ */
+public class TriggerJournal implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TriggerJournal.class);
+
+    /**
+     * Size of the mapping of a new journal. The mapping is doubled when it is full.
+     */
+    public static final int DEFAULT_INITIAL_SIZE = 64 * 1024;
+
+    /**
+     * Size the journal can grow to before it is compacted for the first time.
+     */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 256 * 1024;
+
+    private static final byte TRIGGERED = 1;
+    private static final byte AWAITED = 2;
+    private static final byte FINISHED = 3;
+
+    private static final int HEADER_SIZE = 8;
+
+    private final File file;
+    private final Map<String, JournaledBuild> pending = new LinkedHashMap<String, JournaledBuild>();
+
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer buffer;
+    private long nextCompaction = DEFAULT_COMPACTION_THRESHOLD;
+
+    private TriggerJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Open the journal, creating it if it does not exist, and replay its records.
+     *
+     * @param file the journal file
+     * @return the journal
+     * @throws IOException if the file can not be read or mapped
+     */
+    public static TriggerJournal open(File file) throws IOException {
+        final TriggerJournal journal = new TriggerJournal(file);
+        journal.map();
+        journal.replay();
+        return journal;
+    }
+
+    /**
+     * @return the pending builds, in the order they were recorded
+     */
+    public synchronized List<JournaledBuild> getPendingBuilds() {
+        return Collections.unmodifiableList(new ArrayList<JournaledBuild>(pending.values()));
+    }
+
+    /**
+     * Record a build that is waiting in the queue. Nothing is recorded if the queue item is already in the journal,
+     * for example when the trigger was coalesced with an earlier one.
+     *
+     * @param jobName      name of the job
+     * @param queueItemUrl url of the queue item created by the trigger
+     * @param params       build parameters. Can be null.
+     * @throws IOException if the record can not be written
+     */
+    public synchronized void triggered(String jobName, String queueItemUrl, Map<String, String> params) throws IOException {
+        if (pending.containsKey(queueItemUrl)) {
+            return;
+        }
+        final Map<String, String> copy = params != null ? new HashMap<String, String>(params) : Collections.<String, String>emptyMap();
+        final JournaledBuild build = new JournaledBuild(jobName, queueItemUrl, copy, System.currentTimeMillis(), -1);
+        append(encodeTriggered(build));
+        pending.put(queueItemUrl, build);
+    }
+
+    /**
+     * Record that the client is waiting for a started build to finish. Nothing is recorded if the build is
+     * already awaited.
+     *
+     * @param jobName     name of the job
+     * @param buildNumber number of the build
+     * @throws IOException if the record can not be written
+     */
+    public synchronized void awaited(String jobName, int buildNumber) throws IOException {
+        final String key = awaitedKey(jobName, buildNumber);
+        if (pending.containsKey(key)) {
+            return;
+        }
+        final JournaledBuild build = new JournaledBuild(jobName, null, Collections.<String, String>emptyMap(), System.currentTimeMillis(), buildNumber);
+        append(encodeAwaited(build));
+        pending.put(key, build);
+    }
+
+    /**
+     * Record that a build left the queue, or that the client stopped waiting for it in the queue.
+     * The build is not pending anymore.
+     *
+     * @param queueItemUrl url of the queue item of the build
+     * @throws IOException if the record can not be written
+     */
+    public synchronized void finished(String queueItemUrl) throws IOException {
+        retire(queueItemUrl);
+    }
+
+    /**
+     * Record that an awaited build finished, or that the client stopped waiting for it.
+     * The build is not pending anymore.
+     *
+     * @param jobName     name of the job
+     * @param buildNumber number of the build
+     * @throws IOException if the record can not be written
+     */
+    public synchronized void finished(String jobName, int buildNumber) throws IOException {
+        retire(awaitedKey(jobName, buildNumber));
+    }
+
+    private void retire(String key) throws IOException {
+        if (!pending.containsKey(key)) {
+            return;
+        }
+        append(encodeFinished(key));
+        pending.remove(key);
+        if (buffer.position() >= nextCompaction) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrite the journal with only the records of the pending builds.
+     *
+     * @throws IOException if the records can not be encoded
+     */
+    public synchronized void compact() throws IOException {
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (JournaledBuild build : pending.values()) {
+            records.write(frame(build.isStarted() ? encodeAwaited(build) : encodeTriggered(build)));
+        }
+
+        // every pending build has a record of the same size in the journal, so the records fit before the old end
+        final int before = buffer.position();
+        buffer.position(0);
+        buffer.put(records.toByteArray());
+        for (int i = buffer.position(); i < before; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.force();
+        nextCompaction = Math.max(DEFAULT_COMPACTION_THRESHOLD, 2L * buffer.position());
+        LOG.debug("Compacted the trigger journal from {} to {} bytes", before, buffer.position());
+    }
+
+    /**
+     * @return number of bytes used by the records
+     */
+    public synchronized int size() {
+        return buffer.position();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            unmap();
+        }
+    }
+
+    private void map() throws IOException {
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        final long length = Math.max(DEFAULT_INITIAL_SIZE, randomAccessFile.length());
+        buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+    }
+
+    private void unmap() throws IOException {
+        // the mapping itself is released when the buffer is garbage collected
+        buffer = null;
+        randomAccessFile.close();
+    }
+
+    private void replay() throws IOException {
+        pending.clear();
+        buffer.position(0);
+        while (buffer.remaining() >= HEADER_SIZE) {
+            final int start = buffer.position();
+            final int length = buffer.getInt();
+            final int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            final byte[] content = new byte[length];
+            buffer.get(content);
+            if (checksum != checksum(content)) {
+                LOG.warn("Trigger journal {} has an incomplete record at {}, dropping the rest of it", file, start);
+                buffer.position(start);
+                clearFrom(start);
+                break;
+            }
+            apply(content);
+        }
+        nextCompaction = Math.max(DEFAULT_COMPACTION_THRESHOLD, 2L * buffer.position());
+        LOG.debug("Replayed the trigger journal {}, {} builds are pending", file, pending.size());
+    }
+
+    private void apply(byte[] content) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        final byte type = in.readByte();
+        final long time = in.readLong();
+        final String key = in.readUTF();
+        if (type == TRIGGERED) {
+            final String jobName = in.readUTF();
+            final int paramCount = in.readInt();
+            final Map<String, String> params = new HashMap<String, String>();
+            for (int i = 0; i < paramCount; i++) {
+                params.put(readNullableUTF(in), readNullableUTF(in));
+            }
+            pending.put(key, new JournaledBuild(jobName, key, params, time, -1));
+        } else if (type == AWAITED) {
+            final String jobName = in.readUTF();
+            pending.put(key, new JournaledBuild(jobName, null, Collections.<String, String>emptyMap(), time, in.readInt()));
+        } else if (type == FINISHED) {
+            pending.remove(key);
+        }
+    }
+
+    private void clearFrom(int position) {
+        final int end = buffer.position();
+        for (int i = position; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.position(end);
+    }
+
+    private void append(byte[] content) throws IOException {
+        final byte[] record = frame(content);
+        if (buffer.remaining() < record.length + HEADER_SIZE) {
+            grow(record.length + HEADER_SIZE);
+        }
+        buffer.put(record);
+    }
+
+    private void grow(int needed) throws IOException {
+        final int position = buffer.position();
+        long length = buffer.capacity();
+        while (length - position < needed) {
+            length *= 2;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Trigger journal " + file + " is too large");
+        }
+        buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        buffer.position(position);
+    }
+
+    private static byte[] frame(byte[] content) {
+        final byte[] record = new byte[HEADER_SIZE + content.length];
+        writeInt(record, 0, content.length);
+        writeInt(record, 4, checksum(content));
+        System.arraycopy(content, 0, record, HEADER_SIZE, content.length);
+        return record;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int checksum(byte[] content) {
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encodeTriggered(JournaledBuild build) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = header(bytes, TRIGGERED, build.getTriggeredAt(), build.getQueueItemUrl());
+        out.writeUTF(build.getJobName());
+        out.writeInt(build.getParams().size());
+        for (Map.Entry<String, String> param : build.getParams().entrySet()) {
+            writeNullableUTF(out, param.getKey());
+            writeNullableUTF(out, param.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeAwaited(JournaledBuild build) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = header(bytes, AWAITED, build.getTriggeredAt(), awaitedKey(build.getJobName(), build.getBuildNumber()));
+        out.writeUTF(build.getJobName());
+        out.writeInt(build.getBuildNumber());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeFinished(String key) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        header(bytes, FINISHED, System.currentTimeMillis(), key).flush();
+        return bytes.toByteArray();
+    }
+
+    private static DataOutputStream header(ByteArrayOutputStream bytes, byte type, long time, String key) throws IOException {
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeLong(time);
+        out.writeUTF(key);
+        return out;
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Key of an awaited build in {@link #pending}. The queue items are keyed by their url, which never starts with a digit.
+     */
+    private static String awaitedKey(String jobName, int buildNumber) {
+        return buildNumber + "/" + jobName;
+    }
+}
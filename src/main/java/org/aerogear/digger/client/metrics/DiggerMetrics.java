@@ -0,0 +1,47 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.metrics;
+
+/**
+ * Receives the metrics of a {@link org.aerogear.digger.client.DiggerClient}, to pass them on to a metrics backend.
+ * <p>
+ * Methods are called on the threads that talk to Jenkins, so implementations must be thread safe and fast.
+ * Use {@link NoopDiggerMetrics} when metrics are not needed.
+ */
+public interface DiggerMetrics {
+
+    /**
+     * Record a request sent to Jenkins, or one that was rejected before it was sent.
+     * <p>
+     * A request is recorded when its response is fully read or closed, so the duration and the received bytes of
+     * log fetches and artifact downloads include reading the content.
+     *
+     * @param operation     what the request does
+     * @param durationNanos time from sending the request until the response was read, in nanoseconds
+     * @param bytesSent     bytes of the request content, 0 if unknown
+     * @param bytesReceived bytes of the response content
+     * @param outcome       how the request ended
+     */
+    void recordRequest(Operation operation, long durationNanos, long bytesSent, long bytesReceived, Outcome outcome);
+
+    /**
+     * Record the new value of a gauge.
+     *
+     * @param gauge the gauge
+     * @param value the new value
+     */
+    void recordGauge(Gauge gauge, long value);
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.metrics;
+
+/**
+ * Values that go up and down while the client works.
+ */
+public enum Gauge {
+    /**
+     * Builds that are waiting to leave the queue, see {@link org.aerogear.digger.client.DiggerClient#pollBuild}.
+     */
+    IN_FLIGHT_POLLS,
+
+    /**
+     * Log streams that are followed, see {@link org.aerogear.digger.client.DiggerClient#streamLogs}.
+     */
+    LOG_STREAMS,
+
+    /**
+     * Artifact downloads whose content is not fully read or closed yet.
+     */
+    ARTIFACT_STREAMS
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counter of things in progress, reported to {@link DiggerMetrics} every time it changes.
+ */
+public class InFlightGauge {
+
+    private final Gauge gauge;
+    private final DiggerMetrics metrics;
+    private final AtomicLong value = new AtomicLong();
+
+    public InFlightGauge(Gauge gauge, DiggerMetrics metrics) {
+        this.gauge = gauge;
+        this.metrics = metrics;
+    }
+
+    public void increment() {
+        metrics.recordGauge(gauge, value.incrementAndGet());
+    }
+
+    public void decrement() {
+        metrics.recordGauge(gauge, value.decrementAndGet());
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
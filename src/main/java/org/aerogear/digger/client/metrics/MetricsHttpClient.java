@@ -0,0 +1,183 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.metrics;
+
+import org.aerogear.digger.client.util.DelegatingHttpClient;
+import org.aerogear.digger.client.util.RequestRejectedException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HTTP client that records every request in {@link DiggerMetrics}.
+ */
+public class MetricsHttpClient extends DelegatingHttpClient {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final DiggerMetrics metrics;
+    private final InFlightGauge artifactStreams;
+
+    public MetricsHttpClient(CloseableHttpClient delegate, DiggerMetrics metrics) {
+        super(delegate);
+        this.metrics = metrics;
+        this.artifactStreams = new InFlightGauge(Gauge.ARTIFACT_STREAMS, metrics);
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException {
+        final Operation operation = Operation.of(request.getRequestLine().getMethod(), request.getRequestLine().getUri());
+        final long bytesSent = bytesSent(request);
+        final long start = System.nanoTime();
+
+        final CloseableHttpResponse response;
+        try {
+            response = super.doExecute(target, request, context);
+        } catch (RequestRejectedException e) {
+            metrics.recordRequest(operation, System.nanoTime() - start, 0, 0, Outcome.REJECTED);
+            throw e;
+        } catch (IOException e) {
+            metrics.recordRequest(operation, System.nanoTime() - start, bytesSent, 0, Outcome.IO_ERROR);
+            throw e;
+        }
+
+        final Outcome outcome = Outcome.of(response.getStatusLine().getStatusCode());
+        final HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            metrics.recordRequest(operation, System.nanoTime() - start, bytesSent, 0, outcome);
+        } else {
+            response.setEntity(new MeteredEntity(entity, new Recorder(operation, start, bytesSent, outcome)));
+        }
+        return response;
+    }
+
+    private static long bytesSent(HttpRequest request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity != null) {
+                return Math.max(0, entity.getContentLength());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Records the request once, when the response content is read to the end or closed.
+     */
+    private class Recorder {
+        private final Operation operation;
+        private final long start;
+        private final long bytesSent;
+        private final Outcome outcome;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private long bytesReceived;
+
+        Recorder(Operation operation, long start, long bytesSent, Outcome outcome) {
+            this.operation = operation;
+            this.start = start;
+            this.bytesSent = bytesSent;
+            this.outcome = outcome;
+            if (operation == Operation.ARTIFACT_DOWNLOAD) {
+                artifactStreams.increment();
+            }
+        }
+
+        void received(int bytes) {
+            if (bytes > 0) {
+                bytesReceived += bytes;
+            }
+        }
+
+        void done() {
+            if (recorded.compareAndSet(false, true)) {
+                metrics.recordRequest(operation, System.nanoTime() - start, bytesSent, bytesReceived, outcome);
+                if (operation == Operation.ARTIFACT_DOWNLOAD) {
+                    artifactStreams.decrement();
+                }
+            }
+        }
+    }
+
+    private static class MeteredEntity extends HttpEntityWrapper {
+        private final Recorder recorder;
+
+        MeteredEntity(HttpEntity entity, Recorder recorder) {
+            super(entity);
+            this.recorder = recorder;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(super.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    final int read = super.read();
+                    if (read == -1) {
+                        recorder.done();
+                    } else {
+                        recorder.received(1);
+                    }
+                    return read;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    final int read = super.read(buffer, offset, length);
+                    if (read == -1) {
+                        recorder.done();
+                    } else {
+                        recorder.received(read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        recorder.done();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            final InputStream content = getContent();
+            try {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    outStream.write(buffer, 0, read);
+                }
+            } finally {
+                content.close();
+            }
+        }
+    }
+}
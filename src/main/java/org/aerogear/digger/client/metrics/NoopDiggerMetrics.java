@@ -0,0 +1,32 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.metrics;
+
+/**
+ * Metrics implementation that drops everything. Used when no metrics are configured.
+ */
+public class NoopDiggerMetrics implements DiggerMetrics {
+
+    public static final NoopDiggerMetrics INSTANCE = new NoopDiggerMetrics();
+
+    @Override
+    public void recordRequest(Operation operation, long durationNanos, long bytesSent, long bytesReceived, Outcome outcome) {
+    }
+
+    @Override
+    public void recordGauge(Gauge gauge, long value) {
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.metrics;
+
+import java.util.regex.Pattern;
+
+/**
+ * Kinds of requests the client sends to Jenkins. Requests are classified by their method and path.
+ */
+public enum Operation {
+    GET_JOB,
+    GET_JOB_CONFIG,
+    CREATE_JOB,
+    UPDATE_JOB,
+    DELETE_JOB,
+    TRIGGER,
+    QUEUE_POLL,
+    BUILD_DETAILS,
+    STOP_BUILD,
+    LOG,
+    ARTIFACT_DOWNLOAD,
+    CREDENTIALS,
+    CRUMB,
+    MASTER_LOAD,
+    OTHER;
+
+    private static final Pattern TRIGGER_PATH = Pattern.compile(".*/(build|buildWithParameters)/?$");
+    private static final Pattern BUILD_PATH = Pattern.compile(".*/job/[^/]+/(\\d+|last\\w*Build)(/.*)?$");
+    private static final Pattern STOP_PATH = Pattern.compile(".*/job/[^/]+/\\d+/stop/?$");
+
+    /**
+     * @param method HTTP method of the request
+     * @param uri    URI of the request, absolute or only the path, with or without a query
+     * @return the operation
+     */
+    public static Operation of(String method, String uri) {
+        final int queryStart = uri.indexOf('?');
+        final String path = queryStart >= 0 ? uri.substring(0, queryStart) : uri;
+
+        if (path.contains("/crumbIssuer")) {
+            return CRUMB;
+        } else if (path.contains("/credentials/") || path.contains("/credential-store/")) {
+            return CREDENTIALS;
+        } else if (path.contains("/artifact/")) {
+            return ARTIFACT_DOWNLOAD;
+        } else if (path.contains("/logText/") || path.contains("/consoleText")) {
+            return LOG;
+        } else if (path.contains("/queue/item/")) {
+            return QUEUE_POLL;
+        } else if (path.contains("/queue/api/") || path.contains("/computer/")) {
+            return MASTER_LOAD;
+        } else if (path.endsWith("/createItem")) {
+            return CREATE_JOB;
+        } else if (path.endsWith("/config.xml")) {
+            return "GET".equals(method) ? GET_JOB_CONFIG : UPDATE_JOB;
+        } else if (path.endsWith("/doDelete")) {
+            return DELETE_JOB;
+        } else if (TRIGGER_PATH.matcher(path).matches()) {
+            return TRIGGER;
+        } else if (STOP_PATH.matcher(path).matches()) {
+            return STOP_BUILD;
+        } else if (BUILD_PATH.matcher(path).matches()) {
+            return BUILD_DETAILS;
+        } else if (path.contains("/job/")) {
+            return GET_JOB;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.metrics;
+
+/**
+ * How a request to Jenkins ended.
+ */
+public enum Outcome {
+    /**
+     * Jenkins responded with a 1xx, 2xx or 3xx status.
+     */
+    SUCCESS,
+
+    /**
+     * Jenkins responded with a 4xx status.
+     */
+    CLIENT_ERROR,
+
+    /**
+     * Jenkins responded with a 5xx status.
+     */
+    SERVER_ERROR,
+
+    /**
+     * The request failed with an I/O error, like a timeout or a refused connection.
+     */
+    IO_ERROR,
+
+    /**
+     * The request was not sent, because of admission control or an open circuit breaker.
+     */
+    REJECTED;
+
+    /**
+     * @param statusCode status code of a response
+     * @return the outcome of the response
+     */
+    public static Outcome of(int statusCode) {
+        if (statusCode >= 500) {
+            return SERVER_ERROR;
+        } else if (statusCode >= 400) {
+            return CLIENT_ERROR;
+        }
+        return SUCCESS;
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Class to control how many requests the client sends to Jenkins.
+ * <p>
+ * Requests are split into pools, see {@link Pool}. Each pool has its own request rate and its own
+ * limit of concurrent requests, so heavy use of one pool doesn't slow down the others.
+ */
+public class AdmissionOptions {
+
+    /**
+     * Kinds of requests that are limited separately.
+     */
+    public enum Pool {
+        /**
+         * Everything that is not log streaming or artifact download: triggering builds, polling the queue, job calls etc.
+         */
+        CONTROL,
+
+        /**
+         * Fetching build logs.
+         */
+        LOG_STREAMING,
+
+        /**
+         * Downloading build artifacts.
+         */
+        ARTIFACTS
+    }
+
+    /**
+     * Limits of a single pool.
+     */
+    public static class PoolOptions {
+
+        /**
+         * Requests per second. 0 means unlimited.
+         */
+        private double requestsPerSecond;
+
+        /**
+         * How many requests can be sent at once after a quiet period, when the rate is limited.
+         */
+        private int burst;
+
+        /**
+         * Max number of requests in flight at the same time.
+         */
+        private int maxConcurrent;
+
+        /**
+         * How long (in milliseconds) a request can wait to be admitted before it is rejected.
+         */
+        private long maxWait;
+
+        public PoolOptions(double requestsPerSecond, int burst, int maxConcurrent, long maxWait) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = burst;
+            this.maxConcurrent = maxConcurrent;
+            this.maxWait = maxWait;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public long getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(long maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    private final Map<Pool, PoolOptions> pools = new EnumMap<Pool, PoolOptions>(Pool.class);
+
+    /**
+     * Create the options with the defaults. The rate is unlimited for all pools, up to 32 control requests,
+     * 16 log requests and 4 artifact downloads can be in flight, and a request waits up to 30 seconds to be admitted.
+     */
+    public AdmissionOptions() {
+        pools.put(Pool.CONTROL, new PoolOptions(0, 0, 32, 30 * 1000L));
+        pools.put(Pool.LOG_STREAMING, new PoolOptions(0, 0, 16, 30 * 1000L));
+        pools.put(Pool.ARTIFACTS, new PoolOptions(0, 0, 4, 30 * 1000L));
+    }
+
+    /**
+     * @param pool the pool
+     * @return the limits of the pool. They can be changed before the client is built.
+     */
+    public PoolOptions getPool(Pool pool) {
+        return pools.get(pool);
+    }
+
+    /**
+     * @param pool    the pool
+     * @param options the new limits of the pool
+     */
+    public void setPool(Pool pool, PoolOptions options) {
+        pools.put(pool, options);
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+/**
+ * Fields of a build that can be fetched on their own, see {@link BuildProjection}.
+ */
+public enum BuildField {
+    BUILDING("building"),
+    RESULT("result"),
+    DURATION("duration"),
+    ESTIMATED_DURATION("estimatedDuration"),
+    TIMESTAMP("timestamp"),
+    DISPLAY_NAME("displayName"),
+    DESCRIPTION("description"),
+    URL("url"),
+    BUILT_ON("builtOn"),
+
+    /**
+     * File names and paths of the artifacts, without the other details.
+     */
+    ARTIFACTS("artifacts[fileName,relativePath]");
+
+    private final String tree;
+
+    BuildField(String tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * @return the field in the syntax of the Jenkins <code>tree</code> parameter
+     */
+    public String getTree() {
+        return tree;
+    }
+}
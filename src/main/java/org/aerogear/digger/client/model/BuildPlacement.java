@@ -0,0 +1,55 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+/**
+ * Status of a build that was triggered on one of multiple Jenkins masters.
+ * <p>
+ * The master id is needed for the following calls about the build, like polling
+ * or fetching the logs, since the build only exists on that master.
+ **/
+public class BuildPlacement {
+
+    private final String masterId;
+    private final BuildTriggerStatus status;
+
+    public BuildPlacement(String masterId, BuildTriggerStatus status) {
+        this.masterId = masterId;
+        this.status = status;
+    }
+
+    /**
+     * @return id of the master the build was triggered on
+     */
+    public String getMasterId() {
+        return masterId;
+    }
+
+    /**
+     * @return status of the build
+     */
+    public BuildTriggerStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "BuildPlacement{" +
+            "masterId='" + masterId + '\'' +
+            ", status=" + status +
+            '}';
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+import com.offbytwo.jenkins.model.Artifact;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A build with only some of its fields fetched, see {@link BuildField}.
+ * <p>
+ * The fields that were not fetched have their default values. The build number is always fetched.
+ */
+public class BuildProjection extends BuildSummary {
+
+    private Set<BuildField> fields = EnumSet.noneOf(BuildField.class);
+    private String displayName;
+    private String description;
+    private String url;
+    private String builtOn;
+    private List<Artifact> artifacts = Collections.emptyList();
+
+    /**
+     * @return the fields that were fetched
+     */
+    public Set<BuildField> getFields() {
+        return fields;
+    }
+
+    public void setFields(Set<BuildField> fields) {
+        this.fields = fields;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * @return name of the node the build ran on. Empty for the master.
+     */
+    public String getBuiltOn() {
+        return builtOn;
+    }
+
+    public void setBuiltOn(String builtOn) {
+        this.builtOn = builtOn;
+    }
+
+    /**
+     * @return the artifacts, with only their file names and relative paths
+     */
+    public List<Artifact> getArtifacts() {
+        return artifacts;
+    }
+
+    public void setArtifacts(List<Artifact> artifacts) {
+        this.artifacts = artifacts;
+    }
+}
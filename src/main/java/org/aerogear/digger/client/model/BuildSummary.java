@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+import com.offbytwo.jenkins.model.BaseModel;
+import com.offbytwo.jenkins.model.BuildResult;
+
+/**
+ * The few fields of a build that tell whether it is finished, and how it ended.
+ * <p>
+ * Fetched with a <code>tree</code> query, so it is much cheaper than the full build details.
+ */
+public class BuildSummary extends BaseModel {
+
+    private int number;
+    private boolean building;
+    private BuildResult result;
+    private long duration;
+    private long estimatedDuration;
+    private long timestamp;
+
+    public int getNumber() {
+        return number;
+    }
+
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
+    public boolean isBuilding() {
+        return building;
+    }
+
+    public void setBuilding(boolean building) {
+        this.building = building;
+    }
+
+    /**
+     * @return the result of the build. Null while the build is running.
+     */
+    public BuildResult getResult() {
+        return result;
+    }
+
+    public void setResult(BuildResult result) {
+        this.result = result;
+    }
+
+    /**
+     * @return how long the build took, in milliseconds. 0 while the build is running.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @return how long Jenkins expects the build to take, in milliseconds, based on the previous builds. -1 if unknown.
+     */
+    public long getEstimatedDuration() {
+        return estimatedDuration;
+    }
+
+    public void setEstimatedDuration(long estimatedDuration) {
+        this.estimatedDuration = estimatedDuration;
+    }
+
+    /**
+     * @return when the build started, in milliseconds since epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return true if the build is finished and has a result
+     */
+    public boolean isCompleted() {
+        return !building && result != null;
+    }
+
+    /**
+     * @param now current time, in milliseconds since epoch
+     * @return estimated time left until the build finishes, in milliseconds. Negative if the build takes longer than estimated,
+     * or if there is no estimate.
+     */
+    public long getEstimatedRemaining(long now) {
+        if (estimatedDuration <= 0 || timestamp <= 0) {
+            return -1;
+        }
+        return timestamp + estimatedDuration - now;
+    }
+
+    @Override
+    public String toString() {
+        return "BuildSummary{" +
+            "number=" + number +
+            ", building=" + building +
+            ", result=" + result +
+            ", duration=" + duration +
+            '}';
+    }
+}
@@ -60,11 +60,34 @@ public class BuildTriggerStatus {
     private final State state;
     private final int buildNumber;
     private final QueueReference queueReference;
+    private final long queueWait;
+    private final QueueEstimate queueEstimate;
 
     public BuildTriggerStatus(State state, int buildNumber, QueueReference queueReference) {
+        this(state, buildNumber, queueReference, -1);
+    }
+
+    public BuildTriggerStatus(State state, int buildNumber, QueueReference queueReference, long queueWait) {
         this.state = state;
         this.buildNumber = buildNumber;
         this.queueReference = queueReference;
+        this.queueWait = queueWait;
+        this.queueEstimate = null;
+    }
+
+    /**
+     * Status of a build that is still in the queue.
+     *
+     * @param state          {@link State#TRIGGERED} or {@link State#TIMED_OUT}
+     * @param queueReference the queue item of the build
+     * @param queueEstimate  where the build is in the queue
+     */
+    public BuildTriggerStatus(State state, QueueReference queueReference, QueueEstimate queueEstimate) {
+        this.state = state;
+        this.buildNumber = -1;
+        this.queueReference = queueReference;
+        this.queueWait = -1;
+        this.queueEstimate = queueEstimate;
     }
 
     /**
@@ -88,11 +111,34 @@ public class BuildTriggerStatus {
         return queueReference;
     }
 
+    /**
+     * This should only be valid if the
+     * {@link #state} is {@link State#STARTED_BUILDING}.
+     *
+     * @return how many milliseconds the build waited in the queue before it started. Its resolution is the poll period.
+     * -1 if unknown.
+     */
+    public long getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * This is only set for builds that are still in the queue, when the queue was checked for them.
+     * See {@link org.aerogear.digger.client.DiggerClient#getQueueStatus(String, QueueReference)}.
+     *
+     * @return the position of the build in the queue and when it is expected to start. Null if unknown.
+     */
+    public QueueEstimate getQueueEstimate() {
+        return queueEstimate;
+    }
+
     @Override
     public String toString() {
         return "BuildStatus{" +
             "state=" + state +
             ", buildNumber=" + buildNumber +
+            ", queueWait=" + queueWait +
+            ", queueEstimate=" + queueEstimate +
             '}';
     }
 }
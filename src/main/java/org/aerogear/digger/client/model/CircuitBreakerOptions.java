@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Class to configure when the client stops sending requests to an unhealthy Jenkins master.
+ * <p>
+ * After {@link #failureThreshold} failed requests in a row the circuit opens and requests fail right away,
+ * without waiting for timeouts. After {@link #openDuration} a single trial request is let through; the circuit
+ * closes again if it succeeds, or stays open for another period if it fails.
+ */
+public class CircuitBreakerOptions {
+
+    /**
+     * Default value of {@link #failureThreshold}
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * Default value of {@link #openDuration}
+     */
+    public static final long DEFAULT_OPEN_DURATION = 30 * 1000;
+
+    /**
+     * Number of failed requests in a row that opens the circuit.
+     */
+    private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+    /**
+     * How long (in milliseconds) the circuit stays open before a trial request is sent.
+     */
+    private long openDuration = DEFAULT_OPEN_DURATION;
+
+    /**
+     * Response status codes that count as failures, besides I/O errors. Other responses, including client errors
+     * like 404, show that Jenkins is healthy.
+     */
+    private Set<Integer> failureStatusCodes = new HashSet<Integer>(Arrays.asList(502, 503, 504));
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public Set<Integer> getFailureStatusCodes() {
+        return failureStatusCodes;
+    }
+
+    public void setFailureStatusCodes(Set<Integer> failureStatusCodes) {
+        this.failureStatusCodes = failureStatusCodes;
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+/**
+ * Class to control the HTTP connections the client makes to Jenkins.
+ * <p>
+ * Connections are pooled and kept alive between requests. The defaults allow many
+ * concurrent requests to a single Jenkins master.
+ * <p>
+ * All durations are in milliseconds.
+ */
+public class HttpTransportOptions {
+
+    /**
+     * Max number of pooled connections. Default to 64.
+     */
+    private int maxConnections = 64;
+
+    /**
+     * Max number of pooled connections to a single host. Default to 64.
+     */
+    private int maxConnectionsPerRoute = 64;
+
+    /**
+     * Timeout for establishing a connection. Default to 10 seconds.
+     */
+    private int connectTimeout = 10 * 1000;
+
+    /**
+     * Timeout for waiting data on an established connection. Default to 60 seconds.
+     */
+    private int socketTimeout = 60 * 1000;
+
+    /**
+     * Timeout for getting a connection from the pool. Default to 30 seconds.
+     */
+    private int connectionRequestTimeout = 30 * 1000;
+
+    /**
+     * How long a connection is kept alive when Jenkins doesn't tell it. Default to 30 seconds.
+     */
+    private long keepAlive = 30 * 1000L;
+
+    /**
+     * Connections idle for longer than this are closed. Default to 60 seconds.
+     */
+    private long maxIdleTime = 60 * 1000L;
+
+    /**
+     * Socket send buffer size in bytes. 0 uses the system default.
+     */
+    private int socketSendBufferSize = 0;
+
+    /**
+     * Socket receive buffer size in bytes. 0 uses the system default.
+     */
+    private int socketReceiveBufferSize = 0;
+
+    /**
+     * Whether Nagle's algorithm is disabled. Default to true.
+     */
+    private boolean tcpNoDelay = true;
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public void setSocketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public int getSocketSendBufferSize() {
+        return socketSendBufferSize;
+    }
+
+    public void setSocketSendBufferSize(int socketSendBufferSize) {
+        this.socketSendBufferSize = socketSendBufferSize;
+    }
+
+    public int getSocketReceiveBufferSize() {
+        return socketReceiveBufferSize;
+    }
+
+    public void setSocketReceiveBufferSize(int socketReceiveBufferSize) {
+        this.socketReceiveBufferSize = socketReceiveBufferSize;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk job creation or update.
+ * <p>
+ * Holds one {@link Result} per given {@link JobSpec}, in the same order as the specs.
+ * A failure of one job doesn't stop the others, so the report should be checked
+ * with {@link #isSuccessful()} or {@link #getFailed()}.
+ **/
+public class JobProvisioningReport {
+
+    /**
+     * Outcome of a single job.
+     */
+    public static class Result {
+        private final String jobName;
+        private final Throwable error;
+        private final long duration;
+
+        public Result(String jobName, Throwable error, long duration) {
+            this.jobName = jobName;
+            this.error = error;
+            this.duration = duration;
+        }
+
+        public String getJobName() {
+            return jobName;
+        }
+
+        /**
+         * @return true if the job was created or updated
+         */
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        /**
+         * @return the reason of the failure. Null if the job was successful.
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * @return how many milliseconds it took to create or update the job
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                "jobName='" + jobName + '\'' +
+                ", successful=" + isSuccessful() +
+                ", duration=" + duration +
+                '}';
+        }
+    }
+
+    private final List<Result> results;
+    private final long duration;
+
+    public JobProvisioningReport(List<Result> results, long duration) {
+        this.results = Collections.unmodifiableList(new ArrayList<Result>(results));
+        this.duration = duration;
+    }
+
+    /**
+     * @return the results of all jobs, in the order of the given specs
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the results of the jobs that failed
+     */
+    public List<Result> getFailed() {
+        final List<Result> failed = new ArrayList<Result>();
+        for (Result result : results) {
+            if (!result.isSuccessful()) {
+                failed.add(result);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return true if all jobs were created or updated
+     */
+    public boolean isSuccessful() {
+        return getFailed().isEmpty();
+    }
+
+    /**
+     * @return how many milliseconds the whole bulk operation took
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return "JobProvisioningReport{" +
+            "total=" + results.size() +
+            ", failed=" + getFailed().size() +
+            ", duration=" + duration +
+            '}';
+    }
+}
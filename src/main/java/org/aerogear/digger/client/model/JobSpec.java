@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+import com.offbytwo.jenkins.model.credentials.Credential;
+
+import java.util.List;
+
+/**
+ * Describes a single job for the bulk job creation and update calls.
+ * <p>
+ * Only the name, the git repository and the branch are mandatory. The other
+ * values are optional and have the same meaning as in the single job calls.
+ **/
+public class JobSpec {
+
+    private final String name;
+    private final String gitRepo;
+    private final String gitBranch;
+    private BuildDiscarder buildDiscarder;
+    private Credential gitRepoCredential;
+    private List<BuildParameter> buildParameters;
+
+    /**
+     * @param name      job name that can be used later to reference job
+     * @param gitRepo   git repository url
+     * @param gitBranch git repository branch
+     */
+    public JobSpec(String name, String gitRepo, String gitBranch) {
+        this.name = name;
+        this.gitRepo = gitRepo;
+        this.gitBranch = gitBranch;
+    }
+
+    /**
+     * @return Updated job spec
+     */
+    public JobSpec setBuildDiscarder(BuildDiscarder buildDiscarder) {
+        this.buildDiscarder = buildDiscarder;
+        return this;
+    }
+
+    /**
+     * @return Updated job spec
+     */
+    public JobSpec setGitRepoCredential(Credential gitRepoCredential) {
+        this.gitRepoCredential = gitRepoCredential;
+        return this;
+    }
+
+    /**
+     * @return Updated job spec
+     */
+    public JobSpec setBuildParameters(List<BuildParameter> buildParameters) {
+        this.buildParameters = buildParameters;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getGitRepo() {
+        return gitRepo;
+    }
+
+    public String getGitBranch() {
+        return gitBranch;
+    }
+
+    public BuildDiscarder getBuildDiscarder() {
+        return buildDiscarder;
+    }
+
+    public Credential getGitRepoCredential() {
+        return gitRepoCredential;
+    }
+
+    public List<BuildParameter> getBuildParameters() {
+        return buildParameters;
+    }
+}
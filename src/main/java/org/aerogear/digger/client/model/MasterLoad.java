@@ -0,0 +1,97 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+/**
+ * Snapshot of how busy a Jenkins master is.
+ * <p>
+ * Masters are compared by the number of builds that would still wait after all idle
+ * executors are taken, which is the queue length minus the idle executors. The master
+ * with the lowest value is the least loaded. Ties are broken by the number of idle executors.
+ **/
+public class MasterLoad implements Comparable<MasterLoad> {
+
+    private final int queueLength;
+    private final int busyExecutors;
+    private final int totalExecutors;
+    private final long timestamp;
+
+    public MasterLoad(int queueLength, int busyExecutors, int totalExecutors, long timestamp) {
+        this.queueLength = queueLength;
+        this.busyExecutors = busyExecutors;
+        this.totalExecutors = totalExecutors;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return number of items in the build queue
+     */
+    public int getQueueLength() {
+        return queueLength;
+    }
+
+    public int getBusyExecutors() {
+        return busyExecutors;
+    }
+
+    public int getTotalExecutors() {
+        return totalExecutors;
+    }
+
+    public int getIdleExecutors() {
+        return Math.max(0, totalExecutors - busyExecutors);
+    }
+
+    /**
+     * @return when the snapshot was taken, in milliseconds since epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the number of builds that would wait for an executor. Negative if there are more idle executors than queued builds.
+     */
+    public int getBacklog() {
+        return queueLength - getIdleExecutors();
+    }
+
+    /**
+     * @param queued number of builds that were queued since the snapshot was taken
+     * @return a copy of this snapshot with a longer queue
+     */
+    public MasterLoad withQueued(int queued) {
+        return new MasterLoad(queueLength + queued, busyExecutors, totalExecutors, timestamp);
+    }
+
+    @Override
+    public int compareTo(MasterLoad other) {
+        if (getBacklog() != other.getBacklog()) {
+            return getBacklog() < other.getBacklog() ? -1 : 1;
+        }
+        return other.getIdleExecutors() < getIdleExecutors() ? -1 : (other.getIdleExecutors() == getIdleExecutors() ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return "MasterLoad{" +
+            "queueLength=" + queueLength +
+            ", busyExecutors=" + busyExecutors +
+            ", totalExecutors=" + totalExecutors +
+            ", timestamp=" + timestamp +
+            '}';
+    }
+}
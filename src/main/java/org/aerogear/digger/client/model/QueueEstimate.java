@@ -0,0 +1,84 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+/**
+ * Where a queued build is in the Jenkins queue, and when it is expected to start.
+ * <p>
+ * The estimate assumes that the queue is served in order by all executors of the master, and that the builds
+ * ahead take as long as the builds recorded for the master did. Jenkins doesn't always serve the queue in order, for example when
+ * builds are restricted to some agents, so the estimate is a hint for choosing a timeout, not a promise.
+ **/
+public class QueueEstimate {
+
+    private final int position;
+    private final String why;
+    private final MasterLoad masterLoad;
+    private final long estimatedStart;
+
+    public QueueEstimate(int position, String why, MasterLoad masterLoad, long estimatedStart) {
+        this.position = position;
+        this.why = why;
+        this.masterLoad = masterLoad;
+        this.estimatedStart = estimatedStart;
+    }
+
+    /**
+     * @return number of builds that were queued before this one and are still waiting. -1 if unknown.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return why the build is still in the queue, as Jenkins tells it. Null if Jenkins didn't tell.
+     */
+    public String getWhy() {
+        return why;
+    }
+
+    /**
+     * @return the queue length and the executor usage of the master when the estimate was made
+     */
+    public MasterLoad getMasterLoad() {
+        return masterLoad;
+    }
+
+    /**
+     * @return when the build is expected to start, in milliseconds since epoch. -1 if it can not be estimated.
+     */
+    public long getEstimatedStart() {
+        return estimatedStart;
+    }
+
+    /**
+     * @param now current time in milliseconds since epoch
+     * @return how many more milliseconds the build is expected to wait. -1 if it can not be estimated.
+     */
+    public long getEstimatedWait(long now) {
+        return estimatedStart < 0 ? -1 : Math.max(0, estimatedStart - now);
+    }
+
+    @Override
+    public String toString() {
+        return "QueueEstimate{" +
+            "position=" + position +
+            ", why='" + why + '\'' +
+            ", masterLoad=" + masterLoad +
+            ", estimatedStart=" + estimatedStart +
+            '}';
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Class to configure how idempotent requests (GET, HEAD, OPTIONS) are retried when Jenkins fails transiently.
+ * <p>
+ * A request is retried when it fails with an I/O error or Jenkins responds with one of the {@link #retryStatusCodes}.
+ * Before each retry the client waits a random time between half and the full backoff. The backoff starts at
+ * {@link #initialBackoff} and is multiplied by {@link #multiplier} after each retry, up to {@link #maxBackoff}.
+ */
+public class RetryOptions {
+
+    /**
+     * Default value of {@link #maxAttempts}
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * Default value of {@link #initialBackoff}
+     */
+    public static final long DEFAULT_INITIAL_BACKOFF = 200;
+
+    /**
+     * Default value of {@link #maxBackoff}
+     */
+    public static final long DEFAULT_MAX_BACKOFF = 5 * 1000;
+
+    /**
+     * Default value of {@link #multiplier}
+     */
+    public static final double DEFAULT_MULTIPLIER = 2;
+
+    /**
+     * Max number of times a request is sent, including the first one. 1 means no retries.
+     */
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    /**
+     * Backoff (in milliseconds) before the first retry.
+     */
+    private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+
+    /**
+     * Max backoff (in milliseconds) between two attempts.
+     */
+    private long maxBackoff = DEFAULT_MAX_BACKOFF;
+
+    /**
+     * How much the backoff grows after each retry.
+     */
+    private double multiplier = DEFAULT_MULTIPLIER;
+
+    /**
+     * Response status codes that are retried. Bad gateway, service unavailable and gateway timeout by default.
+     */
+    private Set<Integer> retryStatusCodes = new HashSet<Integer>(Arrays.asList(502, 503, 504));
+
+    /**
+     * @return options that never retry
+     */
+    public static RetryOptions noRetries() {
+        final RetryOptions options = new RetryOptions();
+        options.setMaxAttempts(1);
+        return options;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(long initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public void setMultiplier(double multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    public Set<Integer> getRetryStatusCodes() {
+        return retryStatusCodes;
+    }
+
+    public void setRetryStatusCodes(Set<Integer> retryStatusCodes) {
+        this.retryStatusCodes = retryStatusCodes;
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.notification;
+
+import com.offbytwo.jenkins.model.BuildResult;
+
+/**
+ * Something that happened to a build, as told by Jenkins with a notification.
+ * <p>
+ * The events are hints: nothing is trusted from them but the job name, and the state of the build is fetched from
+ * Jenkins when an event arrives.
+ */
+public class BuildEvent {
+
+    public enum Phase {
+        /**
+         * The build is put in the queue.
+         */
+        QUEUED,
+
+        /**
+         * The build left the queue and started building.
+         */
+        STARTED,
+
+        /**
+         * The build finished and has a result. Its log may still be written.
+         */
+        COMPLETED,
+
+        /**
+         * The build is finished, including its log.
+         */
+        FINALIZED
+    }
+
+    private final String jobName;
+    private final int buildNumber;
+    private final long queueId;
+    private final Phase phase;
+    private final BuildResult result;
+    private final long receivedAt;
+
+    public BuildEvent(String jobName, int buildNumber, long queueId, Phase phase, BuildResult result, long receivedAt) {
+        this.jobName = jobName;
+        this.buildNumber = buildNumber;
+        this.queueId = queueId;
+        this.phase = phase;
+        this.result = result;
+        this.receivedAt = receivedAt;
+    }
+
+    /**
+     * @return name of the job
+     */
+    public String getJobName() {
+        return jobName;
+    }
+
+    /**
+     * @return number of the build. 0 if the build is queued and has no number yet.
+     */
+    public int getBuildNumber() {
+        return buildNumber;
+    }
+
+    /**
+     * @return id of the queue item of the build. -1 if Jenkins didn't tell.
+     */
+    public long getQueueId() {
+        return queueId;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return result of a completed build. Null if the build is not completed or the result is not known.
+     */
+    public BuildResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return when the notification was received, in milliseconds since epoch
+     */
+    public long getReceivedAt() {
+        return receivedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "BuildEvent{" +
+            "jobName='" + jobName + '\'' +
+            ", buildNumber=" + buildNumber +
+            ", queueId=" + queueId +
+            ", phase=" + phase +
+            ", result=" + result +
+            '}';
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.notification;
+
+/**
+ * Listener of the build notifications received by a {@link BuildNotificationReceiver}.
+ * <p>
+ * Listeners are called one event at a time, in the order the notifications arrived, on the thread of the receiver.
+ * They should return quickly, since the next notifications wait for them.
+ */
+public interface BuildEventListener {
+
+    /**
+     * @param event what happened to the build
+     */
+    void onEvent(BuildEvent event);
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.offbytwo.jenkins.model.BuildResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.aerogear.digger.client.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small HTTP server that receives the build notifications Jenkins sends with the Notification plugin, so builds
+ * are seen starting and finishing without polling for them.
+ * <p>
+ * Jenkins jobs are configured to POST JSON notifications to the URL of the receiver:
+ * <pre>
+ * {"name": "app", "build": {"number": 7, "queue_id": 42, "phase": "COMPLETED", "status": "SUCCESS"}}
+ * </pre>
+ * Every notification is passed to the listeners as a {@link BuildEvent}. A
+ * {@link org.aerogear.digger.client.DiggerClient} built with the receiver checks the builds of the job right away,
+ * so its polls can be made much less frequent and only serve as a safety net for lost notifications.
+ * <p>
+ * Notifications are not authenticated. The client only uses them as hints to check a build sooner, so a forged
+ * notification costs a request, but listeners added directly must not trust them either.
+ */
+public class BuildNotificationReceiver implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BuildNotificationReceiver.class);
+
+    /**
+     * Default path the notifications are received at.
+     */
+    public static final String DEFAULT_PATH = "/digger/notifications";
+
+    /**
+     * Largest notification that is accepted, in bytes. Notifications can carry some lines of the build log.
+     */
+    static final int MAX_NOTIFICATION_SIZE = 1024 * 1024;
+
+    private final InetSocketAddress address;
+    private final String path;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<BuildEventListener> listeners = new CopyOnWriteArrayList<BuildEventListener>();
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param address address to listen on. Use port 0 to listen on a free port.
+     */
+    public BuildNotificationReceiver(InetSocketAddress address) {
+        this(address, DEFAULT_PATH);
+    }
+
+    /**
+     * @param address address to listen on. Use port 0 to listen on a free port.
+     * @param path    path the notifications are received at
+     */
+    public BuildNotificationReceiver(InetSocketAddress address, String path) {
+        this.address = address;
+        this.path = path;
+    }
+
+    /**
+     * Start listening. Notifications are handled one at a time on a single thread.
+     *
+     * @throws IOException if the address can not be bound
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(address, 0);
+        executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("digger-notifications"));
+        server.setExecutor(executor);
+        server.createContext(path, new NotificationHandler());
+        server.start();
+        LOG.debug("Receiving build notifications at {}{}", server.getAddress(), path);
+    }
+
+    /**
+     * @return the address the receiver listens on, with the actual port. Null if it is not started.
+     */
+    public synchronized InetSocketAddress getAddress() {
+        return server != null ? server.getAddress() : null;
+    }
+
+    /**
+     * @return path the notifications are received at
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public void addListener(BuildEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BuildEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return number of notifications received and passed to the listeners
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * @return number of requests that were not build notifications
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Stop listening. Notifications that are being handled are dropped.
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * Read a notification of the Notification plugin.
+     *
+     * @param body       JSON body of the notification
+     * @param receivedAt when it was received
+     * @return the event
+     * @throws IOException if the body is not a build notification
+     */
+    BuildEvent parse(byte[] body, long receivedAt) throws IOException {
+        final Object root = mapper.readValue(body, Object.class);
+        final Object name = root instanceof Map ? ((Map<?, ?>) root).get("name") : null;
+        final Object build = root instanceof Map ? ((Map<?, ?>) root).get("build") : null;
+        if (!(name instanceof String) || !(build instanceof Map)) {
+            throw new IOException("Not a build notification");
+        }
+        final Map<?, ?> fields = (Map<?, ?>) build;
+        final BuildEvent.Phase phase;
+        try {
+            phase = BuildEvent.Phase.valueOf(String.valueOf(fields.get("phase")));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown build phase: " + fields.get("phase"));
+        }
+        final Object number = fields.get("number");
+        final Object queueId = fields.get("queue_id");
+        return new BuildEvent((String) name,
+            number instanceof Number ? ((Number) number).intValue() : 0,
+            queueId instanceof Number ? ((Number) queueId).longValue() : -1,
+            phase,
+            resultOf(fields.get("status")),
+            receivedAt);
+    }
+
+    private static BuildResult resultOf(Object status) {
+        if (!(status instanceof String)) {
+            return null;
+        }
+        try {
+            return BuildResult.valueOf((String) status);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void dispatch(BuildEvent event) {
+        for (BuildEventListener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                LOG.warn("Build event listener failed for {}", event, e);
+            }
+        }
+    }
+
+    private class NotificationHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    rejectedCount.incrementAndGet();
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                final BuildEvent event;
+                try {
+                    event = parse(readBody(exchange.getRequestBody()), System.currentTimeMillis());
+                } catch (IOException e) {
+                    LOG.debug("Rejected a notification", e);
+                    rejectedCount.incrementAndGet();
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                // Jenkins doesn't have to wait for the listeners
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                LOG.debug("Received {}", event);
+                receivedCount.incrementAndGet();
+                dispatch(event);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+            if (body.size() > MAX_NOTIFICATION_SIZE) {
+                throw new IOException("Notification is too large");
+            }
+        }
+        return body.toByteArray();
+    }
+}
@@ -16,19 +16,44 @@
 package org.aerogear.digger.client.services;
 
 import com.offbytwo.jenkins.JenkinsServer;
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.client.util.EncodingUtils;
 import com.offbytwo.jenkins.model.*;
 import org.aerogear.digger.client.DiggerClient;
+import org.aerogear.digger.client.model.BuildField;
+import org.aerogear.digger.client.model.BuildProjection;
+import org.aerogear.digger.client.model.BuildSummary;
 import org.aerogear.digger.client.model.BuildTriggerStatus;
 import org.aerogear.digger.client.model.LogStreamingOptions;
+import org.aerogear.digger.client.model.MasterLoad;
+import org.aerogear.digger.client.model.QueueEstimate;
+import org.aerogear.digger.client.stats.DurationHistogram;
 import org.aerogear.digger.client.util.DiggerClientException;
+import org.aerogear.digger.client.util.DiggerFuture;
+import org.aerogear.digger.client.util.TreeQuery;
 import org.apache.commons.collections4.MapUtils;
+import org.apache.http.client.HttpResponseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -48,17 +73,109 @@ public class BuildService {
      */
     public static final long DEFAULT_POLL_PERIOD = 2 * 1000L;
 
+    /**
+     * Longest time (in milliseconds) between two checks of a running build, see {@link #awaitCompletion(JenkinsHttpClient, ScheduledExecutorService, String, int)}
+     */
+    public static final long MAX_COMPLETION_POLL_PERIOD = 30 * 1000L;
+
+    /**
+     * Number of checks of a running build that can fail in a row before the wait fails,
+     * see {@link #awaitCompletion(JenkinsHttpClient, ScheduledExecutorService, String, int)}
+     */
+    public static final int MAX_COMPLETION_POLL_FAILURES = 5;
+
+    private static final String BUILD_SUMMARY_TREE = "number,building,result,duration,estimatedDuration,timestamp";
 
     private long firstCheckDelay;
     private long pollPeriod;
 
+    /**
+     * How long (in milliseconds) the same trigger is shared by later callers. 0 means triggers are not coalesced.
+     */
+    private long triggerCoalescingWindow;
+
+    private final ConcurrentMap<String, CoalescedTrigger> recentTriggers = new ConcurrentHashMap<String, CoalescedTrigger>();
+    private final AtomicLong coalescedTriggerCount = new AtomicLong();
+
+    /**
+     * Polls that are waiting for a build of a job, by job name. See {@link #wakeUp(String)}.
+     */
+    private final Map<String, List<Runnable>> wakeups = new HashMap<String, List<Runnable>>();
+
     /**
      * @param firstCheckDelay how long should we wait (in milliseconds) before we start checking the queue item status
      * @param pollPeriod      how long should we wait (in milliseconds) before checking the queue item status for next time
      */
     public BuildService(long firstCheckDelay, long pollPeriod) {
+        this(firstCheckDelay, pollPeriod, 0);
+    }
+
+    /**
+     * @param firstCheckDelay         how long should we wait (in milliseconds) before we start checking the queue item status
+     * @param pollPeriod              how long should we wait (in milliseconds) before checking the queue item status for next time
+     * @param triggerCoalescingWindow how long (in milliseconds) a build trigger is shared by the callers triggering
+     *                                the same job with the same parameters. 0 turns coalescing off.
+     *                                See {@link #triggerBuild(JenkinsServer, String, Map)}
+     */
+    public BuildService(long firstCheckDelay, long pollPeriod, long triggerCoalescingWindow) {
         this.firstCheckDelay = firstCheckDelay;
         this.pollPeriod = pollPeriod;
+        this.triggerCoalescingWindow = triggerCoalescingWindow;
+    }
+
+    /**
+     * @return number of triggers that were answered with the status of an earlier trigger, instead of queueing a new build
+     */
+    public long getCoalescedTriggerCount() {
+        return coalescedTriggerCount.get();
+    }
+
+    /**
+     * Check the builds of a job right away, instead of waiting for the next poll. Called when Jenkins tells that
+     * something happened to a build of the job, for example by a
+     * {@link org.aerogear.digger.client.notification.BuildNotificationReceiver}.
+     * <p>
+     * The polls in {@link #pollBuild(JenkinsServer, String, QueueReference, long, Map)} and
+     * {@link #awaitCompletion(JenkinsHttpClient, ScheduledExecutorService, String, int)} that wait for a build of
+     * the job check it again. The poll periods stay as a safety net for the notifications that are lost, so they
+     * can be much longer when notifications are received.
+     *
+     * @param jobName name of the job
+     * @return number of polls that were woken up
+     */
+    public int wakeUp(String jobName) {
+        final List<Runnable> toWake;
+        synchronized (wakeups) {
+            final List<Runnable> waiting = wakeups.get(jobName);
+            if (waiting == null) {
+                return 0;
+            }
+            toWake = new ArrayList<Runnable>(waiting);
+        }
+        for (Runnable wakeup : toWake) {
+            wakeup.run();
+        }
+        return toWake.size();
+    }
+
+    private void addWakeup(String jobName, Runnable wakeup) {
+        synchronized (wakeups) {
+            List<Runnable> waiting = wakeups.get(jobName);
+            if (waiting == null) {
+                waiting = new ArrayList<Runnable>();
+                wakeups.put(jobName, waiting);
+            }
+            waiting.add(wakeup);
+        }
+    }
+
+    private void removeWakeup(String jobName, Runnable wakeup) {
+        synchronized (wakeups) {
+            final List<Runnable> waiting = wakeups.get(jobName);
+            if (waiting != null && waiting.remove(wakeup) && waiting.isEmpty()) {
+                wakeups.remove(jobName);
+            }
+        }
     }
 
 
@@ -115,6 +232,12 @@ public class BuildService {
     }
 
     /**
+     * Trigger a build of the job.
+     * <p>
+     * If a trigger coalescing window is set, the job and the parameters are remembered for that long after the build
+     * is triggered. Callers triggering the same job with the same parameters in the meantime don't queue another build,
+     * they get the status of the first trigger, with the same queue reference. Callers arriving while the first
+     * trigger is still being sent wait for it. Failed triggers are not remembered.
      *
      * @param jenkinsServer Jenkins server client
      * @param jobName name of the job
@@ -124,6 +247,47 @@ public class BuildService {
      * @throws InterruptedException if a problem occurs during sleeping between checks
      */
     public BuildTriggerStatus triggerBuild(JenkinsServer jenkinsServer, String jobName, Map<String, String> params) throws IOException, InterruptedException {
+        if (triggerCoalescingWindow <= 0) {
+            return doTriggerBuild(jenkinsServer, jobName, params);
+        }
+
+        final String key = triggerKey(jobName, params);
+        while (true) {
+            final long now = System.currentTimeMillis();
+            final CoalescedTrigger existing = recentTriggers.get(key);
+            if (existing != null && existing.expiresAt > now) {
+                final BuildTriggerStatus status = existing.await();
+                LOG.debug("Coalesced trigger of job '{}' with the trigger of queue item {}", jobName, status.getQueueReference().getQueueItemUrlPart());
+                coalescedTriggerCount.incrementAndGet();
+                return status;
+            }
+
+            final CoalescedTrigger trigger = new CoalescedTrigger(now + triggerCoalescingWindow);
+            final boolean owner = existing == null ? recentTriggers.putIfAbsent(key, trigger) == null : recentTriggers.replace(key, existing, trigger);
+            if (!owner) {
+                // another caller started a trigger at the same time, share that one
+                continue;
+            }
+
+            removeExpiredTriggers(now);
+            try {
+                final BuildTriggerStatus status = doTriggerBuild(jenkinsServer, jobName, params);
+                trigger.complete(status);
+                return status;
+            } catch (IOException e) {
+                failTrigger(key, trigger, e);
+                throw e;
+            } catch (InterruptedException e) {
+                failTrigger(key, trigger, e);
+                throw e;
+            } catch (RuntimeException e) {
+                failTrigger(key, trigger, e);
+                throw e;
+            }
+        }
+    }
+
+    private BuildTriggerStatus doTriggerBuild(JenkinsServer jenkinsServer, String jobName, Map<String, String> params) throws IOException, InterruptedException {
         LOG.debug("Getting QueueReference for Job '{}'", jobName);
         QueueReference queueReference = null;
         JobWithDetails job = jenkinsServer.getJob(jobName);
@@ -142,6 +306,439 @@ public class BuildService {
         }
     }
 
+    private void failTrigger(String key, CoalescedTrigger trigger, Exception error) {
+        recentTriggers.remove(key, trigger);
+        trigger.fail(error);
+    }
+
+    private void removeExpiredTriggers(long now) {
+        for (Map.Entry<String, CoalescedTrigger> entry : recentTriggers.entrySet()) {
+            if (entry.getValue().expiresAt <= now) {
+                recentTriggers.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return a key that is the same for the same job and the same parameters, in any order
+     */
+    static String triggerKey(String jobName, Map<String, String> params) {
+        final StringBuilder key = new StringBuilder(jobName);
+        if (MapUtils.isNotEmpty(params)) {
+            for (Map.Entry<String, String> param : new TreeMap<String, String>(params).entrySet()) {
+                key.append('\u0000').append(param.getKey()).append('=').append(param.getValue());
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * A build trigger shared by the callers that trigger the same job with the same parameters.
+     */
+    private static class CoalescedTrigger {
+        private final long expiresAt;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile BuildTriggerStatus status;
+        private volatile Exception error;
+
+        CoalescedTrigger(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        void complete(BuildTriggerStatus status) {
+            this.status = status;
+            done.countDown();
+        }
+
+        void fail(Exception error) {
+            this.error = error;
+            done.countDown();
+        }
+
+        BuildTriggerStatus await() throws IOException, InterruptedException {
+            done.await();
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error != null) {
+                throw new IOException("Coalesced build trigger failed", error);
+            }
+            return status;
+        }
+    }
+
+    /**
+     * Fetch a snapshot of the build queue length and the executor usage of the master.
+     * <p>
+     * Only the needed fields are requested from Jenkins, so this is cheap enough to be called periodically.
+     *
+     * @param jenkinsHttpClient Jenkins HTTP client
+     * @return the load of the master
+     * @throws IOException if connection problems occur during connecting to Jenkins
+     */
+    public MasterLoad getMasterLoad(JenkinsHttpClient jenkinsHttpClient) throws IOException {
+        final QueueSummary queue = jenkinsHttpClient.get(TreeQuery.path("/queue", "items[id]"), QueueSummary.class);
+        final ExecutorSummary executors = jenkinsHttpClient.get(TreeQuery.path("/computer", "busyExecutors,totalExecutors"), ExecutorSummary.class);
+        return new MasterLoad(queue.getItems().size(), executors.getBusyExecutors(), executors.getTotalExecutors(), System.currentTimeMillis());
+    }
+
+    /**
+     * Check a triggered build once, and if it is still in the queue, find its position in the queue and estimate when
+     * it starts.
+     * <p>
+     * The build is expected to start right away if there are more idle executors than builds ahead of it. Otherwise
+     * the running builds are assumed to be half way through, and the builds ahead to take as long as the median of
+     * the given durations, run by all executors of the master. Blocked builds wait for something else than an
+     * executor, so their start is not estimated.
+     *
+     * @param jenkinsServer     Jenkins server client
+     * @param jenkinsHttpClient Jenkins HTTP client
+     * @param queueReference    the queue item of the build
+     * @param durations         durations of the builds of the master, of all jobs. Can be null, the start is not
+     *                          estimated then.
+     * @return the build status. The state is {@link BuildTriggerStatus.State#TRIGGERED} with a {@link QueueEstimate}
+     * if the build is still in the queue.
+     * @throws IOException if connection problems occur during connecting to Jenkins
+     */
+    public BuildTriggerStatus getQueueStatus(JenkinsServer jenkinsServer, JenkinsHttpClient jenkinsHttpClient, QueueReference queueReference, DurationHistogram durations) throws IOException {
+        final QueueItem queueItem = jenkinsServer.getQueueItem(queueReference);
+        if (queueItem == null) {
+            throw new IllegalStateException("Queue item cannot be null!");
+        } else if (queueItem.isCancelled()) {
+            return new BuildTriggerStatus(BuildTriggerStatus.State.CANCELLED_IN_QUEUE, -1, queueReference);
+        } else if (queueItem.isStuck()) {
+            return new BuildTriggerStatus(BuildTriggerStatus.State.STUCK_IN_QUEUE, -1, queueReference);
+        } else if (queueItem.getExecutable() != null) {
+            return new BuildTriggerStatus(BuildTriggerStatus.State.STARTED_BUILDING, queueItem.getExecutable().getNumber().intValue(), queueReference);
+        }
+
+        final QueueSummary queue = jenkinsHttpClient.get(TreeQuery.path("/queue", "items[id]"), QueueSummary.class);
+        final ExecutorSummary executors = jenkinsHttpClient.get(TreeQuery.path("/computer", "busyExecutors,totalExecutors"), ExecutorSummary.class);
+        final long now = System.currentTimeMillis();
+        final MasterLoad load = new MasterLoad(queue.getItems().size(), executors.getBusyExecutors(), executors.getTotalExecutors(), now);
+        final int position = queueItem.getId() != null ? queuePosition(queue, queueItem.getId()) : -1;
+        final long typicalDuration = durations != null ? durations.getPercentile(50) : -1;
+        final long estimatedStart = queueItem.isBlocked() ? -1 : estimateStart(position, load, typicalDuration, now);
+        LOG.debug("Build is at position {} in the queue, expected to start at {}: {}", position, estimatedStart, queueItem.getWhy());
+        return new BuildTriggerStatus(BuildTriggerStatus.State.TRIGGERED, queueReference,
+            new QueueEstimate(position, queueItem.getWhy(), load, estimatedStart));
+    }
+
+    /**
+     * Queue ids grow, so the items with lower ids were queued before.
+     */
+    static int queuePosition(QueueSummary queue, long id) {
+        int position = 0;
+        for (Map<String, Object> item : queue.getItems()) {
+            final Object itemId = item.get("id");
+            if (itemId instanceof Number && ((Number) itemId).longValue() < id) {
+                position++;
+            }
+        }
+        return position;
+    }
+
+    static long estimateStart(int position, MasterLoad load, long typicalDuration, long now) {
+        if (position < 0) {
+            return -1;
+        } else if (position < load.getIdleExecutors()) {
+            return now;
+        } else if (load.getTotalExecutors() == 0 || typicalDuration < 0) {
+            return -1;
+        }
+        final long waves = (position - load.getIdleExecutors()) / load.getTotalExecutors();
+        return now + typicalDuration / 2 + waves * typicalDuration;
+    }
+
+    /**
+     * Wait for a build to finish, in the background.
+     * <p>
+     * The build is checked on the given scheduler with a <code>tree</code> query that only fetches the state, the result
+     * and the durations of the build. The checks are spread by the estimated remaining time of the build: a build
+     * that is expected to run for 10 more minutes is checked every few minutes, and more often as it gets close
+     * to its estimated end. Checks are never more frequent than the poll period and never rarer than
+     * {@link #MAX_COMPLETION_POLL_PERIOD}. The build is also checked right away when the job is woken up with
+     * {@link #wakeUp(String)}.
+     * <p>
+     * A check that fails with an I/O error or a server error is tried again, waiting twice as long after each
+     * failure in a row, up to {@link #MAX_COMPLETION_POLL_PERIOD}. The future fails when
+     * {@link #MAX_COMPLETION_POLL_FAILURES} checks failed in a row, or right away if Jenkins answers with a client
+     * error, for example because the build does not exist. The checks stop if the future is cancelled.
+     *
+     * @param jenkinsHttpClient Jenkins HTTP client
+     * @param scheduler         scheduler to run the checks on
+     * @param jobName           name of the job
+     * @param buildNumber       number of the build
+     * @return future of the finished build
+     */
+    public DiggerFuture<BuildSummary> awaitCompletion(JenkinsHttpClient jenkinsHttpClient, ScheduledExecutorService scheduler, final String jobName, int buildNumber) {
+        final String path = TreeQuery.path(buildPath(jobName, buildNumber), BUILD_SUMMARY_TREE);
+        final DiggerFuture<BuildSummary> future = new DiggerFuture<BuildSummary>();
+        startPoll(jobName, new CompletionPoll(jenkinsHttpClient, scheduler, path, future));
+        return future;
+    }
+
+    /**
+     * Wait for a triggered build to leave the queue, in the background.
+     * <p>
+     * Like {@link #pollBuild(JenkinsServer, String, QueueReference, long, Map)}, but without blocking the caller:
+     * the queue item is checked on the given scheduler right away, then every poll period and when the job is woken
+     * up with {@link #wakeUp(String)}. Checks that fail are tried again until the timeout. The future fails with
+     * the {@link HttpResponseException} if Jenkins answers with a client error, for example because the queue item
+     * is gone, see {@link #isClientError(Throwable)}.
+     *
+     * @param jenkinsServer  Jenkins server client
+     * @param scheduler      scheduler to run the checks on
+     * @param jobName        name of the job
+     * @param queueReference the queue item of the build
+     * @param timeout        how many milliseconds to wait for the build to leave the queue
+     * @return future of the build status. Its state is {@link BuildTriggerStatus.State#TIMED_OUT} if the build did
+     * not leave the queue in time.
+     */
+    public DiggerFuture<BuildTriggerStatus> awaitStart(JenkinsServer jenkinsServer, ScheduledExecutorService scheduler, String jobName, QueueReference queueReference, long timeout) {
+        final DiggerFuture<BuildTriggerStatus> future = new DiggerFuture<BuildTriggerStatus>();
+        startPoll(jobName, new QueuePoll(jenkinsServer, scheduler, queueReference, timeout, future));
+        return future;
+    }
+
+    /**
+     * Fetch only the given fields of a build.
+     * <p>
+     * The full build details include the actions, change sets, culprits and artifacts of the build, which can be
+     * hundreds of kilobytes for pipeline builds. Only the given fields are requested from Jenkins here.
+     *
+     * @param jenkinsHttpClient Jenkins HTTP client
+     * @param jobName           name of the job
+     * @param buildNumber       number of the build
+     * @param fields            fields to fetch. The build number is always fetched.
+     * @return the build, with only the given fields set
+     * @throws IOException if connection problems occur during connecting to Jenkins
+     */
+    public BuildProjection getBuildProjection(JenkinsHttpClient jenkinsHttpClient, String jobName, int buildNumber, Collection<BuildField> fields) throws IOException {
+        final StringBuilder tree = new StringBuilder("number");
+        for (BuildField field : fields) {
+            tree.append(',').append(field.getTree());
+        }
+        final BuildProjection projection = jenkinsHttpClient.get(TreeQuery.path(buildPath(jobName, buildNumber), tree.toString()), BuildProjection.class);
+        final Set<BuildField> fetched = EnumSet.noneOf(BuildField.class);
+        fetched.addAll(fields);
+        projection.setFields(Collections.unmodifiableSet(fetched));
+        return projection;
+    }
+
+    private static String buildPath(String jobName, int buildNumber) {
+        return "/job/" + EncodingUtils.encode(jobName) + "/" + buildNumber;
+    }
+
+    /**
+     * @param summary   the running build
+     * @param now       current time, in milliseconds since epoch
+     * @param minDelay  shortest delay
+     * @return how long to wait before checking the build again, in milliseconds
+     */
+    static long nextCompletionPollDelay(BuildSummary summary, long now, long minDelay) {
+        final long remaining = summary.getEstimatedRemaining(now);
+        final long delay;
+        if (remaining > 0) {
+            delay = remaining / 2;
+        } else if (summary.getTimestamp() > 0) {
+            // running longer than estimated, or no estimate: check less often the longer the build runs
+            delay = (now - summary.getTimestamp()) / 10;
+        } else {
+            delay = minDelay;
+        }
+        return Math.min(MAX_COMPLETION_POLL_PERIOD, Math.max(minDelay, delay));
+    }
+
+    /**
+     * @param minDelay shortest delay
+     * @param failures number of checks that failed in a row, at least 1
+     * @return how long to wait before checking the build again after a failure, in milliseconds
+     */
+    static long completionRetryDelay(long minDelay, int failures) {
+        long delay = Math.max(1, minDelay);
+        for (int i = 1; i < failures && delay < MAX_COMPLETION_POLL_PERIOD; i++) {
+            delay *= 2;
+        }
+        return Math.min(MAX_COMPLETION_POLL_PERIOD, delay);
+    }
+
+    /**
+     * @param e error of a request to Jenkins
+     * @return true if Jenkins answered with a client error, for example because the build or the queue item does not
+     * exist. Sending the request again does not help.
+     */
+    public static boolean isClientError(Throwable e) {
+        return e instanceof HttpResponseException && ((HttpResponseException) e).getStatusCode() < 500;
+    }
+
+    /**
+     * Check that runs on a scheduler and schedules itself again until its future is done.
+     */
+    private abstract static class ScheduledPoll<T> implements Runnable {
+        final ScheduledExecutorService scheduler;
+        final DiggerFuture<T> future;
+
+        private ScheduledFuture<?> next;
+        private boolean woken;
+
+        ScheduledPoll(ScheduledExecutorService scheduler, DiggerFuture<T> future) {
+            this.scheduler = scheduler;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                check();
+            } catch (RuntimeException e) {
+                future.fail(e);
+            }
+        }
+
+        /**
+         * Check once, then complete the future or schedule the next check.
+         */
+        abstract void check();
+
+        synchronized void schedule(long delay) {
+            // woken up while checking, the check may have been too early to see the change
+            final long nextDelay = woken ? 0 : delay;
+            woken = false;
+            try {
+                next = scheduler.schedule(this, nextDelay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                future.fail(e);
+            }
+        }
+
+        synchronized void wakeUp() {
+            if (next != null && next.cancel(false)) {
+                schedule(0);
+            } else {
+                // running now, it is scheduled again when it is done
+                woken = true;
+            }
+        }
+    }
+
+    /**
+     * Run the first check of the poll right away. The poll is woken up with the job until its future is done.
+     */
+    private <T> void startPoll(final String jobName, final ScheduledPoll<T> poll) {
+        final Runnable wakeup = new Runnable() {
+            @Override
+            public void run() {
+                poll.wakeUp();
+            }
+        };
+        addWakeup(jobName, wakeup);
+        poll.future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                removeWakeup(jobName, wakeup);
+            }
+        });
+        poll.schedule(0);
+    }
+
+    /**
+     * Checks a build once and schedules itself again until the build is finished.
+     */
+    private class CompletionPoll extends ScheduledPoll<BuildSummary> {
+        private final JenkinsHttpClient jenkinsHttpClient;
+        private final String path;
+
+        // failed checks in a row, only used on the scheduler thread
+        private int failures;
+
+        CompletionPoll(JenkinsHttpClient jenkinsHttpClient, ScheduledExecutorService scheduler, String path, DiggerFuture<BuildSummary> future) {
+            super(scheduler, future);
+            this.jenkinsHttpClient = jenkinsHttpClient;
+            this.path = path;
+        }
+
+        @Override
+        void check() {
+            try {
+                final BuildSummary summary = jenkinsHttpClient.get(path, BuildSummary.class);
+                failures = 0;
+                if (summary.isCompleted()) {
+                    LOG.debug("Build is completed: {}", summary);
+                    future.complete(summary);
+                    return;
+                }
+                final long delay = nextCompletionPollDelay(summary, System.currentTimeMillis(), pollPeriod);
+                LOG.debug("Build {} is still running. Checking again in {} msecs", summary.getNumber(), delay);
+                schedule(delay);
+            } catch (IOException e) {
+                if (isClientError(e)) {
+                    LOG.debug("Unable to check the build at {}", path, e);
+                    future.fail(e);
+                } else {
+                    retry(e);
+                }
+            }
+        }
+
+        private void retry(IOException e) {
+            failures++;
+            if (failures >= MAX_COMPLETION_POLL_FAILURES) {
+                LOG.debug("Unable to check the build at {}. Giving up after {} failures", path, failures, e);
+                future.fail(e);
+                return;
+            }
+            final long delay = completionRetryDelay(pollPeriod, failures);
+            LOG.debug("Unable to check the build at {}. Checking again in {} msecs", path, delay, e);
+            schedule(delay);
+        }
+    }
+
+    /**
+     * Checks a queue item once and schedules itself again until the build leaves the queue or the timeout is reached.
+     */
+    private class QueuePoll extends ScheduledPoll<BuildTriggerStatus> {
+        private final JenkinsServer jenkinsServer;
+        private final QueueReference queueReference;
+        private final long pollStart;
+        private final long whenToTimeout;
+
+        QueuePoll(JenkinsServer jenkinsServer, ScheduledExecutorService scheduler, QueueReference queueReference, long timeout, DiggerFuture<BuildTriggerStatus> future) {
+            super(scheduler, future);
+            this.jenkinsServer = jenkinsServer;
+            this.queueReference = queueReference;
+            this.pollStart = System.currentTimeMillis();
+            this.whenToTimeout = pollStart + timeout;
+        }
+
+        @Override
+        void check() {
+            try {
+                final BuildTriggerStatus status = leftQueue(jenkinsServer.getQueueItem(queueReference), queueReference, pollStart);
+                if (status != null) {
+                    future.complete(status);
+                    return;
+                }
+            } catch (IOException e) {
+                if (isClientError(e)) {
+                    // Jenkins drops the queue items some minutes after they leave the queue, and on restarts
+                    LOG.debug("Queue item {} is gone", queueReference.getQueueItemUrlPart(), e);
+                    future.fail(e);
+                    return;
+                }
+                LOG.debug("Unable to check the queue item {}. Trying again until the timeout", queueReference.getQueueItemUrlPart(), e);
+            }
+            if (whenToTimeout > System.currentTimeMillis()) {
+                schedule(pollPeriod);
+            } else {
+                LOG.debug("Timeout period has exceeded. Returning TIMED_OUT.");
+                future.complete(new BuildTriggerStatus(BuildTriggerStatus.State.TIMED_OUT, -1, queueReference));
+            }
+        }
+    }
+
     /**
      * See the documentation in {@link DiggerClient#build(String, long, Map)}
      *
@@ -155,7 +752,8 @@ public class BuildService {
      * @see DiggerClient#build(String, long, Map)
      */
     public BuildTriggerStatus pollBuild(JenkinsServer jenkinsServer, String jobName, QueueReference queueReference, long timeout, Map<String, String> params) throws IOException, InterruptedException {
-        final long whenToTimeout = System.currentTimeMillis() + timeout;
+        final long pollStart = System.currentTimeMillis();
+        final long whenToTimeout = pollStart + timeout;
         LOG.debug("Going to build job with name: {}", jobName);
         LOG.debug("Going to timeout in {} msecs if build didn't start executing", timeout);
         LOG.debug("Build triggered; queue item reference: {}", queueReference.getQueueItemUrlPart());
@@ -164,51 +762,105 @@ public class BuildService {
         // do it until we have an executable.
         // we would have an executable when the build leaves queue and starts building.
 
-        LOG.debug("Going to sleep {} msecs", firstCheckDelay);
-        Thread.sleep(firstCheckDelay);
+        final Wakeup wakeup = new Wakeup();
+        addWakeup(jobName, wakeup);
+        try {
+            LOG.debug("Going to sleep {} msecs", firstCheckDelay);
+            wakeup.await(firstCheckDelay);
+            return pollQueueItem(jenkinsServer, queueReference, whenToTimeout, pollStart, wakeup);
+        } finally {
+            removeWakeup(jobName, wakeup);
+        }
+    }
 
-        QueueItem queueItem;
+    private BuildTriggerStatus pollQueueItem(JenkinsServer jenkinsServer, QueueReference queueReference, long whenToTimeout, long pollStart, Wakeup wakeup) throws IOException, InterruptedException {
         while (true) {
-            queueItem = jenkinsServer.getQueueItem(queueReference);
-            LOG.debug("Queue item : {}", queueItem);
-
-            if (queueItem == null) {
-                // this is probably an implementation problem we have here
-                LOG.debug("Queue item cannot be null!");
-                throw new IllegalStateException("Queue item cannot be null!");
+            final BuildTriggerStatus status = leftQueue(jenkinsServer.getQueueItem(queueReference), queueReference, pollStart);
+            if (status != null) {
+                return status;
+            }
+            // do not return -1 if blocked.
+            // we will wait until it is unblocked.
+            LOG.debug("Build did not start executing yet.");
+            if (whenToTimeout > System.currentTimeMillis()) {
+                LOG.debug("Timeout period has not exceeded yet. Sleeping for {} msecs", pollPeriod);
+                wakeup.await(pollPeriod);
+            } else {
+                LOG.debug("Timeout period has exceeded. Returning TIMED_OUT.");
+                return new BuildTriggerStatus(BuildTriggerStatus.State.TIMED_OUT, -1, queueReference);
             }
+        }
+    }
 
-            LOG.debug("Build item cancelled:{}, blocked:{}, buildable:{}, stuck:{}", queueItem.isCancelled(), queueItem.isBlocked(), queueItem.isBuildable(), queueItem.isStuck());
+    /**
+     * @param queueItem      the queue item of the build
+     * @param queueReference the queue reference
+     * @param pollStart      when the poll started, in milliseconds since epoch
+     * @return the status of the build if it left the queue, or null if it is still waiting
+     */
+    private static BuildTriggerStatus leftQueue(QueueItem queueItem, QueueReference queueReference, long pollStart) {
+        LOG.debug("Queue item : {}", queueItem);
 
-            if (queueItem.isCancelled()) {
-                LOG.debug("Queue item is cancelled. Returning CANCELLED_IN_QUEUE");
-                return new BuildTriggerStatus(BuildTriggerStatus.State.CANCELLED_IN_QUEUE, -1, queueReference);
-            } else if (queueItem.isStuck()) {
-                LOG.debug("Queue item is stuck. Returning STUCK_IN_QUEUE");
-                return new BuildTriggerStatus(BuildTriggerStatus.State.STUCK_IN_QUEUE, -1, queueReference);
-            }
+        if (queueItem == null) {
+            // this is probably an implementation problem we have here
+            LOG.debug("Queue item cannot be null!");
+            throw new IllegalStateException("Queue item cannot be null!");
+        }
 
-            // do not return -1 if blocked.
-            // we will wait until it is unblocked.
+        LOG.debug("Build item cancelled:{}, blocked:{}, buildable:{}, stuck:{}", queueItem.isCancelled(), queueItem.isBlocked(), queueItem.isBuildable(), queueItem.isStuck());
 
-            final Executable executable = queueItem.getExecutable();
+        if (queueItem.isCancelled()) {
+            LOG.debug("Queue item is cancelled. Returning CANCELLED_IN_QUEUE");
+            return new BuildTriggerStatus(BuildTriggerStatus.State.CANCELLED_IN_QUEUE, -1, queueReference);
+        } else if (queueItem.isStuck()) {
+            LOG.debug("Queue item is stuck. Returning STUCK_IN_QUEUE");
+            return new BuildTriggerStatus(BuildTriggerStatus.State.STUCK_IN_QUEUE, -1, queueReference);
+        }
 
-            if (executable != null) {
-                LOG.debug("Build has an executable. Returning build number: {}", executable.getNumber());
-                return new BuildTriggerStatus(BuildTriggerStatus.State.STARTED_BUILDING, executable.getNumber().intValue(), queueReference);
-            } else {
-                LOG.debug("Build did not start executing yet.");
-                if (whenToTimeout > System.currentTimeMillis()) {
-                    LOG.debug("Timeout period has not exceeded yet. Sleeping for {} msecs", pollPeriod);
-                    Thread.sleep(pollPeriod);
-                } else {
-                    LOG.debug("Timeout period has exceeded. Returning TIMED_OUT.");
-                    return new BuildTriggerStatus(BuildTriggerStatus.State.TIMED_OUT, -1, queueReference);
-                }
+        final Executable executable = queueItem.getExecutable();
+        if (executable == null) {
+            return null;
+        }
+        LOG.debug("Build has an executable. Returning build number: {}", executable.getNumber());
+        final long queueWait = queueWait(queueItem, pollStart, System.currentTimeMillis());
+        return new BuildTriggerStatus(BuildTriggerStatus.State.STARTED_BUILDING, executable.getNumber().intValue(), queueReference, queueWait);
+    }
+
+    /**
+     * Sleep of a poll, that ends early when the poll is woken up.
+     */
+    private static class Wakeup implements Runnable {
+        private boolean woken;
+
+        @Override
+        public synchronized void run() {
+            woken = true;
+            notifyAll();
+        }
+
+        synchronized void await(long timeout) throws InterruptedException {
+            final long end = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            while (!woken && remaining > 0) {
+                wait(remaining);
+                remaining = end - System.currentTimeMillis();
             }
+            woken = false;
         }
     }
-    
+
+    /**
+     * Time a build waited in the queue, seen when it has just started.
+     * <p>
+     * Measured from when Jenkins queued the build, so builds triggered long before they are polled are not
+     * undercounted. Falls back to the start of the poll if Jenkins didn't tell when, or if its clock is ahead.
+     */
+    static long queueWait(QueueItem queueItem, long pollStart, long now) {
+        final long inQueueSince = queueItem.getInQueueSince();
+        final long since = inQueueSince > 0 && inQueueSince <= now ? inQueueSince : pollStart;
+        return now - since;
+    }
+
     /**
      * See the documentation in {@link DiggerClient#build(String, long)}
      *
@@ -281,6 +933,45 @@ public class BuildService {
         return buildWithDetails;
     }
 
+    /**
+     * The items of the build queue, with only the ids fetched.
+     */
+    public static class QueueSummary extends BaseModel {
+        private List<Map<String, Object>> items = Collections.emptyList();
+
+        public List<Map<String, Object>> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Map<String, Object>> items) {
+            this.items = items;
+        }
+    }
+
+    /**
+     * The executor counts of all computers of the master.
+     */
+    public static class ExecutorSummary extends BaseModel {
+        private int busyExecutors;
+        private int totalExecutors;
+
+        public int getBusyExecutors() {
+            return busyExecutors;
+        }
+
+        public void setBusyExecutors(int busyExecutors) {
+            this.busyExecutors = busyExecutors;
+        }
+
+        public int getTotalExecutors() {
+            return totalExecutors;
+        }
+
+        public void setTotalExecutors(int totalExecutors) {
+            this.totalExecutors = totalExecutors;
+        }
+    }
+
     /**
      * Start streaming the logs of the given build.
      * See {@link DiggerClient#streamLogs(String, int, LogStreamingOptions)}
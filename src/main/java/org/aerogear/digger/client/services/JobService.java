@@ -20,14 +20,32 @@ import com.offbytwo.jenkins.model.JobWithDetails;
 import com.offbytwo.jenkins.model.credentials.Credential;
 import org.aerogear.digger.client.model.BuildDiscarder;
 import org.aerogear.digger.client.model.BuildParameter;
+import org.aerogear.digger.client.model.JobProvisioningReport;
+import org.aerogear.digger.client.model.JobSpec;
 import org.aerogear.digger.client.util.DiggerClientException;
+import org.aerogear.digger.client.util.JobTemplate;
+import org.aerogear.digger.client.util.NamedThreadFactory;
 import org.jtwig.JtwigModel;
-import org.jtwig.JtwigTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Create digger job on jenkins platform
@@ -42,18 +60,41 @@ public class JobService {
     private final static String STORE_BUILDS_TOTAL = "STORE_BUILDS_TOTAL";
     private final static String STORE_ARTIFACTS_DAYS = "STORE_ARTIFACTS_DAYS";
     private final static String STORE_ARTIFACTS_TOTAL = "STORE_ARTIFACTS_TOTAL";
-    private static final String JOB_TEMPLATE_PATH = "templates/job.xml";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
 
     private final Logger LOG = LoggerFactory.getLogger(JobService.class);
 
     private boolean crumbFlag = false;
 
+    private final JobTemplate jobTemplate;
+
     /**
-     * Constructor.
+     * Fingerprints of the credentials created by this service, by credential id.
+     */
+    private final ConcurrentMap<String, String> credentialFingerprints = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Fingerprints of the job configurations pushed by this service, by job name.
+     */
+    private final ConcurrentMap<String, String> configFingerprints = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Constructor. Jobs are rendered with the template shipped with the client.
      * @param crumbFlag Specify if CSRF Protection is enabled on the Jenkins server.
      */
     public JobService(boolean crumbFlag) {
+        this(crumbFlag, JobTemplate.defaultTemplate());
+    }
+
+    /**
+     * Constructor.
+     * @param crumbFlag Specify if CSRF Protection is enabled on the Jenkins server.
+     * @param jobTemplate the precompiled template used to render the jobs. See {@link JobTemplate}.
+     */
+    public JobService(boolean crumbFlag, JobTemplate jobTemplate) {
         this.crumbFlag = crumbFlag;
+        this.jobTemplate = jobTemplate;
     }
 
     /**
@@ -83,7 +124,9 @@ public class JobService {
      */
     public void create(JenkinsServer jenkinsServer, String name, String gitRepo, String gitBranch, BuildDiscarder buildDiscarder, Credential gitRepoCredential, List<BuildParameter> buildParameters) throws IOException, DiggerClientException {
         String jobTemplate = prepareJob(jenkinsServer, name, gitRepo, gitBranch, buildDiscarder, gitRepoCredential, buildParameters);
+        configFingerprints.remove(name);
         jenkinsServer.createJob(name, jobTemplate);
+        configFingerprints.put(name, fingerprint(jobTemplate));
     }
 
     /**
@@ -135,6 +178,10 @@ public class JobService {
     /**
      * Update digger job on jenkins platform.
      * NOTE: If gitRepoCredential is set in #create(JenkinsServer, String, String, String, List, Credential), it needs to be set in here as well. Otherwise it will be removed.
+     * <p>
+     * The new configuration is only pushed when it is different than the last one this service pushed for the job.
+     * Pushing an unchanged configuration would still make Jenkins save and reload the job.
+     * Configurations that are changed on Jenkins by someone else are not detected.
      *
      * @param jenkinsServer   Jenkins server client
      * @param name            job name that can be used later to reference job
@@ -146,7 +193,15 @@ public class JobService {
      */
     public void update(JenkinsServer jenkinsServer, String name, String gitRepo, String gitBranch, BuildDiscarder buildDiscarder, Credential gitRepoCredential, List<BuildParameter> buildParameters) throws DiggerClientException, IOException {
         String jobTemplate = prepareJob(jenkinsServer, name, gitRepo, gitBranch, buildDiscarder, gitRepoCredential, buildParameters);
+        final String fingerprint = fingerprint(jobTemplate);
+        if (fingerprint.equals(configFingerprints.get(name))) {
+            LOG.debug("Configuration of job {} is unchanged. Skipping the update.", name);
+            return;
+        }
+        // forget the old fingerprint first, a failed update might have been applied partially
+        configFingerprints.remove(name);
         jenkinsServer.updateJob(name, jobTemplate);
+        configFingerprints.put(name, fingerprint);
     }
 
     /**
@@ -164,6 +219,36 @@ public class JobService {
         this.update(jenkinsServer, name, gitRepo, gitBranch, buildDiscarder, null, null);
     }
 
+    /**
+     * Create many digger jobs on jenkins platform, running up to <code>concurrency</code> creations at the same time.
+     * <p>
+     * A failure of one job doesn't stop the others. The outcome of each job is reported in the returned report.
+     *
+     * @param jenkinsServer Jenkins server client
+     * @param specs         the jobs to create. See {@link JobSpec}
+     * @param concurrency   max number of jobs that are created at the same time
+     * @return the report with one result per given spec
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the jobs
+     */
+    public JobProvisioningReport createAll(JenkinsServer jenkinsServer, List<JobSpec> specs, int concurrency) throws InterruptedException {
+        return provisionAll(jenkinsServer, specs, concurrency, false);
+    }
+
+    /**
+     * Update many digger jobs on jenkins platform, running up to <code>concurrency</code> updates at the same time.
+     * <p>
+     * A failure of one job doesn't stop the others. The outcome of each job is reported in the returned report.
+     *
+     * @param jenkinsServer Jenkins server client
+     * @param specs         the jobs to update. See {@link JobSpec}
+     * @param concurrency   max number of jobs that are updated at the same time
+     * @return the report with one result per given spec
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the jobs
+     */
+    public JobProvisioningReport updateAll(JenkinsServer jenkinsServer, List<JobSpec> specs, int concurrency) throws InterruptedException {
+        return provisionAll(jenkinsServer, specs, concurrency, true);
+    }
+
     /**
      * Delete the job and associated credential.
      * @param jenkinsServer the Jenkins server
@@ -173,11 +258,66 @@ public class JobService {
      */
     public void delete(JenkinsServer jenkinsServer, String name, String givenCredentialId) throws IOException {
         String credentialId = getCredentialId(name, givenCredentialId);
+        credentialFingerprints.remove(credentialId);
+        configFingerprints.remove(name);
         tryDeleteCredentailWithId(jenkinsServer, credentialId);
         jenkinsServer.deleteJob(name);
     }
 
 
+    private JobProvisioningReport provisionAll(final JenkinsServer jenkinsServer, List<JobSpec> specs, int concurrency, final boolean update) throws InterruptedException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        final long start = System.currentTimeMillis();
+        final List<JobProvisioningReport.Result> results = new ArrayList<JobProvisioningReport.Result>(specs.size());
+        if (specs.isEmpty()) {
+            return new JobProvisioningReport(results, 0);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, specs.size()), new NamedThreadFactory("digger-jobs"));
+        try {
+            final List<Future<JobProvisioningReport.Result>> futures = new ArrayList<Future<JobProvisioningReport.Result>>(specs.size());
+            for (final JobSpec spec : specs) {
+                futures.add(executor.submit(new Callable<JobProvisioningReport.Result>() {
+                    @Override
+                    public JobProvisioningReport.Result call() {
+                        return provision(jenkinsServer, spec, update);
+                    }
+                }));
+            }
+            for (Future<JobProvisioningReport.Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // provision never throws, so this is not expected
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final JobProvisioningReport report = new JobProvisioningReport(results, System.currentTimeMillis() - start);
+        LOG.debug("Bulk {} finished: {}", update ? "update" : "create", report);
+        return report;
+    }
+
+    private JobProvisioningReport.Result provision(JenkinsServer jenkinsServer, JobSpec spec, boolean update) {
+        final long start = System.currentTimeMillis();
+        try {
+            if (update) {
+                update(jenkinsServer, spec.getName(), spec.getGitRepo(), spec.getGitBranch(), spec.getBuildDiscarder(), spec.getGitRepoCredential(), spec.getBuildParameters());
+            } else {
+                create(jenkinsServer, spec.getName(), spec.getGitRepo(), spec.getGitBranch(), spec.getBuildDiscarder(), spec.getGitRepoCredential(), spec.getBuildParameters());
+            }
+            return new JobProvisioningReport.Result(spec.getName(), null, System.currentTimeMillis() - start);
+        } catch (Throwable e) {
+            LOG.warn("Provisioning job " + spec.getName() + " failed", e);
+            return new JobProvisioningReport.Result(spec.getName(), e, System.currentTimeMillis() - start);
+        }
+    }
+
     /**
      * Return the credentialId. If the givenCredentialId is set, it will be used. Otherwise a default credentail id will be generated from the jobName.
      *
@@ -212,6 +352,10 @@ public class JobService {
 
     /**
      * Update the credential in Jenkins.
+     * <p>
+     * The credential is only recreated when its content is different than the last time this service created it.
+     * Credentials that are changed or removed on Jenkins by someone else are not detected.
+     *
      * @param jenkinsServer the jenkins server instance
      * @param name the name of the job
      * @param gitRepoCredential the new credential instance. Can be null.
@@ -223,11 +367,18 @@ public class JobService {
         if (gitRepoCredential != null) {
             credentialId = getCredentialId(name, gitRepoCredential.getId());
             gitRepoCredential.setId(credentialId);
+            final String fingerprint = fingerprint(gitRepoCredential);
+            if (fingerprint.equals(credentialFingerprints.get(credentialId))) {
+                LOG.debug("Credential {} is unchanged. Skipping the update.", credentialId);
+                return credentialId;
+            }
             try {
                 //remove the credential first, in case the credential value changed.
                 tryDeleteCredentailWithId(jenkinsServer, credentialId);
                 jenkinsServer.createCredential(gitRepoCredential, this.crumbFlag);
+                credentialFingerprints.put(credentialId, fingerprint);
             } catch (IOException ioe) {
+                credentialFingerprints.remove(credentialId);
                 LOG.error("Creating credential failed with error", ioe);
                 throw new DiggerClientException("can not create credential", ioe);
             }
@@ -235,6 +386,66 @@ public class JobService {
         return credentialId;
     }
 
+    /**
+     * Calculate a digest of all the values of the given credential, including the secrets.
+     * The credential classes don't implement equals, so the values are read from the fields.
+     *
+     * @param credential the credential
+     * @return the hex encoded SHA-256 digest of the credential values
+     */
+    static String fingerprint(Credential credential) {
+        final Map<String, Object> values = new TreeMap<String, Object>();
+        for (Class<?> type = credential.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    values.put(type.getName() + "." + field.getName(), field.get(credential));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Can not read credential field " + field, e);
+                }
+            }
+        }
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(credential.getClass().getName().getBytes(UTF_8));
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                digest.update((byte) 0);
+                digest.update(entry.getKey().getBytes(UTF_8));
+                digest.update((byte) 0);
+                digest.update(String.valueOf(entry.getValue()).getBytes(UTF_8));
+            }
+            return hex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Calculate a digest of the rendered configuration of a job.
+     *
+     * @param jobXml the XML string value of the job
+     * @return the hex encoded SHA-256 digest of the configuration
+     */
+    static String fingerprint(String jobXml) {
+        try {
+            return hex(MessageDigest.getInstance("SHA-256").digest(jobXml.getBytes(UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
     /**
      * Get the XML string value of the jenkins job.
      * @param gitRepo  the git repo url
@@ -249,7 +460,6 @@ public class JobService {
             buildDiscarder = new BuildDiscarder();
         }
 
-        JtwigTemplate template = JtwigTemplate.classpathTemplate(JOB_TEMPLATE_PATH);
         JtwigModel model = JtwigModel.newModel()
             .with(GIT_REPO_URL, gitRepo)
             .with(GIT_REPO_BRANCH, gitBranch)
@@ -259,7 +469,7 @@ public class JobService {
             .with(STORE_ARTIFACTS_TOTAL, buildDiscarder.getStoreArtifactsTotal())
             .with(BUILD_PARAMETERS, buildParameters)
             .with(GIT_CREDENTIALS_ID, credentialId);
-        return template.render(model);
+        return jobTemplate.render(model);
     }
 
 
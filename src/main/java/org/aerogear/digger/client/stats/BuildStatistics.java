@@ -0,0 +1,184 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.stats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Build duration and queue wait percentiles of every job, updated as builds are seen starting and finishing.
+ * <p>
+ * Each job keeps a {@link DurationHistogram} of the durations of its finished builds and one of the time its builds
+ * waited in the queue, so the memory used does not grow with the number of builds. Durations are usually recorded
+ * by a {@link org.aerogear.digger.client.DiggerClient} that is built with the statistics, but any finished build can
+ * be recorded.
+ * <p>
+ * Builds are told apart by the name of their job and their number, so an instance must only be used for the builds
+ * of a single Jenkins master: a build of a job on one master would be taken for the build with the same number
+ * on another master, and ignored.
+ * <p>
+ * Instances are thread safe.
+ */
+public class BuildStatistics {
+
+    /**
+     * Number of the last recorded builds and queue items of a job that are remembered, so the same build is not
+     * recorded twice when it is seen starting or finishing more than once.
+     */
+    static final int RECENT_BUILDS = 64;
+
+    private final ConcurrentMap<String, JobStatistics> jobs = new ConcurrentHashMap<String, JobStatistics>();
+
+    /**
+     * Record the duration of a finished build. A build that is already recorded is ignored.
+     *
+     * @param jobName     name of the job
+     * @param buildNumber number of the build
+     * @param duration    duration of the build in milliseconds
+     * @return false if the build was already recorded
+     */
+    public boolean recordBuild(String jobName, int buildNumber, long duration) {
+        return job(jobName).recordBuild(buildNumber, duration);
+    }
+
+    /**
+     * Record how long a build waited in the queue until it started. A queue item that is already recorded is
+     * ignored, for example when several triggers were coalesced into one build and each caller saw it starting.
+     *
+     * @param jobName      name of the job
+     * @param queueItemUrl url of the queue item of the build
+     * @param queueWait    time from the trigger until the build started, in milliseconds
+     * @return false if the queue item was already recorded
+     */
+    public boolean recordQueueWait(String jobName, String queueItemUrl, long queueWait) {
+        final JobStatistics job = job(jobName);
+        if (!job.recentQueueItems.add(queueItemUrl)) {
+            return false;
+        }
+        job.queueWaits.record(queueWait);
+        return true;
+    }
+
+    /**
+     * @param jobName name of the job
+     * @return a copy of the histogram of the build durations of the job. Empty if no build of the job was recorded.
+     */
+    public DurationHistogram getDurations(String jobName) {
+        final JobStatistics job = jobs.get(jobName);
+        return job != null ? job.durations.copy() : new DurationHistogram();
+    }
+
+    /**
+     * @param jobName name of the job
+     * @return a copy of the histogram of the queue waits of the job. Empty if no build of the job was recorded.
+     */
+    public DurationHistogram getQueueWaits(String jobName) {
+        final JobStatistics job = jobs.get(jobName);
+        return job != null ? job.queueWaits.copy() : new DurationHistogram();
+    }
+
+    /**
+     * @return the build durations of all jobs merged together
+     */
+    public DurationHistogram getAllDurations() {
+        final DurationHistogram all = new DurationHistogram();
+        for (JobStatistics job : jobs.values()) {
+            all.merge(job.durations);
+        }
+        return all;
+    }
+
+    /**
+     * @return the queue waits of all jobs merged together
+     */
+    public DurationHistogram getAllQueueWaits() {
+        final DurationHistogram all = new DurationHistogram();
+        for (JobStatistics job : jobs.values()) {
+            all.merge(job.queueWaits);
+        }
+        return all;
+    }
+
+    /**
+     * @return names of the jobs that have recorded builds, sorted
+     */
+    public List<String> getJobNames() {
+        final List<String> names = new ArrayList<String>(jobs.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Forget the recorded builds of a job, for example after it is deleted.
+     *
+     * @param jobName name of the job
+     */
+    public void remove(String jobName) {
+        jobs.remove(jobName);
+    }
+
+    private JobStatistics job(String jobName) {
+        final JobStatistics job = jobs.get(jobName);
+        if (job != null) {
+            return job;
+        }
+        final JobStatistics created = new JobStatistics();
+        final JobStatistics existing = jobs.putIfAbsent(jobName, created);
+        return existing != null ? existing : created;
+    }
+
+    private static class JobStatistics {
+        private final DurationHistogram durations = new DurationHistogram();
+        private final DurationHistogram queueWaits = new DurationHistogram();
+        private final Recent recentBuilds = new Recent();
+        private final Recent recentQueueItems = new Recent();
+
+        boolean recordBuild(int buildNumber, long duration) {
+            if (!recentBuilds.add(buildNumber)) {
+                return false;
+            }
+            durations.record(duration);
+            return true;
+        }
+    }
+
+    /**
+     * The last {@link #RECENT_BUILDS} keys that were added.
+     */
+    private static class Recent {
+        private final Object[] keys = new Object[RECENT_BUILDS];
+        private int remembered;
+        private int next;
+
+        /**
+         * @return false if the key is one of the remembered ones
+         */
+        synchronized boolean add(Object key) {
+            for (int i = 0; i < remembered; i++) {
+                if (keys[i].equals(key)) {
+                    return false;
+                }
+            }
+            keys[next] = key;
+            next = (next + 1) % RECENT_BUILDS;
+            remembered = Math.min(remembered + 1, RECENT_BUILDS);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.stats;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of durations in milliseconds, with buckets whose width grows with the value.
+ * <p>
+ * Values below 16 have a bucket each. Above that, every power of two is split into 8 buckets, so a percentile is
+ * within about 6% of the recorded value, and a histogram never holds more than 500 counters whatever the number
+ * of recorded values is. Histograms can be merged without losing precision, for example to get the percentiles of
+ * several jobs together.
+ * <p>
+ * Instances are thread safe.
+ */
+public class DurationHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_BUCKETS = SUB_BUCKETS * 2;
+
+    private long[] counts = new long[EXACT_BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Record a value. Negative values are ignored.
+     *
+     * @param value the value in milliseconds
+     */
+    public synchronized void record(long value) {
+        if (value < 0) {
+            return;
+        }
+        final int index = bucketOf(value);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, index + 1);
+        }
+        counts[index]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Add the values recorded in another histogram to this one.
+     *
+     * @param other the other histogram. It is not changed.
+     */
+    public void merge(DurationHistogram other) {
+        // copied first, so the two histograms are never locked at the same time
+        final DurationHistogram copy = other.copy();
+        synchronized (this) {
+            if (copy.counts.length > counts.length) {
+                counts = Arrays.copyOf(counts, copy.counts.length);
+            }
+            for (int i = 0; i < copy.counts.length; i++) {
+                counts[i] += copy.counts[i];
+            }
+            count += copy.count;
+            sum += copy.sum;
+            min = Math.min(min, copy.min);
+            max = Math.max(max, copy.max);
+        }
+    }
+
+    /**
+     * @return a copy of the histogram, that is not changed by the values recorded later
+     */
+    public synchronized DurationHistogram copy() {
+        final DurationHistogram copy = new DurationHistogram();
+        copy.counts = counts.clone();
+        copy.count = count;
+        copy.sum = sum;
+        copy.min = min;
+        copy.max = max;
+        return copy;
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the smallest recorded value. -1 if there are none.
+     */
+    public synchronized long getMin() {
+        return count == 0 ? -1 : min;
+    }
+
+    /**
+     * @return the largest recorded value. -1 if there are none.
+     */
+    public synchronized long getMax() {
+        return count == 0 ? -1 : max;
+    }
+
+    /**
+     * @return the mean of the recorded values. -1 if there are none.
+     */
+    public synchronized double getMean() {
+        return count == 0 ? -1 : (double) sum / count;
+    }
+
+    /**
+     * Get the value that the given percentage of the recorded values are less than or equal to.
+     *
+     * @param percentile the percentage, from 0 to 100. For example 95 for the 95th percentile.
+     * @return the value, within the precision of the buckets. -1 if there are no recorded values.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        if (count == 0) {
+            return -1;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // middle of the bucket, but never outside of the recorded values
+                final long middle = lowestValueOf(i) + (highestValueOf(i) - lowestValueOf(i)) / 2;
+                return Math.max(min, Math.min(max, middle));
+            }
+        }
+        return max;
+    }
+
+    static int bucketOf(long value) {
+        if (value < EXACT_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return EXACT_BUCKETS + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowestValueOf(int bucket) {
+        if (bucket < EXACT_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + 1;
+        final long subBucket = (bucket - EXACT_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return subBucket << shift;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < EXACT_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + 1;
+        return lowestValueOf(bucket) + (1L << shift) - 1;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DurationHistogram{" +
+            "count=" + count +
+            ", p50=" + getPercentile(50) +
+            ", p95=" + getPercentile(95) +
+            ", max=" + getMax() +
+            '}';
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.tracing;
+
+/**
+ * Hook that is told when spans start and end, to pass them on to a tracing system or to log them.
+ * <p>
+ * A span is opened for every {@link org.aerogear.digger.client.DiggerClient} operation and a child span for every
+ * HTTP request sent while the operation runs. Methods are called on the threads that talk to Jenkins, so
+ * implementations must be thread safe and fast. See {@link SlowCallLogger} for a built-in implementation.
+ */
+public interface DiggerTracer {
+
+    /**
+     * @param span the span that started
+     */
+    void onSpanStart(Span span);
+
+    /**
+     * @param span the span that ended. Its duration and children are known now.
+     */
+    void onSpanEnd(Span span);
+}
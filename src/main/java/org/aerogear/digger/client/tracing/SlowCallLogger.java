@@ -0,0 +1,88 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracer that logs the top level spans that took longer than a threshold, with the time spent in each of their
+ * child spans. For example, a slow <code>build</code> shows the trigger request and every queue poll.
+ */
+public class SlowCallLogger implements DiggerTracer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SlowCallLogger.class);
+
+    /**
+     * Default value of {@link #threshold}
+     */
+    public static final long DEFAULT_THRESHOLD = 10 * 1000L;
+
+    /**
+     * Spans that took longer than this (in milliseconds) are logged.
+     */
+    private final long threshold;
+
+    public SlowCallLogger() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param threshold spans that took longer than this (in milliseconds) are logged
+     */
+    public SlowCallLogger(long threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void onSpanStart(Span span) {
+    }
+
+    @Override
+    public void onSpanEnd(Span span) {
+        if (span.getParent() == null && TimeUnit.NANOSECONDS.toMillis(span.getDurationNanos()) >= threshold) {
+            LOG.warn("Slow call: {}", format(span));
+        }
+    }
+
+    /**
+     * @param span an ended span
+     * @return the span and its children, one per line with their durations
+     */
+    static String format(Span span) {
+        final StringBuilder builder = new StringBuilder();
+        append(builder, span, 0);
+        return builder.toString();
+    }
+
+    private static void append(StringBuilder builder, Span span, int depth) {
+        if (depth > 0) {
+            builder.append('\n');
+            for (int i = 0; i < depth; i++) {
+                builder.append("  ");
+            }
+        }
+        builder.append(span).append(' ').append(TimeUnit.NANOSECONDS.toMillis(span.getDurationNanos())).append(" ms");
+        if (span.getError() != null) {
+            builder.append(" failed: ").append(span.getError());
+        }
+        for (Span child : span.getChildren()) {
+            append(builder, child, depth + 1);
+        }
+    }
+}
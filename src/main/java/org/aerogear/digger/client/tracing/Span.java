@@ -0,0 +1,120 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.tracing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A timed piece of work: a client operation like <code>build</code>, or an HTTP request sent for it.
+ */
+public class Span {
+
+    private final String name;
+    private final Span parent;
+    private final long startTime;
+    private final long startNanos;
+    private final Map<String, String> attributes = new LinkedHashMap<String, String>();
+    private final List<Span> children = new ArrayList<Span>();
+    private volatile long durationNanos = -1;
+    private volatile Throwable error;
+
+    Span(String name, Span parent) {
+        this.name = name;
+        this.parent = parent;
+        this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        if (parent != null) {
+            parent.addChild(this);
+        }
+    }
+
+    /**
+     * @return name of the operation or the HTTP request
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the span this span is part of, null for a top level span
+     */
+    public Span getParent() {
+        return parent;
+    }
+
+    /**
+     * @return when the span started, in milliseconds since the epoch
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return duration of the span in nanoseconds, -1 while the span is not ended
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return the error the span failed with, null if it didn't fail
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public void setError(Throwable error) {
+        this.error = error;
+    }
+
+    /**
+     * @param key   key of the attribute, like <code>job</code> or <code>status</code>
+     * @param value value of the attribute
+     * @return the span
+     */
+    public synchronized Span setAttribute(String key, Object value) {
+        attributes.put(key, String.valueOf(value));
+        return this;
+    }
+
+    public synchronized Map<String, String> getAttributes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, String>(attributes));
+    }
+
+    /**
+     * @return spans started while this span was the current one, in start order
+     */
+    public synchronized List<Span> getChildren() {
+        return Collections.unmodifiableList(new ArrayList<Span>(children));
+    }
+
+    void end() {
+        durationNanos = System.nanoTime() - startNanos;
+    }
+
+    private synchronized void addChild(Span child) {
+        children.add(child);
+    }
+
+    @Override
+    public String toString() {
+        return name + getAttributes();
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.tracing;
+
+/**
+ * Opens and ends spans for a client, keeping track of the current span of each thread.
+ * <p>
+ * A span started while another one is current on the same thread becomes its child. Work handed to other threads,
+ * like bulk job provisioning, starts top level spans.
+ */
+public class Tracing {
+
+    private final DiggerTracer tracer;
+    private final ThreadLocal<Span> current = new ThreadLocal<Span>();
+
+    /**
+     * @param tracer the tracer to report to, null to turn tracing off
+     */
+    public Tracing(DiggerTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * @return true if spans are reported to a tracer
+     */
+    public boolean isEnabled() {
+        return tracer != null;
+    }
+
+    /**
+     * Start a span and make it the current one of the thread. Must be ended with {@link #end(Span)} on the same thread.
+     *
+     * @param name name of the span
+     * @return the span, null if tracing is off
+     */
+    public Span start(String name) {
+        if (tracer == null) {
+            return null;
+        }
+        final Span span = new Span(name, current.get());
+        current.set(span);
+        tracer.onSpanStart(span);
+        return span;
+    }
+
+    /**
+     * Start a span with one attribute. See {@link #start(String)}.
+     *
+     * @param name  name of the span
+     * @param key   key of the attribute
+     * @param value value of the attribute
+     * @return the span, null if tracing is off
+     */
+    public Span start(String name, String key, Object value) {
+        final Span span = start(name);
+        if (span != null) {
+            span.setAttribute(key, value);
+        }
+        return span;
+    }
+
+    /**
+     * Start a span for an operation on a build. See {@link #start(String)}.
+     *
+     * @param name        name of the span
+     * @param jobName     name of the job
+     * @param buildNumber number of the build
+     * @return the span, null if tracing is off
+     */
+    public Span startForBuild(String name, String jobName, int buildNumber) {
+        final Span span = start(name);
+        if (span != null) {
+            span.setAttribute("job", jobName).setAttribute("build", buildNumber);
+        }
+        return span;
+    }
+
+    /**
+     * End the span and make its parent the current span of the thread again.
+     *
+     * @param span the span to end, may be null
+     */
+    public void end(Span span) {
+        if (span == null) {
+            return;
+        }
+        span.end();
+        current.set(span.getParent());
+        if (span.getParent() == null) {
+            current.remove();
+        }
+        tracer.onSpanEnd(span);
+    }
+}
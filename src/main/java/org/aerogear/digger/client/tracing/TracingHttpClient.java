@@ -0,0 +1,60 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.tracing;
+
+import org.aerogear.digger.client.metrics.Operation;
+import org.aerogear.digger.client.util.DelegatingHttpClient;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+/**
+ * HTTP client that opens a span for every request, as a child of the client operation that sends it.
+ * The span ends when the response headers arrive.
+ */
+public class TracingHttpClient extends DelegatingHttpClient {
+
+    private final Tracing tracing;
+
+    public TracingHttpClient(CloseableHttpClient delegate, Tracing tracing) {
+        super(delegate);
+        this.tracing = tracing;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException {
+        final String method = request.getRequestLine().getMethod();
+        final String uri = request.getRequestLine().getUri();
+        final Span span = tracing.start(method + " " + uri, "operation", Operation.of(method, uri));
+        try {
+            final CloseableHttpResponse response = super.doExecute(target, request, context);
+            span.setAttribute("status", response.getStatusLine().getStatusCode());
+            return response;
+        } catch (IOException e) {
+            span.setError(e);
+            throw e;
+        } catch (RuntimeException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            tracing.end(span);
+        }
+    }
+}
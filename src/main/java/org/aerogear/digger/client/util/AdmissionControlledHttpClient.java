@@ -0,0 +1,192 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import org.aerogear.digger.client.model.AdmissionOptions;
+import org.aerogear.digger.client.model.AdmissionOptions.Pool;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HTTP client that limits the rate and the concurrency of the requests sent to Jenkins.
+ * <p>
+ * Every request is put in one of the {@link Pool}s by its path. A request waits until its pool has room for it,
+ * or is rejected with a {@link RequestRejectedException} if it can not be admitted within the max wait time of the pool.
+ * <p>
+ * A request is in flight until its response arrives. Artifact downloads are in flight until the downloaded stream is
+ * read to the end or closed, so the streams returned by the client must always be closed.
+ */
+public class AdmissionControlledHttpClient extends DelegatingHttpClient {
+
+    private final Map<Pool, Limiter> limiters = new EnumMap<Pool, Limiter>(Pool.class);
+
+    public AdmissionControlledHttpClient(CloseableHttpClient delegate, AdmissionOptions options) {
+        super(delegate);
+        for (Pool pool : Pool.values()) {
+            limiters.put(pool, new Limiter(pool, options.getPool(pool)));
+        }
+    }
+
+    /**
+     * @param request the request
+     * @return the pool the request belongs to
+     */
+    public static Pool poolOf(HttpRequest request) {
+        final String uri = request.getRequestLine().getUri();
+        if (uri.contains("/artifact/")) {
+            return Pool.ARTIFACTS;
+        } else if (uri.contains("/logText/") || uri.contains("/consoleText") || uri.contains("/consoleFull")) {
+            return Pool.LOG_STREAMING;
+        }
+        return Pool.CONTROL;
+    }
+
+    /**
+     * @param pool the pool
+     * @return number of requests of the pool that are in flight now
+     */
+    public int getInFlight(Pool pool) {
+        return limiters.get(pool).getInFlight();
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException {
+        final Pool pool = poolOf(request);
+        final Limiter limiter = limiters.get(pool);
+        limiter.admit();
+
+        boolean releasedByStream = false;
+        try {
+            final CloseableHttpResponse response = super.doExecute(target, request, context);
+            final HttpEntity entity = response.getEntity();
+            if (pool == Pool.ARTIFACTS && entity != null && response.getStatusLine().getStatusCode() < 300) {
+                response.setEntity(new ReleasingEntity(entity, limiter));
+                releasedByStream = true;
+            }
+            return response;
+        } finally {
+            if (!releasedByStream) {
+                limiter.release();
+            }
+        }
+    }
+
+    private static class Limiter {
+        private final Pool pool;
+        private final Semaphore concurrency;
+        private final int maxConcurrent;
+        private final TokenBucket rate;
+        private final long maxWait;
+
+        Limiter(Pool pool, AdmissionOptions.PoolOptions options) {
+            this.pool = pool;
+            this.maxConcurrent = options.getMaxConcurrent();
+            this.concurrency = new Semaphore(maxConcurrent, true);
+            this.rate = options.getRequestsPerSecond() > 0 ? new TokenBucket(options.getRequestsPerSecond(), options.getBurst()) : null;
+            this.maxWait = options.getMaxWait();
+        }
+
+        void admit() throws IOException {
+            final long start = System.currentTimeMillis();
+            try {
+                if (!concurrency.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                    throw new RequestRejectedException("Too many " + pool + " requests in flight");
+                }
+                final long remainingWait = Math.max(0, maxWait - (System.currentTimeMillis() - start));
+                if (rate != null && !rate.tryAcquire(remainingWait, TimeUnit.MILLISECONDS)) {
+                    concurrency.release();
+                    throw new RequestRejectedException("Request rate limit of " + pool + " requests is exceeded");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to send a " + pool + " request");
+            }
+        }
+
+        void release() {
+            concurrency.release();
+        }
+
+        int getInFlight() {
+            return maxConcurrent - concurrency.availablePermits();
+        }
+    }
+
+    /**
+     * Keeps the request in flight until the content is read to the end or closed.
+     */
+    private static class ReleasingEntity extends HttpEntityWrapper {
+        private final Limiter limiter;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingEntity(HttpEntity entity, Limiter limiter) {
+            super(entity);
+            this.limiter = limiter;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(super.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    return releaseAtEnd(super.read());
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    return releaseAtEnd(super.read(buffer, offset, length));
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release();
+                    }
+                }
+            };
+        }
+
+        private int releaseAtEnd(int read) {
+            if (read == -1) {
+                release();
+            }
+            return read;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release();
+            }
+        }
+    }
+}
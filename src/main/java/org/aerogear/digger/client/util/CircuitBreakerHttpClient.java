@@ -0,0 +1,82 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import org.aerogear.digger.client.model.CircuitBreakerOptions;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * HTTP client that fails fast with a {@link CircuitOpenException} while Jenkins is unhealthy.
+ * See {@link CircuitBreaker}.
+ */
+public class CircuitBreakerHttpClient extends DelegatingHttpClient {
+
+    private final CircuitBreaker circuitBreaker;
+    private final Set<Integer> failureStatusCodes;
+
+    public CircuitBreakerHttpClient(CloseableHttpClient delegate, CircuitBreakerOptions options) {
+        super(delegate);
+        this.circuitBreaker = new CircuitBreaker(options);
+        this.failureStatusCodes = options.getFailureStatusCodes();
+    }
+
+    /**
+     * @return the circuit breaker of the client
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new CircuitOpenException("Jenkins is unavailable, not sending request " + request.getRequestLine());
+        }
+
+        final CloseableHttpResponse response;
+        try {
+            response = super.doExecute(target, request, context);
+        } catch (RequestRejectedException e) {
+            circuitBreaker.onIgnored();
+            throw e;
+        } catch (ConnectionPoolTimeoutException e) {
+            // the local connection pool is exhausted, Jenkins was not asked
+            circuitBreaker.onIgnored();
+            throw e;
+        } catch (IOException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onIgnored();
+            throw e;
+        }
+
+        if (failureStatusCodes.contains(response.getStatusLine().getStatusCode())) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+        return response;
+    }
+}
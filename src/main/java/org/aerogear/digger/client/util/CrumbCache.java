@@ -0,0 +1,171 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.model.Crumb;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ServiceUnavailableRetryStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Adds the CSRF protection crumb of Jenkins to every request that changes something.
+ * <p>
+ * The crumb is fetched once and reused until it expires or Jenkins rejects a request with 403.
+ * A rejected request is sent once more with a freshly fetched crumb.
+ * <p>
+ * When a cache is installed, the services should not ask jenkins-client to fetch a crumb for
+ * each request, meaning they should be created with the crumb flag turned off.
+ */
+public class CrumbCache implements HttpRequestInterceptor, ServiceUnavailableRetryStrategy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CrumbCache.class);
+
+    /**
+     * Default value of {@link #ttl}
+     */
+    public static final long DEFAULT_TTL = 30 * 60 * 1000L;
+
+    private static final String CRUMB_ATTRIBUTE = CrumbCache.class.getName() + ".crumb";
+
+    private static final String CRUMB_ISSUER_PATH = "/crumbIssuer";
+
+    private final long ttl;
+
+    private volatile JenkinsHttpClient jenkinsHttpClient;
+    private volatile CachedCrumb cached;
+
+    /**
+     * @param ttl how long (in milliseconds) a fetched crumb is reused
+     */
+    public CrumbCache(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Add the cache to the given builder of the HTTP client.
+     * This replaces the {@link ServiceUnavailableRetryStrategy} of the builder.
+     *
+     * @param builder the builder of the HTTP client
+     */
+    public void install(HttpClientBuilder builder) {
+        builder.addInterceptorLast(this);
+        builder.setServiceUnavailableRetryStrategy(this);
+    }
+
+    /**
+     * @param jenkinsHttpClient the client that is used to fetch the crumb.
+     *                          It is usually the client built by the builder this cache is installed to.
+     */
+    public void setJenkinsHttpClient(JenkinsHttpClient jenkinsHttpClient) {
+        this.jenkinsHttpClient = jenkinsHttpClient;
+    }
+
+    /**
+     * Forget the cached crumb. The next request that needs a crumb will fetch a new one.
+     */
+    public void invalidate() {
+        this.cached = null;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+        if (!needsCrumb(request)) {
+            return;
+        }
+        final Crumb crumb = getCrumb();
+        if (crumb != null) {
+            request.setHeader(crumb.getCrumbRequestField(), crumb.getCrumb());
+            context.setAttribute(CRUMB_ATTRIBUTE, crumb);
+        }
+    }
+
+    @Override
+    public boolean retryRequest(HttpResponse response, int executionCount, HttpContext context) {
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_FORBIDDEN || context.getAttribute(CRUMB_ATTRIBUTE) == null) {
+            return false;
+        }
+        LOG.debug("Request with a cached crumb is rejected. Invalidating the crumb.");
+        context.removeAttribute(CRUMB_ATTRIBUTE);
+        invalidate();
+        return executionCount == 1;
+    }
+
+    @Override
+    public long getRetryInterval() {
+        return 0;
+    }
+
+    private boolean needsCrumb(HttpRequest request) {
+        final String method = request.getRequestLine().getMethod();
+        return !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+    }
+
+    private Crumb getCrumb() throws IOException {
+        CachedCrumb current = this.cached;
+        if (current == null || current.isExpired()) {
+            synchronized (this) {
+                current = this.cached;
+                if (current == null || current.isExpired()) {
+                    current = new CachedCrumb(fetchCrumb(), System.currentTimeMillis() + ttl);
+                    this.cached = current;
+                }
+            }
+        }
+        return current.crumb;
+    }
+
+    private Crumb fetchCrumb() throws IOException {
+        if (jenkinsHttpClient == null) {
+            throw new IllegalStateException("Jenkins HTTP client is not set");
+        }
+        try {
+            LOG.debug("Fetching a new crumb");
+            return jenkinsHttpClient.get(CRUMB_ISSUER_PATH, Crumb.class);
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                // CSRF protection is turned off. Remember that, so we don't ask for every request.
+                LOG.debug("Jenkins doesn't issue crumbs");
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private static class CachedCrumb {
+        private final Crumb crumb;
+        private final long expiresAt;
+
+        CachedCrumb(Crumb crumb, long expiresAt) {
+            this.crumb = crumb;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
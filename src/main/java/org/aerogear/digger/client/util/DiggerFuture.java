@@ -0,0 +1,175 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link Future} that is completed by the client, when the result it waits for arrives from Jenkins.
+ *
+ * @param <T> type of the result
+ */
+public class DiggerFuture<T> implements Future<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiggerFuture.class);
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicBoolean completing = new AtomicBoolean();
+    private final List<Runnable> listeners = new ArrayList<Runnable>();
+    private boolean listenersRun;
+
+    private volatile T result;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+
+    /**
+     * Complete the future with a result.
+     *
+     * @param result the result
+     * @return false if the future was already completed, failed or cancelled
+     */
+    public boolean complete(T result) {
+        if (!completing.compareAndSet(false, true)) {
+            return false;
+        }
+        this.result = result;
+        runListeners();
+        done.countDown();
+        return true;
+    }
+
+    /**
+     * Complete the future with an error. {@link #get()} throws an {@link ExecutionException} with the error as its cause.
+     *
+     * @param error the error
+     * @return false if the future was already completed, failed or cancelled
+     */
+    public boolean fail(Throwable error) {
+        if (!completing.compareAndSet(false, true)) {
+            return false;
+        }
+        this.error = error;
+        runListeners();
+        done.countDown();
+        return true;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!completing.compareAndSet(false, true)) {
+            return false;
+        }
+        this.cancelled = true;
+        runListeners();
+        done.countDown();
+        return true;
+    }
+
+    /**
+     * Run the listener when the future is completed, failed or cancelled. It is run on the thread that completes the
+     * future, before the threads waiting in {@link #get()} are released, or right away if the future is already done.
+     *
+     * @param listener the listener
+     */
+    public void addListener(Runnable listener) {
+        synchronized (listeners) {
+            if (!listenersRun) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        runListener(listener);
+    }
+
+    private void runListeners() {
+        final List<Runnable> toRun;
+        synchronized (listeners) {
+            listenersRun = true;
+            toRun = new ArrayList<Runnable>(listeners);
+            listeners.clear();
+        }
+        for (Runnable listener : toRun) {
+            runListener(listener);
+        }
+    }
+
+    private static void runListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            LOG.warn("Future listener failed", e);
+        }
+    }
+
+    /**
+     * @return the result the future was completed with. Null if it is not completed. Unlike {@link #get()}, it can be
+     * called from a listener.
+     */
+    public T getResult() {
+        return result;
+    }
+
+    /**
+     * @return the error the future failed with. Null if it is not failed.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        done.await();
+        return getNow();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return getNow();
+    }
+
+    private T getNow() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        } else if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return result;
+    }
+}
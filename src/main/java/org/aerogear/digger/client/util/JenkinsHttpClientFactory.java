@@ -0,0 +1,127 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import org.aerogear.digger.client.model.HttpTransportOptions;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.AuthenticationException;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the HTTP clients used to talk to Jenkins.
+ */
+public final class JenkinsHttpClientFactory {
+
+    private JenkinsHttpClientFactory() {
+    }
+
+    /**
+     * Create a builder for a pooled HTTP client configured with the given options.
+     *
+     * @param options See {@link HttpTransportOptions}
+     * @return the builder. It can be customized further before building the client.
+     */
+    public static HttpClientBuilder newHttpClientBuilder(HttpTransportOptions options) {
+        final RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(options.getConnectTimeout())
+            .setSocketTimeout(options.getSocketTimeout())
+            .setConnectionRequestTimeout(options.getConnectionRequestTimeout())
+            .build();
+
+        return HttpClientBuilder.create()
+            .setConnectionManager(newConnectionManager(options))
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(keepAliveStrategy(options.getKeepAlive()))
+            .evictExpiredConnections()
+            .evictIdleConnections(options.getMaxIdleTime(), TimeUnit.MILLISECONDS);
+    }
+
+    static PoolingHttpClientConnectionManager newConnectionManager(HttpTransportOptions options) {
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(options.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(options.getMaxConnectionsPerRoute());
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+            .setSoTimeout(options.getSocketTimeout())
+            .setSoKeepAlive(true)
+            .setTcpNoDelay(options.isTcpNoDelay())
+            .setSndBufSize(options.getSocketSendBufferSize())
+            .setRcvBufSize(options.getSocketReceiveBufferSize())
+            .build());
+        return connectionManager;
+    }
+
+    static ConnectionKeepAliveStrategy keepAliveStrategy(final long keepAlive) {
+        return new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                // use what Jenkins tells in the Keep-Alive header, if it does
+                final long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return duration > 0 ? duration : keepAlive;
+            }
+        };
+    }
+
+    /**
+     * Build an HTTP client that authenticates every request with the given credentials.
+     * <p>
+     * The credentials are sent preemptively, saving the round trip of an authentication challenge.
+     *
+     * @param auth    Jenkins url and credentials
+     * @param builder the builder of the client. See {@link #newHttpClientBuilder(HttpTransportOptions)}
+     * @return the HTTP client
+     */
+    public static CloseableHttpClient createHttpClient(JenkinsAuth auth, HttpClientBuilder builder) {
+        if (auth.getUser() != null && auth.getUser().length() > 0) {
+            builder.addInterceptorFirst(new PreemptiveBasicAuth(auth.getUser(), auth.getPassword()));
+        }
+        return builder.build();
+    }
+
+    static class PreemptiveBasicAuth implements HttpRequestInterceptor {
+        private final UsernamePasswordCredentials credentials;
+
+        PreemptiveBasicAuth(String user, String password) {
+            this.credentials = new UsernamePasswordCredentials(user, password);
+        }
+
+        @Override
+        public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+            if (!request.containsHeader(HttpHeaders.AUTHORIZATION)) {
+                try {
+                    request.addHeader(new BasicScheme().authenticate(credentials, request, context));
+                } catch (AuthenticationException e) {
+                    throw new HttpException("Can not authenticate the request", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import org.jtwig.JtwigModel;
+import org.jtwig.JtwigTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * A precompiled template used to render the <code>config.xml</code> of a Jenkins job.
+ * <p>
+ * The template source is loaded and parsed once, when the instance is created, and the
+ * parsed template is reused for every render. Rendering is safe to do from multiple threads.
+ * <p>
+ * File templates can optionally be reloaded when the file changes on disk. The file modification
+ * time is checked at most once per given interval, during a render.
+ */
+public class JobTemplate {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobTemplate.class);
+
+    /**
+     * Classpath location of the template shipped with the client.
+     */
+    public static final String DEFAULT_TEMPLATE_PATH = "templates/job.xml";
+
+    private final String description;
+    private final File file;
+    private final long reloadCheckInterval;
+
+    private volatile JtwigTemplate template;
+    private volatile long lastModified;
+    private volatile long nextReloadCheck;
+
+    private JobTemplate(String description, JtwigTemplate template, File file, long reloadCheckInterval) {
+        this.description = description;
+        this.file = file;
+        this.reloadCheckInterval = reloadCheckInterval;
+        this.template = precompile(description, template);
+        if (file != null) {
+            this.lastModified = file.lastModified();
+            this.nextReloadCheck = System.currentTimeMillis() + reloadCheckInterval;
+        }
+    }
+
+    /**
+     * @return the template shipped with the client, see {@link #DEFAULT_TEMPLATE_PATH}
+     */
+    public static JobTemplate defaultTemplate() {
+        return classpath(DEFAULT_TEMPLATE_PATH);
+    }
+
+    /**
+     * @param path classpath location of the template
+     * @return the compiled template
+     * @throws IllegalArgumentException if the template cannot be loaded or parsed
+     */
+    public static JobTemplate classpath(String path) {
+        return new JobTemplate("classpath:" + path, JtwigTemplate.classpathTemplate(path), null, 0);
+    }
+
+    /**
+     * @param file the template file
+     * @return the compiled template. It is not reloaded when the file changes.
+     * @throws IllegalArgumentException if the template cannot be loaded or parsed
+     */
+    public static JobTemplate file(File file) {
+        return file(file, 0);
+    }
+
+    /**
+     * @param file                the template file
+     * @param reloadCheckInterval how often (in milliseconds) the file should be checked for changes. 0 disables reloading.
+     * @return the compiled template
+     * @throws IllegalArgumentException if the template cannot be loaded or parsed
+     */
+    public static JobTemplate file(File file, long reloadCheckInterval) {
+        return new JobTemplate("file:" + file.getAbsolutePath(), JtwigTemplate.fileTemplate(file), file, reloadCheckInterval);
+    }
+
+    /**
+     * @param content the template content
+     * @return the compiled template
+     * @throws IllegalArgumentException if the template cannot be parsed
+     */
+    public static JobTemplate string(String content) {
+        return new JobTemplate("inline", JtwigTemplate.inlineTemplate(content), null, 0);
+    }
+
+    /**
+     * Render the template with the given model.
+     *
+     * @param model the values to render the template with
+     * @return the rendered job XML
+     */
+    public String render(JtwigModel model) {
+        reloadIfChanged();
+        return template.render(model);
+    }
+
+    @Override
+    public String toString() {
+        return "JobTemplate{" + description + '}';
+    }
+
+    private void reloadIfChanged() {
+        if (file == null || reloadCheckInterval <= 0 || System.currentTimeMillis() < nextReloadCheck) {
+            return;
+        }
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+            if (now < nextReloadCheck) {
+                return;
+            }
+            nextReloadCheck = now + reloadCheckInterval;
+            final long modified = file.lastModified();
+            if (modified == lastModified) {
+                return;
+            }
+            try {
+                template = precompile(description, JtwigTemplate.fileTemplate(file));
+                lastModified = modified;
+                LOG.info("Reloaded job template {}", description);
+            } catch (IllegalArgumentException e) {
+                // keep rendering with the previous version until the file is fixed
+                LOG.warn("Cannot reload job template " + description + ". Keeping the previous version.", e);
+            }
+        }
+    }
+
+    /**
+     * Jtwig parses a template lazily on the first render and caches the result in the template environment.
+     * Rendering once with an empty model makes sure the parsing happens now and parse errors show up early.
+     */
+    private static JtwigTemplate precompile(String description, JtwigTemplate template) {
+        try {
+            template.render(JtwigModel.newModel());
+            return template;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid job template " + description, e);
+        }
+    }
+}
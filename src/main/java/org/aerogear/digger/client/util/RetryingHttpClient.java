@@ -0,0 +1,113 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import org.aerogear.digger.client.model.RetryOptions;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP client that retries idempotent requests with a jittered exponential backoff. See {@link RetryOptions}.
+ * <p>
+ * Requests rejected by the client itself, like the ones rejected by an open circuit breaker, are not retried.
+ */
+public class RetryingHttpClient extends DelegatingHttpClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetryingHttpClient.class);
+
+    private final RetryOptions options;
+    private final Random random = new Random();
+    private final AtomicLong retryCount = new AtomicLong();
+
+    public RetryingHttpClient(CloseableHttpClient delegate, RetryOptions options) {
+        super(delegate);
+        this.options = options;
+    }
+
+    /**
+     * @return number of retries done since the client was created
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException {
+        if (!isIdempotent(request)) {
+            return super.doExecute(target, request, context);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            final boolean lastAttempt = attempt >= options.getMaxAttempts();
+            try {
+                final CloseableHttpResponse response = super.doExecute(target, request, context);
+                final int statusCode = response.getStatusLine().getStatusCode();
+                if (lastAttempt || !options.getRetryStatusCodes().contains(statusCode)) {
+                    return response;
+                }
+                LOG.debug("Jenkins responded {} to {}, retrying", statusCode, request.getRequestLine());
+                EntityUtils.consumeQuietly(response.getEntity());
+                response.close();
+            } catch (RequestRejectedException e) {
+                throw e;
+            } catch (IOException e) {
+                if (lastAttempt || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                LOG.debug("Request {} failed, retrying", request.getRequestLine(), e);
+            }
+
+            retryCount.incrementAndGet();
+            sleep(backoff(attempt));
+        }
+    }
+
+    /**
+     * @param attempt number of the attempt that failed, starting from 1
+     * @return time to wait before the next attempt, a random value between half and the full backoff
+     */
+    long backoff(int attempt) {
+        final double backoff = options.getInitialBackoff() * Math.pow(options.getMultiplier(), attempt - 1);
+        final long cap = (long) Math.min(options.getMaxBackoff(), backoff);
+        final long half = cap / 2;
+        return half + (long) (random.nextDouble() * (cap - half));
+    }
+
+    private static boolean isIdempotent(HttpRequest request) {
+        final String method = request.getRequestLine().getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiter that lets a steady number of permits per second through, with short bursts.
+ * <p>
+ * The bucket holds up to <code>burst</code> tokens and is refilled at the given rate. A caller that finds the
+ * bucket empty reserves the next token and sleeps until it is due, so waiting callers are served in order.
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond the steady rate
+     * @param burst            max number of permits that can be taken at once after a quiet period. At least 1.
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.tokens = this.capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Take a permit, waiting for it if needed.
+     *
+     * @param maxWait  max time to wait
+     * @param timeUnit unit of the max time
+     * @return false if the permit would not be available within the max time. No permit is taken then.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean tryAcquire(long maxWait, TimeUnit timeUnit) throws InterruptedException {
+        final long waitNanos;
+        synchronized (this) {
+            refill();
+            waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+            if (waitNanos > timeUnit.toNanos(maxWait)) {
+                return false;
+            }
+            tokens -= 1;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+
+    private void refill() {
+        final long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * Builds paths for the Jenkins remote API that only return the given fields.
+ * <p>
+ * Jenkins returns only the fields listed in the <code>tree</code> parameter, for example
+ * <code>jobs[name,lastBuild[number,result]]</code>. This keeps the responses small and
+ * cheap to produce on the Jenkins side.
+ */
+public final class TreeQuery {
+
+    private TreeQuery() {
+    }
+
+    /**
+     * @param path the path of the object, without the <code>api/json</code> part. For example <code>/job/my-job/12</code>
+     * @param tree the fields to return
+     * @return the path with the encoded <code>tree</code> parameter, to be used with {@link com.offbytwo.jenkins.client.JenkinsHttpClient#get(String, Class)}
+     */
+    public static String path(String path, String tree) {
+        try {
+            // brackets are not allowed in a URI query, so the tree must be encoded
+            return path + "?tree=" + URLEncoder.encode(tree, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+    }
+}
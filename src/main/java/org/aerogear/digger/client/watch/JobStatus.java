@@ -0,0 +1,107 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.watch;
+
+import com.offbytwo.jenkins.model.BuildResult;
+
+/**
+ * State of the last build of a job, as seen by a {@link JobStatusWatcher}.
+ */
+public class JobStatus {
+
+    private final String jobName;
+    private final int lastBuildNumber;
+    private final boolean building;
+    private final BuildResult result;
+    private final long timestamp;
+
+    /**
+     * @param jobName         name of the job
+     * @param lastBuildNumber number of the last build. -1 if the job was never built.
+     * @param building        if the last build is running
+     * @param result          result of the last build. Null if it is running or if the job was never built.
+     * @param timestamp       when the last build started, in milliseconds since epoch
+     */
+    public JobStatus(String jobName, int lastBuildNumber, boolean building, BuildResult result, long timestamp) {
+        this.jobName = jobName;
+        this.lastBuildNumber = lastBuildNumber;
+        this.building = building;
+        this.result = result;
+        this.timestamp = timestamp;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    /**
+     * @return number of the last build. -1 if the job was never built.
+     */
+    public int getLastBuildNumber() {
+        return lastBuildNumber;
+    }
+
+    public boolean isBuilding() {
+        return building;
+    }
+
+    /**
+     * @return result of the last build. Null if it is running or if the job was never built.
+     */
+    public BuildResult getResult() {
+        return result;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final JobStatus that = (JobStatus) o;
+        return lastBuildNumber == that.lastBuildNumber
+            && building == that.building
+            && timestamp == that.timestamp
+            && result == that.result
+            && jobName.equals(that.jobName);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = jobName.hashCode();
+        hash = 31 * hash + lastBuildNumber;
+        hash = 31 * hash + (building ? 1 : 0);
+        hash = 31 * hash + (result != null ? result.hashCode() : 0);
+        hash = 31 * hash + (int) (timestamp ^ (timestamp >>> 32));
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "JobStatus{" +
+            "jobName='" + jobName + '\'' +
+            ", lastBuildNumber=" + lastBuildNumber +
+            ", building=" + building +
+            ", result=" + result +
+            '}';
+    }
+}
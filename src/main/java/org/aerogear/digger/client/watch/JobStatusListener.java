@@ -0,0 +1,30 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.watch;
+
+/**
+ * Told by a {@link JobStatusWatcher} when the last build of a job changes.
+ * <p>
+ * Called on the thread that refreshes the watcher, so implementations should return quickly.
+ */
+public interface JobStatusListener {
+
+    /**
+     * @param previous the status before the refresh. Null if the job is new, or on the first refresh.
+     * @param current  the status after the refresh. Null if the job was deleted.
+     */
+    void onChange(JobStatus previous, JobStatus current);
+}
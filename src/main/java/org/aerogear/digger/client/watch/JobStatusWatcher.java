@@ -0,0 +1,268 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.watch;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.model.BaseModel;
+import org.aerogear.digger.client.model.BuildSummary;
+import org.aerogear.digger.client.util.NamedThreadFactory;
+import org.aerogear.digger.client.util.TreeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the last build of all jobs of a Jenkins master, or of a folder, and tells the listeners what changed.
+ * <p>
+ * All jobs are fetched with a single <code>tree</code> query that returns only the job names and the state of their
+ * last builds, instead of one request per job. With a page size, one request is sent per page of jobs.
+ * The result is compared with the previous refresh, and the listeners are only told about the jobs that changed.
+ * <p>
+ * The pages are separate requests, so a paged refresh is not an atomic snapshot: a job created or deleted
+ * meanwhile shifts the jobs of the next pages. Each page starts with the last job of the previous page to notice it.
+ * If the jobs moved, the jobs missing from the refresh are kept as they were instead of being reported deleted,
+ * and the next refresh tells.
+ */
+public class JobStatusWatcher implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobStatusWatcher.class);
+
+    /**
+     * Default value of {@link #pageSize}. 0 fetches all jobs at once.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 0;
+
+    private static final String JOBS_TREE = "jobs[name,lastBuild[number,building,result,timestamp]]";
+
+    private final JenkinsHttpClient jenkinsHttpClient;
+    private final String folderPath;
+
+    /**
+     * Max number of jobs fetched by a single request
+     */
+    private final int pageSize;
+
+    private final List<JobStatusListener> listeners = new CopyOnWriteArrayList<JobStatusListener>();
+    private volatile Map<String, JobStatus> snapshot = Collections.emptyMap();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param jenkinsHttpClient Jenkins HTTP client
+     * @param folderPath        path of the folder to watch, for example <code>/job/mobile-apps</code>. Empty to watch the jobs at the top level.
+     * @param pageSize          max number of jobs fetched by a single request. 0 fetches all jobs at once.
+     */
+    public JobStatusWatcher(JenkinsHttpClient jenkinsHttpClient, String folderPath, int pageSize) {
+        this.jenkinsHttpClient = jenkinsHttpClient;
+        this.folderPath = folderPath;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @param listener listener to tell about the changes
+     */
+    public void addListener(JobStatusListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(JobStatusListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the status of all jobs after the last refresh, by job name
+     */
+    public Map<String, JobStatus> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Fetch the status of all jobs now, and tell the listeners what changed since the previous refresh.
+     * On the first refresh, every job is reported as new.
+     *
+     * @return number of changed jobs
+     * @throws IOException if connection problems occur during connecting to Jenkins. The snapshot is kept as it was then.
+     */
+    public synchronized int refresh() throws IOException {
+        final Map<String, JobStatus> current = new HashMap<String, JobStatus>();
+        final boolean consistent = fetch(current);
+        final Map<String, JobStatus> previous = this.snapshot;
+        if (!consistent) {
+            // a skipped job would be reported deleted now and new again on the next refresh
+            for (JobStatus old : previous.values()) {
+                if (!current.containsKey(old.getJobName())) {
+                    current.put(old.getJobName(), old);
+                }
+            }
+            LOG.debug("Jobs moved between the pages of the refresh, not reporting deleted jobs");
+        }
+        this.snapshot = Collections.unmodifiableMap(current);
+
+        int changes = 0;
+        for (JobStatus status : current.values()) {
+            final JobStatus old = previous.get(status.getJobName());
+            if (!status.equals(old)) {
+                notifyListeners(old, status);
+                changes++;
+            }
+        }
+        for (JobStatus old : previous.values()) {
+            if (!current.containsKey(old.getJobName())) {
+                notifyListeners(old, null);
+                changes++;
+            }
+        }
+        LOG.debug("Refreshed the status of {} jobs, {} changed", current.size(), changes);
+        return changes;
+    }
+
+    /**
+     * Start refreshing periodically, in the background. Refresh failures are logged, and the next refresh is attempted as usual.
+     *
+     * @param refreshPeriod how often (in milliseconds) the jobs are refreshed
+     */
+    public synchronized void start(long refreshPeriod) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Watcher is already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("digger-job-watcher"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } catch (Exception e) {
+                    LOG.warn("Can not refresh the status of the jobs", e);
+                }
+            }
+        }, 0, refreshPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background refreshes. The HTTP client is not closed.
+     */
+    @Override
+    public void close() {
+        final ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = this.scheduler;
+            this.scheduler = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @param statuses where to put the status of the jobs, by job name. A job seen on two pages is only kept once.
+     * @return false if the jobs moved between the pages, so some of them may be missing
+     */
+    private boolean fetch(Map<String, JobStatus> statuses) throws IOException {
+        final String path = folderPath.isEmpty() ? "/" : folderPath;
+        if (pageSize <= 0) {
+            addStatuses(statuses, jenkinsHttpClient.get(TreeQuery.path(path, JOBS_TREE), JobList.class).getJobs());
+            return true;
+        }
+        boolean consistent = true;
+        String lastName = null;
+        for (int from = 0; ; from += pageSize) {
+            // every page but the first one starts with the last job of the previous page
+            final int start = from == 0 ? 0 : from - 1;
+            List<JobEntry> page = jenkinsHttpClient.get(TreeQuery.path(path, JOBS_TREE + "{" + start + "," + (from + pageSize) + "}"), JobList.class).getJobs();
+            if (from > 0) {
+                if (page.isEmpty() || !page.get(0).getName().equals(lastName)) {
+                    consistent = false;
+                } else {
+                    page = page.subList(1, page.size());
+                }
+            }
+            addStatuses(statuses, page);
+            if (page.size() < pageSize) {
+                return consistent;
+            }
+            lastName = page.get(page.size() - 1).getName();
+        }
+    }
+
+    private static void addStatuses(Map<String, JobStatus> statuses, List<JobEntry> jobs) {
+        for (JobEntry job : jobs) {
+            final BuildSummary lastBuild = job.getLastBuild();
+            final JobStatus status = lastBuild == null
+                ? new JobStatus(job.getName(), -1, false, null, 0)
+                : new JobStatus(job.getName(), lastBuild.getNumber(), lastBuild.isBuilding(), lastBuild.getResult(), lastBuild.getTimestamp());
+            statuses.put(status.getJobName(), status);
+        }
+    }
+
+    private void notifyListeners(JobStatus previous, JobStatus current) {
+        for (JobStatusListener listener : listeners) {
+            try {
+                listener.onChange(previous, current);
+            } catch (RuntimeException e) {
+                LOG.warn("Job status listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * The jobs of a folder, with only the fields of {@link #JOBS_TREE} fetched.
+     */
+    public static class JobList extends BaseModel {
+        private List<JobEntry> jobs = new ArrayList<JobEntry>();
+
+        public List<JobEntry> getJobs() {
+            return jobs;
+        }
+
+        public void setJobs(List<JobEntry> jobs) {
+            this.jobs = jobs;
+        }
+    }
+
+    public static class JobEntry {
+        private String name;
+        private BuildSummary lastBuild;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the last build. Null if the job was never built.
+         */
+        public BuildSummary getLastBuild() {
+            return lastBuild;
+        }
+
+        public void setLastBuild(BuildSummary lastBuild) {
+            this.lastBuild = lastBuild;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client;
+
+import com.offbytwo.jenkins.model.BuildResult;
+import org.aerogear.digger.client.journal.JournaledBuild;
+import org.aerogear.digger.client.journal.TriggerJournal;
+import org.aerogear.digger.client.model.BuildSummary;
+import org.aerogear.digger.client.model.BuildTriggerStatus;
+import org.aerogear.digger.client.services.BuildService;
+import org.aerogear.digger.client.stub.FakeJenkinsServer;
+import org.aerogear.digger.client.util.DiggerClientException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class DiggerClientJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FakeJenkinsServer jenkins;
+    private File journal;
+
+    @Before
+    public void setUp() throws Exception {
+        jenkins = new FakeJenkinsServer()
+            .queueDelay(100)
+            .buildDuration(200)
+            .start();
+        jenkins.addJob("app", "<project/>");
+        journal = new File(temporaryFolder.getRoot(), "triggers.journal");
+    }
+
+    @After
+    public void tearDown() {
+        jenkins.close();
+    }
+
+    @Test
+    public void shouldResumeJournaledBuildAfterRestart() throws Exception {
+        DiggerClient first = journaledClient();
+        first.triggerBuild("app", null);
+        first.close();
+
+        DiggerClient second = journaledClient();
+        try {
+            Map<JournaledBuild, Future<BuildSummary>> resumed = second.getResumedBuilds();
+            assertThat(resumed).hasSize(1);
+            JournaledBuild build = resumed.keySet().iterator().next();
+            assertThat(build.getJobName()).isEqualTo("app");
+
+            BuildSummary summary = resumed.get(build).get(10, TimeUnit.SECONDS);
+            assertThat(summary.getResult()).isEqualTo(BuildResult.SUCCESS);
+            assertThat(second.getJournaledBuilds()).isEmpty();
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    public void shouldRetireJournaledBuildWhenWaitEnds() throws Exception {
+        DiggerClient client = journaledClient();
+        try {
+            BuildTriggerStatus status = client.build("app", 10000);
+            // left the queue and not awaited
+            assertThat(client.getJournaledBuilds()).isEmpty();
+
+            client.awaitCompletion("app", status.getBuildNumber()).get(10, TimeUnit.SECONDS);
+            assertThat(client.getJournaledBuilds()).isEmpty();
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void shouldRetireBuildWhoseQueueItemIsGone() throws Exception {
+        // Jenkins forgets the queue items on restarts
+        TriggerJournal triggerJournal = TriggerJournal.open(journal);
+        triggerJournal.triggered("app", jenkins.getUrl() + "queue/item/999/", null);
+        triggerJournal.close();
+
+        DiggerClient client = journaledClient();
+        try {
+            Future<BuildSummary> resumed = client.getResumedBuilds().values().iterator().next();
+            try {
+                resumed.get(10, TimeUnit.SECONDS);
+                fail("Queue item should be gone");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(IllegalStateException.class).hasMessageContaining("Queue item is gone");
+            }
+            assertThat(client.getJournaledBuilds()).isEmpty();
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void shouldKeepBuildThatDidNotLeaveQueueInTime() throws Exception {
+        // no executor, the build never starts
+        FakeJenkinsServer busy = new FakeJenkinsServer().executors(0).start();
+        busy.addJob("app", "<project/>");
+        try {
+            DiggerClient first = journaledClient(busy, DiggerClient.DEFAULT_BUILD_TIMEOUT);
+            first.triggerBuild("app", null);
+            first.close();
+
+            DiggerClient second = journaledClient(busy, 100);
+            try {
+                Future<BuildSummary> resumed = second.getResumedBuilds().values().iterator().next();
+                try {
+                    resumed.get(10, TimeUnit.SECONDS);
+                    fail("Build should not leave the queue in time");
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class).hasMessageContaining("TIMED_OUT");
+                }
+                assertThat(second.getJournaledBuilds()).hasSize(1);
+            } finally {
+                second.close();
+            }
+        } finally {
+            busy.close();
+        }
+    }
+
+    private DiggerClient journaledClient() throws DiggerClientException {
+        return journaledClient(jenkins, DiggerClient.DEFAULT_BUILD_TIMEOUT);
+    }
+
+    private DiggerClient journaledClient(FakeJenkinsServer server, long resumeTimeout) throws DiggerClientException {
+        return DiggerClient.builder()
+            .withAuth(server.getUrl(), "admin", "admin")
+            .triggerBuildService(new BuildService(50, 50))
+            .triggerJournal(journal)
+            .resumeTimeout(resumeTimeout)
+            .build();
+    }
+}
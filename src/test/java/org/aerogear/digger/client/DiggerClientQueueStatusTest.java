@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client;
+
+import com.offbytwo.jenkins.model.QueueReference;
+import org.aerogear.digger.client.model.BuildTriggerStatus;
+import org.aerogear.digger.client.model.QueueEstimate;
+import org.aerogear.digger.client.services.BuildService;
+import org.aerogear.digger.client.stats.BuildStatistics;
+import org.aerogear.digger.client.stub.FakeJenkinsServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DiggerClientQueueStatusTest {
+
+    private static final Map<String, String> NO_PARAMS = Collections.emptyMap();
+
+    private FakeJenkinsServer jenkins;
+    private BuildStatistics statistics;
+    private DiggerClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        jenkins = new FakeJenkinsServer().executors(1).buildDuration(10000).start();
+        for (String job : Arrays.asList("first", "second", "third")) {
+            jenkins.addJob(job, "<project/>");
+        }
+        statistics = new BuildStatistics();
+        client = DiggerClient.builder()
+            .withAuth(jenkins.getUrl(), "admin", "admin")
+            .triggerBuildService(new BuildService(50, 50))
+            .buildStatistics(statistics)
+            .build();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        jenkins.close();
+    }
+
+    @Test
+    public void shouldEstimateStartOfQueuedBuild() throws Exception {
+        statistics.recordBuild("app", 1, 4000);
+        client.triggerBuild("first", NO_PARAMS);
+        client.triggerBuild("second", NO_PARAMS);
+        QueueReference third = client.triggerBuild("third", NO_PARAMS).getQueueReference();
+
+        BuildTriggerStatus status = client.getQueueStatus("third", third);
+
+        assertThat(status.getState()).isEqualTo(BuildTriggerStatus.State.TRIGGERED);
+        QueueEstimate estimate = status.getQueueEstimate();
+        assertThat(estimate.getPosition()).isEqualTo(1);
+        assertThat(estimate.getWhy()).isEqualTo("Waiting for next available executor");
+        assertThat(estimate.getMasterLoad().getBusyExecutors()).isEqualTo(1);
+        // the running build is half way through, then the second build runs
+        assertThat(estimate.getEstimatedWait(estimate.getMasterLoad().getTimestamp())).isEqualTo(6000);
+
+        BuildTriggerStatus timedOut = client.pollBuild("third", third, 100, NO_PARAMS);
+        assertThat(timedOut.getState()).isEqualTo(BuildTriggerStatus.State.TIMED_OUT);
+        assertThat(timedOut.getQueueEstimate().getPosition()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotEstimateStartWithoutRecordedBuilds() throws Exception {
+        client.triggerBuild("first", NO_PARAMS);
+        client.triggerBuild("second", NO_PARAMS);
+        QueueReference third = client.triggerBuild("third", NO_PARAMS).getQueueReference();
+
+        QueueEstimate estimate = client.getQueueStatus("third", third).getQueueEstimate();
+
+        assertThat(estimate.getPosition()).isEqualTo(1);
+        assertThat(estimate.getEstimatedStart()).isNegative();
+    }
+}
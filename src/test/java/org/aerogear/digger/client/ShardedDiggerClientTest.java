@@ -0,0 +1,183 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client;
+
+import com.offbytwo.jenkins.model.QueueReference;
+import org.aerogear.digger.client.model.BuildField;
+import org.aerogear.digger.client.model.BuildPlacement;
+import org.aerogear.digger.client.model.BuildTriggerStatus;
+import org.aerogear.digger.client.model.JobProvisioningReport;
+import org.aerogear.digger.client.model.JobSpec;
+import org.aerogear.digger.client.model.MasterLoad;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ShardedDiggerClientTest {
+
+    private static final int JOB_COUNT = 10000;
+
+    private ShardedDiggerClient client;
+
+    @Before
+    public void setUp() {
+        client = new ShardedDiggerClient();
+        client.addMaster("master1", mock(DiggerClient.class));
+        client.addMaster("master2", mock(DiggerClient.class));
+        client.addMaster("master3", mock(DiggerClient.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailWithoutMasters() {
+        new ShardedDiggerClient().getMasterId("job");
+    }
+
+    @Test
+    public void shouldSpreadJobsOverMasters() {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int i = 0; i < JOB_COUNT; i++) {
+            String masterId = client.getMasterId("job-" + i);
+            Integer count = counts.get(masterId);
+            counts.put(masterId, count == null ? 1 : count + 1);
+        }
+
+        assertThat(counts).hasSize(3);
+        for (Integer count : counts.values()) {
+            assertThat(count).isBetween(JOB_COUNT / 5, JOB_COUNT / 2);
+        }
+    }
+
+    @Test
+    public void shouldMoveFewJobsWhenMasterIsAdded() {
+        Map<String, String> before = new HashMap<String, String>();
+        for (int i = 0; i < JOB_COUNT; i++) {
+            before.put("job-" + i, client.getMasterId("job-" + i));
+        }
+
+        client.addMaster("master4", mock(DiggerClient.class));
+
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String masterId = client.getMasterId(entry.getKey());
+            if (!masterId.equals(entry.getValue())) {
+                // jobs only move to the new master
+                assertThat(masterId).isEqualTo("master4");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(JOB_COUNT / 8, JOB_COUNT * 3 / 8);
+    }
+
+    @Test
+    public void shouldDelegateToMasterOfJob() throws Exception {
+        String masterId = client.getMasterId("my-job");
+        DiggerClient master = client.getMasters().get(masterId);
+
+        client.build("my-job", 1000L);
+        client.getBuildLogs("my-job", 3);
+        client.awaitCompletion("my-job", 3);
+        client.getBuildProjection("my-job", 3, BuildField.RESULT);
+
+        verify(master).build("my-job", 1000L);
+        verify(master).getBuildLogs("my-job", 3);
+        verify(master).awaitCompletion("my-job", 3);
+        verify(master).getBuildProjection("my-job", 3, BuildField.RESULT);
+    }
+
+    @Test
+    public void shouldSendCallsAboutPlacedBuildToItsMaster() throws Exception {
+        String otherMasterId = client.getMasterId("my-job").equals("master1") ? "master2" : "master1";
+        DiggerClient jobMaster = client.getClient("my-job");
+        DiggerClient otherMaster = client.getMasters().get(otherMasterId);
+        QueueReference queueReference = new QueueReference("https://jenkins.example.com/queue/item/1/");
+        BuildPlacement placement = new BuildPlacement(otherMasterId, new BuildTriggerStatus(BuildTriggerStatus.State.TRIGGERED, 3, queueReference));
+
+        client.getQueueStatus(placement, "my-job");
+        client.getBuildLogs(placement, "my-job", 3);
+        client.awaitCompletion(placement, "my-job", 3);
+
+        verify(otherMaster).getQueueStatus("my-job", queueReference);
+        verify(otherMaster).getBuildLogs("my-job", 3);
+        verify(otherMaster).awaitCompletion("my-job", 3);
+        verifyZeroInteractions(jobMaster);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailForPlacementOnRemovedMaster() {
+        client.removeMaster("master3");
+
+        client.getClient(new BuildPlacement("master3", null));
+    }
+
+    @Test
+    public void shouldReportResultsInOrderOfSpecs() throws Exception {
+        String otherJob = "job-0";
+        for (int i = 1; client.getMasterId(otherJob).equals(client.getMasterId("my-job")); i++) {
+            otherJob = "job-" + i;
+        }
+        JobSpec job = new JobSpec("my-job", "repo", "branch");
+        JobSpec other = new JobSpec(otherJob, "repo", "branch");
+        JobProvisioningReport.Result created = new JobProvisioningReport.Result("my-job", null, 1);
+        JobProvisioningReport.Result failed = new JobProvisioningReport.Result("my-job", new IllegalStateException("already exists"), 1);
+        JobProvisioningReport.Result otherCreated = new JobProvisioningReport.Result(otherJob, null, 1);
+        when(client.getClient("my-job").createJobs(Arrays.asList(job, job), 2))
+            .thenReturn(new JobProvisioningReport(Arrays.asList(created, failed), 1));
+        when(client.getClient(otherJob).createJobs(Collections.singletonList(other), 2))
+            .thenReturn(new JobProvisioningReport(Collections.singletonList(otherCreated), 1));
+
+        // the same spec is given twice
+        JobProvisioningReport report = client.createJobs(Arrays.asList(job, other, job), 2);
+
+        assertThat(report.getResults()).containsExactly(created, otherCreated, failed);
+    }
+
+    @Test
+    public void shouldTriggerOnLeastLoadedMaster() throws Exception {
+        Map<String, DiggerClient> masters = client.getMasters();
+        // backlog of master1: 5 - 2 = 3, master2: 1 - 0 = 1, master3: 0 - 1 = -1
+        when(masters.get("master1").getMasterLoad()).thenReturn(new MasterLoad(5, 2, 4, 0));
+        when(masters.get("master2").getMasterLoad()).thenReturn(new MasterLoad(1, 2, 2, 0));
+        when(masters.get("master3").getMasterLoad()).thenReturn(new MasterLoad(0, 1, 2, 0));
+        BuildTriggerStatus triggered = new BuildTriggerStatus(BuildTriggerStatus.State.TRIGGERED, 1, new QueueReference("https://jenkins.example.com/queue/item/1/"));
+        when(masters.get("master2").triggerBuild("job", Collections.<String, String>emptyMap())).thenReturn(triggered);
+        when(masters.get("master3").triggerBuild("job", Collections.<String, String>emptyMap())).thenReturn(triggered);
+
+        client.refreshLoads();
+        assertThat(client.getMasterLoads()).hasSize(3);
+
+        BuildPlacement first = client.triggerBuildOnLeastLoadedMaster("job", Arrays.asList("master1", "master2", "master3"), Collections.<String, String>emptyMap());
+        assertThat(first.getMasterId()).isEqualTo("master3");
+        assertThat(first.getStatus()).isSameAs(triggered);
+
+        // the triggered builds are counted in the snapshot until the next refresh
+        BuildPlacement second = client.triggerBuildOnLeastLoadedMaster("job", Arrays.asList("master1", "master2", "master3"), Collections.<String, String>emptyMap());
+        assertThat(second.getMasterId()).isEqualTo("master3");
+        assertThat(client.getMasterLoads().get("master3").getQueueLength()).isEqualTo(2);
+
+        BuildPlacement third = client.triggerBuildOnLeastLoadedMaster("job", Arrays.asList("master1", "master2"), Collections.<String, String>emptyMap());
+        assertThat(third.getMasterId()).isEqualTo("master2");
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.history;
+
+import com.offbytwo.jenkins.model.BuildResult;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BuildColumnsTest {
+
+    @Test
+    public void shouldKeepBuildsInColumns() {
+        BuildColumns columns = BuildColumns.of(builds(1, 1000), false);
+
+        assertThat(columns.size()).isEqualTo(1000);
+        assertThat(columns.getSizeInBytes()).isEqualTo(21000);
+        assertThat(columns.getNumber(9)).isEqualTo(10);
+        assertThat(columns.getResult(9)).isEqualTo(BuildResult.SUCCESS);
+        assertThat(columns.getResult(999)).isNull();
+        assertThat(columns.isBuilding(999)).isTrue();
+        assertThat(columns.indexOf(500)).isEqualTo(499);
+        assertThat(columns.indexOf(1001)).isNegative();
+    }
+
+    @Test
+    public void shouldFindBuildsInTimeRange() {
+        JobHistory history = new JobHistory("app", BuildColumns.of(builds(1, 1000), true), 0);
+
+        List<BuildRecord> builds = history.getBuilds(timestamp(10), timestamp(13));
+
+        assertThat(builds).hasSize(3);
+        assertThat(builds.get(0).getNumber()).isEqualTo(10);
+        assertThat(builds.get(2).getNumber()).isEqualTo(12);
+        assertThat(history.getBuilds(timestamp(2000), timestamp(3000))).isEmpty();
+    }
+
+    @Test
+    public void shouldMergeChanges() {
+        BuildColumns columns = BuildColumns.of(builds(1, 10), false);
+        SortedMap<Integer, BuildRecord> changes = new TreeMap<Integer, BuildRecord>();
+        changes.put(10, new BuildRecord(10, false, BuildResult.ABORTED, 5, timestamp(10)));
+        changes.put(11, new BuildRecord(11, true, null, 0, timestamp(11)));
+
+        BuildColumns merged = columns.merge(changes, Collections.singleton(3));
+
+        assertThat(merged.size()).isEqualTo(10);
+        assertThat(merged.indexOf(3)).isNegative();
+        assertThat(merged.getResult(merged.indexOf(10))).isEqualTo(BuildResult.ABORTED);
+        assertThat(merged.isBuilding(merged.indexOf(11))).isTrue();
+        assertThat(columns.size()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldWriteAndReadColumns() throws Exception {
+        BuildColumns columns = BuildColumns.of(builds(1, 100), false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        columns.writeTo(new DataOutputStream(bytes));
+
+        BuildColumns read = BuildColumns.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), true);
+
+        assertThat(read.isOffHeap()).isTrue();
+        assertThat(read.size()).isEqualTo(100);
+        assertThat(read.get(41).toString()).isEqualTo(columns.get(41).toString());
+        assertThat(read.getTimestamp(41)).isEqualTo(columns.getTimestamp(41));
+    }
+
+    @Test
+    public void shouldKeepEveryResult() {
+        List<BuildRecord> builds = new ArrayList<BuildRecord>();
+        for (BuildResult result : BuildResult.values()) {
+            builds.add(new BuildRecord(builds.size() + 1, false, result, 1, timestamp(builds.size() + 1)));
+        }
+
+        BuildColumns columns = BuildColumns.of(builds, false);
+
+        for (int i = 0; i < builds.size(); i++) {
+            assertThat(columns.getResult(i)).isEqualTo(builds.get(i).getResult());
+        }
+    }
+
+    @Test
+    public void shouldWriteStableResultCodes() throws Exception {
+        BuildColumns columns = BuildColumns.of(Collections.singletonList(new BuildRecord(1, false, BuildResult.FAILURE, 1, timestamp(1))), false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        columns.writeTo(new DataOutputStream(bytes));
+
+        // the result is the last byte
+        assertThat(bytes.toByteArray()[bytes.size() - 1]).isEqualTo((byte) 3);
+    }
+
+    @Test
+    public void shouldScanWhenBuildsAreNotOrderedByTime() {
+        List<BuildRecord> builds = new ArrayList<BuildRecord>();
+        builds.add(new BuildRecord(1, false, BuildResult.SUCCESS, 1, timestamp(5)));
+        builds.add(new BuildRecord(2, false, BuildResult.SUCCESS, 1, timestamp(1)));
+        JobHistory history = new JobHistory("app", BuildColumns.of(builds, false), 0);
+
+        assertThat(history.getColumns().isTimeOrdered()).isFalse();
+        assertThat(history.getBuilds(timestamp(0), timestamp(2))).hasSize(1);
+    }
+
+    /**
+     * @return finished builds, except the last one which is running
+     */
+    private static List<BuildRecord> builds(int first, int last) {
+        List<BuildRecord> builds = new ArrayList<BuildRecord>();
+        for (int number = first; number <= last; number++) {
+            BuildResult result = number == last ? null : number % 3 == 0 ? BuildResult.FAILURE : BuildResult.SUCCESS;
+            builds.add(new BuildRecord(number, number == last, result, 1000, timestamp(number)));
+        }
+        return builds;
+    }
+
+    private static long timestamp(int number) {
+        return 1500000000000L + number * 60000L;
+    }
+}
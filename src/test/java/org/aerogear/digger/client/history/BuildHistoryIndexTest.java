@@ -0,0 +1,124 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.history;
+
+import com.offbytwo.jenkins.model.BuildResult;
+import org.aerogear.digger.client.DiggerClient;
+import org.aerogear.digger.client.services.BuildService;
+import org.aerogear.digger.client.stub.FakeJenkinsServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BuildHistoryIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FakeJenkinsServer jenkins;
+    private DiggerClient client;
+    private BuildHistoryIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        jenkins = new FakeJenkinsServer()
+            .queueDelay(0)
+            .buildDuration(300)
+            .start();
+        client = DiggerClient.builder()
+            .withAuth(jenkins.getUrl(), "admin", "admin")
+            .triggerBuildService(new BuildService(20, 20))
+            .build();
+        jenkins.addJob("app", "<project/>");
+        index = new BuildHistoryIndex(temporaryFolder.newFolder("history"), 2);
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        jenkins.close();
+    }
+
+    @Test
+    public void shouldFetchWholeHistoryOnFirstSync() throws Exception {
+        runBuild();
+        runBuild();
+        runBuild();
+        long requestsBefore = jenkins.getRequestCount();
+
+        JobHistory history = client.syncBuildHistory(index, "app");
+
+        assertThat(history.getBuilds()).hasSize(3);
+        assertThat(history.getHighestBuildNumber()).isEqualTo(3);
+        assertThat(history.getBuild(1).getResult()).isEqualTo(BuildResult.SUCCESS);
+        // two pages of two builds
+        assertThat(jenkins.getRequestCount() - requestsBefore).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFetchOnlyNewAndRunningBuilds() throws Exception {
+        runBuild();
+        runBuild();
+        runBuild();
+        client.syncBuildHistory(index, "app");
+
+        int running = client.build("app", 10000).getBuildNumber();
+        JobHistory history = client.syncBuildHistory(index, "app");
+        assertThat(history.getRunningBuilds()).hasSize(1);
+        assertThat(history.getBuild(running).isBuilding()).isTrue();
+
+        client.awaitCompletion("app", running).get(10, TimeUnit.SECONDS);
+        long requestsBefore = jenkins.getRequestCount();
+        history = client.syncBuildHistory(index, "app");
+
+        assertThat(history.getRunningBuilds()).isEmpty();
+        assertThat(history.getBuild(running).getResult()).isEqualTo(BuildResult.SUCCESS);
+        assertThat(history.getBuilds()).hasSize(4);
+        assertThat(jenkins.getRequestCount() - requestsBefore).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldPersistIndex() throws Exception {
+        runBuild();
+        client.syncBuildHistory(index, "app");
+
+        BuildHistoryIndex reopened = new BuildHistoryIndex(index.getDirectory());
+        JobHistory history = reopened.get("app");
+
+        assertThat(history.getBuilds()).hasSize(1);
+        assertThat(history.getBuild(1).getResult()).isEqualTo(BuildResult.SUCCESS);
+        assertThat(history.getLastSync()).isPositive();
+    }
+
+    @Test
+    public void shouldReturnEmptyHistoryForUnknownJob() throws Exception {
+        JobHistory history = index.get("unknown");
+
+        assertThat(history.getBuilds()).isEmpty();
+        assertThat(history.getHighestBuildNumber()).isEqualTo(0);
+    }
+
+    private void runBuild() throws Exception {
+        int buildNumber = client.build("app", 10000).getBuildNumber();
+        client.awaitCompletion("app", buildNumber).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.journal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TriggerJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private TriggerJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(temporaryFolder.getRoot(), "triggers.journal");
+        journal = TriggerJournal.open(file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.close();
+    }
+
+    @Test
+    public void shouldReplayPendingBuilds() throws Exception {
+        journal.triggered("app", "http://jenkins/queue/item/1/", Collections.singletonMap("BRANCH", "master"));
+        journal.triggered("app", "http://jenkins/queue/item/2/", null);
+        journal.awaited("app", 7);
+        journal.awaited("lib", 2);
+        journal.finished("http://jenkins/queue/item/2/");
+        journal.finished("lib", 2);
+
+        reopen();
+
+        assertThat(journal.getPendingBuilds()).hasSize(2);
+        JournaledBuild queued = journal.getPendingBuilds().get(0);
+        assertThat(queued.getJobName()).isEqualTo("app");
+        assertThat(queued.isStarted()).isFalse();
+        assertThat(queued.getParams()).containsEntry("BRANCH", "master");
+        JournaledBuild awaited = journal.getPendingBuilds().get(1);
+        assertThat(awaited.getJobName()).isEqualTo("app");
+        assertThat(awaited.getBuildNumber()).isEqualTo(7);
+        assertThat(awaited.getQueueReference()).isNull();
+    }
+
+    @Test
+    public void shouldKeepParamsWithoutValue() throws Exception {
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("BRANCH", "master");
+        params.put("EMPTY", null);
+        journal.triggered("app", "http://jenkins/queue/item/1/", params);
+
+        reopen();
+
+        assertThat(journal.getPendingBuilds().get(0).getParams()).isEqualTo(params);
+    }
+
+    @Test
+    public void shouldIgnoreSameQueueItemTriggeredTwice() throws Exception {
+        journal.triggered("app", "http://jenkins/queue/item/1/", null);
+        int size = journal.size();
+
+        journal.triggered("app", "http://jenkins/queue/item/1/", null);
+
+        assertThat(journal.size()).isEqualTo(size);
+        assertThat(journal.getPendingBuilds()).hasSize(1);
+    }
+
+    @Test
+    public void shouldDropIncompleteRecord() throws Exception {
+        journal.triggered("app", "http://jenkins/queue/item/1/", null);
+        int end = journal.size();
+        journal.triggered("app", "http://jenkins/queue/item/2/", null);
+        journal.close();
+
+        // a crash in the middle of the second record
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(end + 12);
+        raf.write(new byte[]{1, 2, 3});
+        raf.close();
+        journal = TriggerJournal.open(file);
+
+        assertThat(journal.getPendingBuilds()).hasSize(1);
+        assertThat(journal.size()).isEqualTo(end);
+
+        journal.triggered("app", "http://jenkins/queue/item/3/", null);
+        reopen();
+        assertThat(journal.getPendingBuilds()).hasSize(2);
+    }
+
+    @Test
+    public void shouldCompactFinishedBuilds() throws Exception {
+        journal.triggered("app", "http://jenkins/queue/item/0/", null);
+        for (int i = 1; i < 5000; i++) {
+            String queueItemUrl = "http://jenkins/queue/item/" + i + "/";
+            journal.triggered("app", queueItemUrl, null);
+            journal.finished(queueItemUrl);
+            journal.awaited("app", i);
+            journal.finished("app", i);
+        }
+        // compacted on its own on the way
+        assertThat(journal.size()).isLessThan(TriggerJournal.DEFAULT_COMPACTION_THRESHOLD);
+
+        journal.compact();
+        assertThat(journal.size()).isLessThan(100);
+        journal.awaited("app", 9000);
+
+        reopen();
+        assertThat(journal.getPendingBuilds()).hasSize(2);
+        assertThat(journal.getPendingBuilds().get(0).getQueueItemUrl()).isEqualTo("http://jenkins/queue/item/0/");
+        assertThat(journal.getPendingBuilds().get(1).getBuildNumber()).isEqualTo(9000);
+    }
+
+    private void reopen() throws Exception {
+        journal.close();
+        journal = TriggerJournal.open(file);
+    }
+}
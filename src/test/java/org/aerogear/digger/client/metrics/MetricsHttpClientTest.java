@@ -0,0 +1,93 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.metrics;
+
+import org.aerogear.digger.client.util.HttpClientTestSupport;
+import org.aerogear.digger.client.util.RequestRejectedException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.util.EntityUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MetricsHttpClientTest extends HttpClientTestSupport {
+
+    @Mock
+    private DiggerMetrics metrics;
+
+    private MetricsHttpClient client;
+
+    @Before
+    public void setUp() {
+        client = new MetricsHttpClient(delegate, metrics);
+    }
+
+    @Test
+    public void shouldRecordRequestWhenContentIsRead() throws Exception {
+        whenExecuted().thenReturn(response(200, 5));
+
+        CloseableHttpResponse response = client.execute(HOST, new BasicHttpRequest("GET", "/job/test/api/json"));
+        verifyZeroInteractions(metrics);
+
+        EntityUtils.consume(response.getEntity());
+        verify(metrics).recordRequest(eq(Operation.GET_JOB), anyLong(), eq(0L), eq(5L), eq(Outcome.SUCCESS));
+    }
+
+    @Test
+    public void shouldRecordOutcomes() throws Exception {
+        whenExecuted()
+            .thenReturn(response(404, 0))
+            .thenThrow(new RequestRejectedException("too many"));
+
+        EntityUtils.consume(client.execute(HOST, new BasicHttpRequest("GET", "/job/missing/api/json")).getEntity());
+        verify(metrics).recordRequest(eq(Operation.GET_JOB), anyLong(), eq(0L), eq(0L), eq(Outcome.CLIENT_ERROR));
+
+        try {
+            client.execute(HOST, new BasicHttpRequest("POST", "/job/test/build"));
+            fail("Request should be rejected");
+        } catch (RequestRejectedException e) {
+            verify(metrics).recordRequest(eq(Operation.TRIGGER), anyLong(), eq(0L), eq(0L), eq(Outcome.REJECTED));
+        }
+    }
+
+    @Test
+    public void shouldTrackOpenArtifactStreams() throws Exception {
+        whenExecuted().thenReturn(response(200, 3));
+
+        InputStream content = client.execute(HOST, new BasicHttpRequest("GET", "/job/test/1/artifact/app.apk")).getEntity().getContent();
+        content.read();
+        content.close();
+
+        InOrder inOrder = inOrder(metrics);
+        inOrder.verify(metrics).recordGauge(Gauge.ARTIFACT_STREAMS, 1);
+        inOrder.verify(metrics).recordRequest(eq(Operation.ARTIFACT_DOWNLOAD), anyLong(), eq(0L), eq(1L), eq(Outcome.SUCCESS));
+        inOrder.verify(metrics).recordGauge(Gauge.ARTIFACT_STREAMS, 0);
+    }
+}
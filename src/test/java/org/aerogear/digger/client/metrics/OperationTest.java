@@ -0,0 +1,53 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.metrics;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OperationTest {
+
+    @Test
+    public void shouldClassifyJobRequests() {
+        assertThat(Operation.of("GET", "http://localhost:8080/job/test/api/json")).isEqualTo(Operation.GET_JOB);
+        assertThat(Operation.of("POST", "http://localhost:8080/createItem?name=test")).isEqualTo(Operation.CREATE_JOB);
+        assertThat(Operation.of("GET", "http://localhost:8080/job/test/config.xml")).isEqualTo(Operation.GET_JOB_CONFIG);
+        assertThat(Operation.of("POST", "http://localhost:8080/job/test/config.xml")).isEqualTo(Operation.UPDATE_JOB);
+        assertThat(Operation.of("POST", "http://localhost:8080/job/test/doDelete")).isEqualTo(Operation.DELETE_JOB);
+    }
+
+    @Test
+    public void shouldClassifyBuildRequests() {
+        assertThat(Operation.of("POST", "http://localhost:8080/job/test/build?delay=0sec")).isEqualTo(Operation.TRIGGER);
+        assertThat(Operation.of("POST", "http://localhost:8080/job/test/buildWithParameters")).isEqualTo(Operation.TRIGGER);
+        assertThat(Operation.of("GET", "http://localhost:8080/queue/item/42/api/json")).isEqualTo(Operation.QUEUE_POLL);
+        assertThat(Operation.of("GET", "http://localhost:8080/job/test/4/api/json?depth=1")).isEqualTo(Operation.BUILD_DETAILS);
+        assertThat(Operation.of("POST", "http://localhost:8080/job/test/4/stop")).isEqualTo(Operation.STOP_BUILD);
+        assertThat(Operation.of("GET", "http://localhost:8080/job/test/4/logText/progressiveText?start=0")).isEqualTo(Operation.LOG);
+        assertThat(Operation.of("GET", "http://localhost:8080/job/test/4/artifact/app.apk")).isEqualTo(Operation.ARTIFACT_DOWNLOAD);
+    }
+
+    @Test
+    public void shouldClassifyOtherRequests() {
+        assertThat(Operation.of("POST", "http://localhost:8080/credentials/store/system/domain/_/createCredentials")).isEqualTo(Operation.CREDENTIALS);
+        assertThat(Operation.of("POST", "http://localhost:8080/credentials/store/system/domain/_/credential/abc/doDelete")).isEqualTo(Operation.CREDENTIALS);
+        assertThat(Operation.of("GET", "http://localhost:8080/crumbIssuer/api/json")).isEqualTo(Operation.CRUMB);
+        assertThat(Operation.of("GET", "/computer/api/json?tree=busyExecutors")).isEqualTo(Operation.MASTER_LOAD);
+        assertThat(Operation.of("GET", "http://localhost:8080/queue/api/json?tree=items[id]")).isEqualTo(Operation.MASTER_LOAD);
+        assertThat(Operation.of("GET", "http://localhost:8080/api/json")).isEqualTo(Operation.OTHER);
+    }
+}
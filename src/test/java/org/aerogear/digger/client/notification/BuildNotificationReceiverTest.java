@@ -0,0 +1,151 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.notification;
+
+import com.offbytwo.jenkins.model.BuildResult;
+import org.aerogear.digger.client.DiggerClient;
+import org.aerogear.digger.client.model.BuildSummary;
+import org.aerogear.digger.client.model.BuildTriggerStatus;
+import org.aerogear.digger.client.services.BuildService;
+import org.aerogear.digger.client.stub.FakeJenkinsServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BuildNotificationReceiverTest {
+
+    private BuildNotificationReceiver receiver;
+    private final BlockingQueue<BuildEvent> events = new LinkedBlockingQueue<BuildEvent>();
+
+    @Before
+    public void setUp() throws Exception {
+        receiver = new BuildNotificationReceiver(new InetSocketAddress("127.0.0.1", 0));
+        receiver.addListener(new BuildEventListener() {
+            @Override
+            public void onEvent(BuildEvent event) {
+                events.add(event);
+            }
+        });
+        receiver.start();
+    }
+
+    @After
+    public void tearDown() {
+        receiver.close();
+    }
+
+    @Test
+    public void shouldPassNotificationsToListeners() throws Exception {
+        int status = post("POST", "{\"name\":\"app\",\"url\":\"job/app/\",\"build\":{\"full_url\":\"http://jenkins/job/app/7/\","
+            + "\"number\":7,\"queue_id\":42,\"phase\":\"COMPLETED\",\"status\":\"FAILURE\",\"log\":\"\"}}");
+
+        assertThat(status).isEqualTo(200);
+        BuildEvent event = events.poll(5, TimeUnit.SECONDS);
+        assertThat(event.getJobName()).isEqualTo("app");
+        assertThat(event.getBuildNumber()).isEqualTo(7);
+        assertThat(event.getQueueId()).isEqualTo(42);
+        assertThat(event.getPhase()).isEqualTo(BuildEvent.Phase.COMPLETED);
+        assertThat(event.getResult()).isEqualTo(BuildResult.FAILURE);
+    }
+
+    @Test
+    public void shouldAcceptNotificationsWithoutOptionalFields() throws Exception {
+        BuildEvent event = receiver.parse("{\"name\":\"app\",\"build\":{\"phase\":\"QUEUED\",\"status\":\"NOT_A_RESULT\"}}".getBytes("UTF-8"), 1000);
+
+        assertThat(event.getBuildNumber()).isZero();
+        assertThat(event.getQueueId()).isEqualTo(-1);
+        assertThat(event.getResult()).isNull();
+        assertThat(event.getReceivedAt()).isEqualTo(1000);
+    }
+
+    @Test
+    public void shouldRejectRequestsThatAreNotNotifications() throws Exception {
+        assertThat(post("POST", "{\"name\":\"app\"}")).isEqualTo(400);
+        assertThat(post("POST", "{\"name\":\"app\",\"build\":{\"phase\":\"EXPLODED\"}}")).isEqualTo(400);
+        assertThat(post("POST", "not json")).isEqualTo(400);
+        assertThat(post("PUT", "{}")).isEqualTo(405);
+
+        assertThat(receiver.getRejectedCount()).isEqualTo(4);
+        assertThat(receiver.getReceivedCount()).isZero();
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    public void shouldWakeUpClientPolls() throws Exception {
+        FakeJenkinsServer jenkins = new FakeJenkinsServer()
+            .queueDelay(100)
+            .buildDuration(300)
+            .notificationUrl("http://127.0.0.1:" + receiver.getAddress().getPort() + BuildNotificationReceiver.DEFAULT_PATH)
+            .start();
+        // polls are only a safety net, they would not see the build in time
+        DiggerClient client = DiggerClient.builder()
+            .withAuth(jenkins.getUrl(), "admin", "admin")
+            .triggerBuildService(new BuildService(60000, 60000))
+            .notificationReceiver(receiver)
+            .build();
+        try {
+            jenkins.addJob("app", "<project/>");
+
+            BuildTriggerStatus status = client.build("app", 10000);
+            assertThat(status.getState()).isEqualTo(BuildTriggerStatus.State.STARTED_BUILDING);
+            BuildSummary summary = client.awaitCompletion("app", status.getBuildNumber()).get(5, TimeUnit.SECONDS);
+
+            assertThat(summary.getResult()).isEqualTo(BuildResult.SUCCESS);
+            List<BuildEvent.Phase> phases = new ArrayList<BuildEvent.Phase>();
+            for (BuildEvent event : events) {
+                phases.add(event.getPhase());
+            }
+            assertThat(phases).containsSubsequence(BuildEvent.Phase.QUEUED, BuildEvent.Phase.STARTED, BuildEvent.Phase.COMPLETED);
+            assertThat(jenkins.getRequestCount()).isLessThan(10);
+        } finally {
+            client.close();
+            jenkins.close();
+        }
+    }
+
+    private int post(String method, String json) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + receiver.getAddress().getPort() + BuildNotificationReceiver.DEFAULT_PATH);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        OutputStream out = connection.getOutputStream();
+        try {
+            out.write(json.getBytes(Charset.forName("UTF-8")));
+        } finally {
+            out.close();
+        }
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -17,24 +17,49 @@ package org.aerogear.digger.client.services;
 
 import com.google.common.collect.Lists;
 import com.offbytwo.jenkins.JenkinsServer;
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
 import com.offbytwo.jenkins.helper.BuildConsoleStreamListener;
 import com.offbytwo.jenkins.model.*;
+import org.aerogear.digger.client.model.BuildField;
+import org.aerogear.digger.client.model.BuildProjection;
+import org.aerogear.digger.client.model.BuildSummary;
 import org.aerogear.digger.client.model.BuildTriggerStatus;
 import org.aerogear.digger.client.model.LogStreamingOptions;
+import org.aerogear.digger.client.model.MasterLoad;
 import org.aerogear.digger.client.util.DiggerClientException;
+import org.apache.http.client.HttpResponseException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -253,4 +278,367 @@ public class BuildServiceTest {
         Mockito.verify(mockBuild, Mockito.times(1)).Stop();
     }
 
+    @Test
+    public void shouldCoalesceTriggersWithSameParameters() throws Exception {
+        service = new BuildService(300, 50, 10000);
+        final Map<String, String> params = new HashMap<String, String>();
+        params.put("BRANCH", "master");
+        params.put("PLATFORM", "android");
+        final Map<String, String> sameParams = new HashMap<String, String>();
+        sameParams.put("PLATFORM", "android");
+        sameParams.put("BRANCH", "master");
+        Mockito.when(mockJob.build(params)).thenReturn(queueReference);
+
+        BuildTriggerStatus first = service.triggerBuild(jenkinsServer, "TEST", params);
+        BuildTriggerStatus second = service.triggerBuild(jenkinsServer, "TEST", sameParams);
+
+        assertThat(second.getQueueReference()).isSameAs(first.getQueueReference());
+        assertThat(service.getCoalescedTriggerCount()).isEqualTo(1);
+        verify(mockJob, times(1)).build(params);
+    }
+
+    @Test
+    public void shouldNotCoalesceTriggersWithDifferentParameters() throws Exception {
+        service = new BuildService(300, 50, 10000);
+        final Map<String, String> android = new HashMap<String, String>();
+        android.put("PLATFORM", "android");
+        final Map<String, String> ios = new HashMap<String, String>();
+        ios.put("PLATFORM", "ios");
+        Mockito.when(mockJob.build(android)).thenReturn(queueReference);
+        Mockito.when(mockJob.build(ios)).thenReturn(new QueueReference("https://jenkins.example.com/queue/item/124/"));
+
+        BuildTriggerStatus first = service.triggerBuild(jenkinsServer, "TEST", android);
+        BuildTriggerStatus second = service.triggerBuild(jenkinsServer, "TEST", ios);
+
+        assertThat(second.getQueueReference()).isNotSameAs(first.getQueueReference());
+        assertThat(service.getCoalescedTriggerCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotCoalesceWithFailedTrigger() throws Exception {
+        service = new BuildService(300, 50, 10000);
+        Mockito.when(mockJob.build()).thenReturn(null).thenReturn(queueReference);
+
+        try {
+            service.triggerBuild(jenkinsServer, "TEST", null);
+            fail("Trigger without a queue reference should fail");
+        } catch (IllegalStateException expected) {
+            // queue reference was null
+        }
+        BuildTriggerStatus status = service.triggerBuild(jenkinsServer, "TEST", null);
+
+        assertThat(status.getQueueReference()).isSameAs(queueReference);
+        verify(mockJob, times(2)).build();
+    }
+
+    @Test
+    public void shouldShareTriggerInFlight() throws Exception {
+        service = new BuildService(300, 50, 10000);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(mockJob.build()).thenAnswer(blockingAnswer(release, queueReference));
+
+        final FutureTask<BuildTriggerStatus> first = triggerInThread();
+        final FutureTask<BuildTriggerStatus> second = triggerInThread();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getQueueReference()).isSameAs(queueReference);
+        assertThat(second.get(5, TimeUnit.SECONDS).getQueueReference()).isSameAs(queueReference);
+        assertThat(service.getCoalescedTriggerCount()).isEqualTo(1);
+        verify(mockJob, times(1)).build();
+    }
+
+    @Test
+    public void shouldFailCallersWaitingForFailedTrigger() throws Exception {
+        service = new BuildService(300, 50, 10000);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(mockJob.build()).thenAnswer(blockingAnswer(release, null));
+
+        final FutureTask<BuildTriggerStatus> first = triggerInThread();
+        final FutureTask<BuildTriggerStatus> second = triggerInThread();
+        release.countDown();
+
+        for (FutureTask<BuildTriggerStatus> trigger : Arrays.asList(first, second)) {
+            try {
+                trigger.get(5, TimeUnit.SECONDS);
+                fail("Trigger without a queue reference should fail");
+            } catch (ExecutionException expected) {
+                assertThat(expected.getCause()).isInstanceOf(IllegalStateException.class);
+            }
+        }
+        verify(mockJob, times(1)).build();
+    }
+
+    /**
+     * @return an answer that blocks until released, then returns the given queue reference
+     */
+    private static Answer<QueueReference> blockingAnswer(final CountDownLatch release, final QueueReference queueReference) {
+        return new Answer<QueueReference>() {
+            @Override
+            public QueueReference answer(InvocationOnMock invocation) throws Throwable {
+                release.await();
+                return queueReference;
+            }
+        };
+    }
+
+    /**
+     * Trigger the build in a new thread, and return once the thread waits, either in the trigger or for another trigger.
+     */
+    private FutureTask<BuildTriggerStatus> triggerInThread() throws InterruptedException {
+        final FutureTask<BuildTriggerStatus> trigger = new FutureTask<BuildTriggerStatus>(new Callable<BuildTriggerStatus>() {
+            @Override
+            public BuildTriggerStatus call() throws Exception {
+                return service.triggerBuild(jenkinsServer, "TEST", null);
+            }
+        });
+        final Thread thread = new Thread(trigger, "trigger");
+        thread.setDaemon(true);
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        return trigger;
+    }
+
+    @Test
+    public void shouldNotCoalesceTriggersByDefault() throws Exception {
+        Mockito.when(mockJob.build()).thenReturn(queueReference);
+
+        service.triggerBuild(jenkinsServer, "TEST", null);
+        service.triggerBuild(jenkinsServer, "TEST", null);
+
+        verify(mockJob, times(2)).build();
+    }
+
+    @Test
+    public void shouldPollRunningBuildByEstimatedRemainingTime() {
+        final BuildSummary summary = new BuildSummary();
+        summary.setBuilding(true);
+        summary.setTimestamp(100000);
+        summary.setEstimatedDuration(60000);
+
+        // 40 seconds left
+        assertThat(BuildService.nextCompletionPollDelay(summary, 120000, 1000)).isEqualTo(20000);
+        // 1 second left
+        assertThat(BuildService.nextCompletionPollDelay(summary, 159000, 1000)).isEqualTo(1000);
+        // 10 minutes left
+        summary.setEstimatedDuration(630000);
+        assertThat(BuildService.nextCompletionPollDelay(summary, 130000, 1000)).isEqualTo(BuildService.MAX_COMPLETION_POLL_PERIOD);
+    }
+
+    @Test
+    public void shouldPollOverdueBuildLessOftenTheLongerItRuns() {
+        final BuildSummary summary = new BuildSummary();
+        summary.setBuilding(true);
+        summary.setTimestamp(100000);
+        summary.setEstimatedDuration(-1);
+
+        assertThat(BuildService.nextCompletionPollDelay(summary, 105000, 1000)).isEqualTo(1000);
+        assertThat(BuildService.nextCompletionPollDelay(summary, 200000, 1000)).isEqualTo(10000);
+    }
+
+    @Test
+    public void shouldCheckQueueRightAwayWhenWokenUp() throws Exception {
+        final BuildService slowService = new BuildService(60000, 60000);
+        final QueueItem queueItem = new QueueItem();
+        final Executable executable = new Executable();
+        executable.setNumber(98L);
+        queueItem.setExecutable(executable);
+        Mockito.when(jenkinsServer.getQueueItem(queueReference)).thenReturn(queueItem);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<BuildTriggerStatus> poll = executor.submit(new Callable<BuildTriggerStatus>() {
+                @Override
+                public BuildTriggerStatus call() throws Exception {
+                    return slowService.pollBuild(jenkinsServer, "TEST", queueReference, 120000, null);
+                }
+            });
+            while (slowService.wakeUp("TEST") == 0) {
+                Thread.sleep(10);
+            }
+
+            assertThat(poll.get(5, TimeUnit.SECONDS).getBuildNumber()).isEqualTo(98);
+            assertThat(slowService.wakeUp("TEST")).isZero();
+            assertThat(slowService.wakeUp("OTHER")).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldMeasureQueueWaitFromWhenBuildWasQueued() {
+        final QueueItem queueItem = new QueueItem();
+        queueItem.setInQueueSince(100000);
+
+        assertThat(BuildService.queueWait(queueItem, 150000, 160000)).isEqualTo(60000);
+        // unknown or ahead of the local clock
+        queueItem.setInQueueSince(0);
+        assertThat(BuildService.queueWait(queueItem, 150000, 160000)).isEqualTo(10000);
+        queueItem.setInQueueSince(170000);
+        assertThat(BuildService.queueWait(queueItem, 150000, 160000)).isEqualTo(10000);
+    }
+
+    @Test
+    public void shouldEstimateStartFromExecutorsAndRecentDurations() {
+        final MasterLoad load = new MasterLoad(5, 2, 2, 0);
+
+        assertThat(BuildService.estimateStart(0, load, 60000, 100000)).isEqualTo(130000);
+        assertThat(BuildService.estimateStart(3, load, 60000, 100000)).isEqualTo(190000);
+        assertThat(BuildService.estimateStart(3, load, -1, 100000)).isEqualTo(-1);
+        // starts right away on an idle executor
+        assertThat(BuildService.estimateStart(1, new MasterLoad(2, 0, 2, 0), -1, 100000)).isEqualTo(100000);
+    }
+
+    @Test
+    public void shouldFindQueuePositionByQueueId() {
+        final BuildService.QueueSummary queue = new BuildService.QueueSummary();
+        queue.setItems(Arrays.<Map<String, Object>>asList(
+            Collections.<String, Object>singletonMap("id", 12),
+            Collections.<String, Object>singletonMap("id", 10),
+            Collections.<String, Object>singletonMap("id", 11)));
+
+        assertThat(BuildService.queuePosition(queue, 10)).isEqualTo(0);
+        assertThat(BuildService.queuePosition(queue, 12)).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFetchOnlyProjectedFields() throws Exception {
+        final JenkinsHttpClient jenkinsHttpClient = mock(JenkinsHttpClient.class);
+        final BuildProjection projection = new BuildProjection();
+        projection.setResult(BuildResult.SUCCESS);
+        when(jenkinsHttpClient.get("/job/TEST/7?tree=number%2Cresult%2Cduration", BuildProjection.class)).thenReturn(projection);
+
+        BuildProjection build = service.getBuildProjection(jenkinsHttpClient, "TEST", 7, Arrays.asList(BuildField.RESULT, BuildField.DURATION));
+
+        assertThat(build.getResult()).isEqualTo(BuildResult.SUCCESS);
+        assertThat(build.getFields()).containsOnly(BuildField.RESULT, BuildField.DURATION);
+    }
+
+    @Test
+    public void shouldKeepWaitingForBuildThroughTransientFailures() throws Exception {
+        final JenkinsHttpClient jenkinsHttpClient = mock(JenkinsHttpClient.class);
+        final BuildSummary finished = new BuildSummary();
+        finished.setNumber(7);
+        finished.setResult(BuildResult.SUCCESS);
+        when(jenkinsHttpClient.get(anyString(), eq(BuildSummary.class)))
+            .thenThrow(new IOException("Connection reset"))
+            .thenThrow(new HttpResponseException(503, "Service Unavailable"))
+            .thenReturn(finished);
+
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Future<BuildSummary> future = service.awaitCompletion(jenkinsHttpClient, scheduler, "TEST", 7);
+
+            assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(finished);
+            verify(jenkinsHttpClient, times(3)).get(anyString(), eq(BuildSummary.class));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldFailWaitingForBuildAfterTooManyFailures() throws Exception {
+        final JenkinsHttpClient jenkinsHttpClient = mock(JenkinsHttpClient.class);
+        when(jenkinsHttpClient.get(anyString(), eq(BuildSummary.class))).thenThrow(new IOException("Connection refused"));
+
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Future<BuildSummary> future = service.awaitCompletion(jenkinsHttpClient, scheduler, "TEST", 7);
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Should fail after " + BuildService.MAX_COMPLETION_POLL_FAILURES + " failures");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).hasMessage("Connection refused");
+            }
+            verify(jenkinsHttpClient, times(BuildService.MAX_COMPLETION_POLL_FAILURES)).get(anyString(), eq(BuildSummary.class));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldFailWaitingForMissingBuildRightAway() throws Exception {
+        final JenkinsHttpClient jenkinsHttpClient = mock(JenkinsHttpClient.class);
+        when(jenkinsHttpClient.get(anyString(), eq(BuildSummary.class))).thenThrow(new HttpResponseException(404, "Not Found"));
+
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Future<BuildSummary> future = service.awaitCompletion(jenkinsHttpClient, scheduler, "TEST", 7);
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Should fail for a missing build");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(HttpResponseException.class);
+            }
+            verify(jenkinsHttpClient, times(1)).get(anyString(), eq(BuildSummary.class));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldAwaitStartThroughTransientFailures() throws Exception {
+        final QueueItem queueItemNotBuildingYet = new QueueItem();
+        final QueueItem queueItemBuilding = new QueueItem();
+        queueItemBuilding.setExecutable(new Executable());
+        queueItemBuilding.getExecutable().setNumber(98L);
+        when(jenkinsServer.getQueueItem(queueReference))
+            .thenReturn(queueItemNotBuildingYet)
+            .thenThrow(new IOException("Connection reset"))
+            .thenReturn(queueItemBuilding);
+
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Future<BuildTriggerStatus> future = service.awaitStart(jenkinsServer, scheduler, "TEST", queueReference, 10000L);
+
+            BuildTriggerStatus status = future.get(5, TimeUnit.SECONDS);
+            assertThat(status.getState()).isEqualTo(BuildTriggerStatus.State.STARTED_BUILDING);
+            assertThat(status.getBuildNumber()).isEqualTo(98);
+            verify(jenkinsServer, times(3)).getQueueItem(queueReference);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldFailAwaitingStartOfGoneQueueItem() throws Exception {
+        when(jenkinsServer.getQueueItem(queueReference)).thenThrow(new HttpResponseException(404, "Not Found"));
+
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Future<BuildTriggerStatus> future = service.awaitStart(jenkinsServer, scheduler, "TEST", queueReference, 10000L);
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Should fail for a queue item that is gone");
+            } catch (ExecutionException e) {
+                assertThat(BuildService.isClientError(e.getCause())).isTrue();
+            }
+            verify(jenkinsServer, times(1)).getQueueItem(queueReference);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldTimeOutAwaitingStart() throws Exception {
+        when(jenkinsServer.getQueueItem(queueReference)).thenReturn(new QueueItem());
+
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Future<BuildTriggerStatus> future = service.awaitStart(jenkinsServer, scheduler, "TEST", queueReference, 200L);
+
+            assertThat(future.get(5, TimeUnit.SECONDS).getState()).isEqualTo(BuildTriggerStatus.State.TIMED_OUT);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldBackOffAfterFailedCompletionPolls() {
+        assertThat(BuildService.completionRetryDelay(1000, 1)).isEqualTo(1000);
+        assertThat(BuildService.completionRetryDelay(1000, 2)).isEqualTo(2000);
+        assertThat(BuildService.completionRetryDelay(1000, 4)).isEqualTo(8000);
+        assertThat(BuildService.completionRetryDelay(1000, 100)).isEqualTo(BuildService.MAX_COMPLETION_POLL_PERIOD);
+    }
 }
@@ -20,12 +20,19 @@ import com.offbytwo.jenkins.model.BuildWithDetails;
 import com.offbytwo.jenkins.model.JobWithDetails;
 import com.offbytwo.jenkins.model.credentials.UsernamePasswordCredential;
 import org.aerogear.digger.client.model.BuildDiscarder;
+import org.aerogear.digger.client.model.JobProvisioningReport;
+import org.aerogear.digger.client.model.JobSpec;
+import org.aerogear.digger.client.util.JobTemplate;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
@@ -97,6 +104,106 @@ public class JobServiceTest {
         verify(server, times(1)).updateJob(anyString(), anyString());
     }
 
+    @Test
+    public void shouldRenderJobWithCustomTemplate() throws Exception {
+        jobService = new JobService(false, JobTemplate.string("<job><url>{{ GIT_REPO_URL }}</url><branch>{{ GIT_REPO_BRANCH }}</branch></job>"));
+        jobService.create(server, "name1", "repo1", "branch1");
+        jobService.create(server, "name2", "repo2", "branch2");
+        verify(server, times(1)).createJob("name1", "<job><url>repo1</url><branch>branch1</branch></job>");
+        verify(server, times(1)).createJob("name2", "<job><url>repo2</url><branch>branch2</branch></job>");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidTemplate() throws Exception {
+        JobTemplate.string("<job>{% if %}</job>");
+    }
+
+    @Test
+    public void shouldSkipUpdateWhenConfigurationIsUnchanged() throws Exception {
+        jobService = new JobService(false, JobTemplate.string("<job><url>{{ GIT_REPO_URL }}</url></job>"));
+
+        jobService.create(server, "name", "repo", "branch");
+        jobService.update(server, "name", "repo", "branch", null);
+        jobService.update(server, "name", "repo", "branch", null);
+
+        verify(server, never()).updateJob(anyString(), anyString());
+    }
+
+    @Test
+    public void shouldUpdateWhenConfigurationIsChanged() throws Exception {
+        jobService = new JobService(false, JobTemplate.string("<job><url>{{ GIT_REPO_URL }}</url></job>"));
+
+        jobService.update(server, "name", "old-repo", "branch", null);
+        jobService.update(server, "name", "repo", "branch", null);
+
+        verify(server, times(1)).updateJob("name", "<job><url>old-repo</url></job>");
+        verify(server, times(1)).updateJob("name", "<job><url>repo</url></job>");
+    }
+
+    @Test
+    public void shouldPushAgainAfterFailedUpdate() throws Exception {
+        jobService = new JobService(false, JobTemplate.string("<job><url>{{ GIT_REPO_URL }}</url></job>"));
+        doThrow(new IOException("boom")).doNothing().when(server).updateJob(anyString(), anyString());
+
+        try {
+            jobService.update(server, "name", "repo", "branch", null);
+        } catch (IOException e) {
+            // expected
+        }
+        jobService.update(server, "name", "repo", "branch", null);
+
+        verify(server, times(2)).updateJob("name", "<job><url>repo</url></job>");
+    }
+
+    @Test
+    public void shouldCreateJobsInBulk() throws Exception {
+        doThrow(new IOException("boom")).when(server).createJob(eq("job2"), anyString());
+
+        JobProvisioningReport report = jobService.createAll(server, Arrays.asList(
+            new JobSpec("job1", "repo", "branch"),
+            new JobSpec("job2", "repo", "branch"),
+            new JobSpec("job3", "repo", "branch").setBuildDiscarder(new BuildDiscarder())
+        ), 2);
+
+        assertThat(report.getResults()).hasSize(3);
+        assertThat(report.getResults().get(0).getJobName()).isEqualTo("job1");
+        assertThat(report.isSuccessful()).isFalse();
+        assertThat(report.getFailed()).hasSize(1);
+        assertThat(report.getFailed().get(0).getJobName()).isEqualTo("job2");
+        assertThat(report.getFailed().get(0).getError()).hasMessage("boom");
+        verify(server, times(3)).createJob(anyString(), anyString());
+    }
+
+    @Test
+    public void shouldUpdateJobsInBulk() throws Exception {
+        JobProvisioningReport report = jobService.updateAll(server, Arrays.asList(
+            new JobSpec("job1", "repo", "branch"),
+            new JobSpec("job2", "repo", "branch")
+        ), 4);
+
+        assertThat(report.isSuccessful()).isTrue();
+        verify(server, times(1)).updateJob(eq("job1"), anyString());
+        verify(server, times(1)).updateJob(eq("job2"), anyString());
+    }
+
+    @Test
+    public void shouldOnlyRecreateChangedCredentials() throws Exception {
+        UsernamePasswordCredential repoCredential = new UsernamePasswordCredential();
+        repoCredential.setId("testCredentialId");
+        repoCredential.setUsername("test");
+        repoCredential.setPassword("test");
+
+        jobService.update(server, "name", "repo", "branch", null, repoCredential, null);
+        jobService.update(server, "name", "repo", "branch", null, repoCredential, null);
+        verify(server, times(1)).deleteCredential(repoCredential.getId(), false);
+        verify(server, times(1)).createCredential(repoCredential, false);
+
+        repoCredential.setPassword("changed");
+        jobService.update(server, "name", "repo", "branch", null, repoCredential, null);
+        verify(server, times(2)).deleteCredential(repoCredential.getId(), false);
+        verify(server, times(2)).createCredential(repoCredential, false);
+    }
+
     @Test
     public void shouldDeleteJob() throws Exception {
         jobService.delete(server, "testJob", null);
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.stats;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BuildStatisticsTest {
+
+    @Test
+    public void shouldKeepPercentilesPerJob() {
+        BuildStatistics statistics = new BuildStatistics();
+        for (int i = 1; i <= 100; i++) {
+            statistics.recordBuild("app", i, 1000);
+            statistics.recordQueueWait("app", "http://jenkins/queue/item/" + i + "/", 200);
+        }
+        statistics.recordBuild("lib", 1, 60000);
+
+        assertThat(statistics.getJobNames()).containsExactly("app", "lib");
+        assertThat(statistics.getDurations("app").getCount()).isEqualTo(100);
+        assertThat(statistics.getQueueWaits("app").getPercentile(95)).isEqualTo(200);
+        assertThat(statistics.getDurations("lib").getPercentile(50)).isEqualTo(60000);
+        assertThat(statistics.getAllDurations().getCount()).isEqualTo(101);
+        assertThat(statistics.getDurations("unknown").getCount()).isZero();
+    }
+
+    @Test
+    public void shouldNotRecordSameBuildTwice() {
+        BuildStatistics statistics = new BuildStatistics();
+
+        assertThat(statistics.recordBuild("app", 7, 1000)).isTrue();
+        assertThat(statistics.recordBuild("app", 7, 1000)).isFalse();
+        assertThat(statistics.recordBuild("lib", 7, 1000)).isTrue();
+        assertThat(statistics.getDurations("app").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRecordQueueWaitOncePerQueueItem() {
+        BuildStatistics statistics = new BuildStatistics();
+
+        assertThat(statistics.recordQueueWait("app", "http://jenkins/queue/item/1/", 200)).isTrue();
+        // a coalesced caller polled the same queue item
+        assertThat(statistics.recordQueueWait("app", "http://jenkins/queue/item/1/", 250)).isFalse();
+        assertThat(statistics.recordQueueWait("app", "http://jenkins/queue/item/2/", 300)).isTrue();
+        assertThat(statistics.getQueueWaits("app").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReturnCopies() {
+        BuildStatistics statistics = new BuildStatistics();
+        DurationHistogram durations = statistics.getDurations("app");
+
+        statistics.recordBuild("app", 1, 1000);
+
+        assertThat(durations.getCount()).isZero();
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.stats;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DurationHistogramTest {
+
+    @Test
+    public void shouldGetPercentilesWithinPrecision() {
+        DurationHistogram histogram = new DurationHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i * 100L);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(10000);
+        assertThat(histogram.getMin()).isEqualTo(100);
+        assertThat(histogram.getMax()).isEqualTo(1000000);
+        assertThat(histogram.getMean()).isEqualTo(500050.0);
+        assertThat((double) histogram.getPercentile(50)).isBetween(500000 * 0.94, 500000 * 1.06);
+        assertThat((double) histogram.getPercentile(95)).isBetween(950000 * 0.94, 950000 * 1.06);
+        assertThat(histogram.getPercentile(100)).isEqualTo(1000000);
+    }
+
+    @Test
+    public void shouldKeepSmallValuesExact() {
+        DurationHistogram histogram = new DurationHistogram();
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-1);
+
+        assertThat(histogram.getCount()).isEqualTo(2);
+        assertThat(histogram.getPercentile(50)).isEqualTo(3);
+        assertThat(histogram.getPercentile(100)).isEqualTo(7);
+    }
+
+    @Test
+    public void shouldMergeHistograms() {
+        DurationHistogram fast = new DurationHistogram();
+        DurationHistogram slow = new DurationHistogram();
+        for (int i = 0; i < 90; i++) {
+            fast.record(1000);
+        }
+        for (int i = 0; i < 10; i++) {
+            slow.record(60000);
+        }
+
+        fast.merge(slow);
+
+        assertThat(fast.getCount()).isEqualTo(100);
+        assertThat((double) fast.getPercentile(50)).isBetween(940.0, 1060.0);
+        assertThat((double) fast.getPercentile(95)).isBetween(56400.0, 63600.0);
+        assertThat(slow.getCount()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldReturnMinusOneWhenEmpty() {
+        DurationHistogram histogram = new DurationHistogram();
+
+        assertThat(histogram.getPercentile(50)).isEqualTo(-1);
+        assertThat(histogram.getMax()).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldMapEveryValueIntoItsBucket() {
+        long[] values = {0, 15, 16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = DurationHistogram.bucketOf(value);
+            assertThat(DurationHistogram.lowestValueOf(bucket)).isLessThanOrEqualTo(value);
+            assertThat(DurationHistogram.highestValueOf(bucket)).isGreaterThanOrEqualTo(value);
+        }
+        assertThat(DurationHistogram.bucketOf(Long.MAX_VALUE)).isLessThan(500);
+    }
+}
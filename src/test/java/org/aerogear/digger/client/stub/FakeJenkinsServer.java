@@ -0,0 +1,784 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.aerogear.digger.client.util.NamedThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for a Jenkins master, for load and latency tests of the client without a real Jenkins.
+ * <p>
+ * It implements the endpoints the client uses: job create, read, update and delete, <code>config.xml</code>,
+ * build triggers, queue items, build details, progressive and full console output, artifacts, build stop,
+ * credentials, the crumb issuer and executor counts. Queue delays, build durations, slow responses, log and
+ * artifact sizes and random failures can be configured before the server is started:
+ * <pre>
+ * FakeJenkinsServer jenkins = new FakeJenkinsServer()
+ *     .queueDelay(500)
+ *     .buildDuration(2000)
+ *     .logSize(1024 * 1024)
+ *     .failureRate(0.01)
+ *     .start();
+ * DiggerClient client = DiggerClient.createDefaultWithAuth(jenkins.getUrl(), "admin", "admin");
+ * </pre>
+ * Builds leave the queue after the queue delay, when an executor is free, and finish after the build duration.
+ * State changes are computed from the clock when Jenkins is asked, so the server runs no threads of its own
+ * besides the ones serving requests, unless it sends build notifications. Failures are drawn from a seeded random, so runs are reproducible.
+ */
+public class FakeJenkinsServer implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String JENKINS_VERSION = "2.46.1";
+    private static final String ARTIFACT_PATH = "app/build/outputs/apk/app-debug.apk";
+    private static final int MAX_BUILDS_IN_JOB = 100;
+    private static final Pattern TREE_RANGE = Pattern.compile("\\{(\\d+),(\\d+)\\}$");
+
+    private final Random random;
+
+    private long queueDelay = 0;
+    private long buildDuration = 0;
+    private long responseLatency = 0;
+    private int executors = 4;
+    private int logSize = 4 * 1024;
+    private int artifactSize = 64 * 1024;
+    private double failureRate = 0;
+    private boolean crumbIssuer = false;
+    private String notificationUrl;
+
+    private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<String, Job>();
+    private final ConcurrentSkipListMap<Long, QueueItem> queue = new ConcurrentSkipListMap<Long, QueueItem>();
+    private final List<Build> running = new ArrayList<Build>();
+    private final AtomicLong queueIds = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private byte[] log;
+    private byte[] artifact;
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledExecutorService notifier;
+    private String url;
+
+    /**
+     * Create a server that draws its random failures from a fixed seed.
+     */
+    public FakeJenkinsServer() {
+        this(42L);
+    }
+
+    /**
+     * @param seed seed of the random failures
+     */
+    public FakeJenkinsServer(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param queueDelay how long (in milliseconds) a build waits in the queue at least. 0 by default.
+     * @return the server
+     */
+    public FakeJenkinsServer queueDelay(long queueDelay) {
+        this.queueDelay = queueDelay;
+        return this;
+    }
+
+    /**
+     * @param buildDuration how long (in milliseconds) a build runs. 0 by default.
+     * @return the server
+     */
+    public FakeJenkinsServer buildDuration(long buildDuration) {
+        this.buildDuration = buildDuration;
+        return this;
+    }
+
+    /**
+     * @param responseLatency how long (in milliseconds) every request takes before it is handled. 0 by default.
+     * @return the server
+     */
+    public FakeJenkinsServer responseLatency(long responseLatency) {
+        this.responseLatency = responseLatency;
+        return this;
+    }
+
+    /**
+     * @param executors number of builds that can run at the same time. 4 by default.
+     * @return the server
+     */
+    public FakeJenkinsServer executors(int executors) {
+        this.executors = executors;
+        return this;
+    }
+
+    /**
+     * @param logSize size of the console output of each build in bytes. 4 KB by default.
+     * @return the server
+     */
+    public FakeJenkinsServer logSize(int logSize) {
+        this.logSize = logSize;
+        return this;
+    }
+
+    /**
+     * @param artifactSize size of the artifact of each build in bytes. 64 KB by default.
+     * @return the server
+     */
+    public FakeJenkinsServer artifactSize(int artifactSize) {
+        this.artifactSize = artifactSize;
+        return this;
+    }
+
+    /**
+     * @param failureRate share of the requests, between 0 and 1, that fail with 503 Service Unavailable. 0 by default.
+     * @return the server
+     */
+    public FakeJenkinsServer failureRate(double failureRate) {
+        this.failureRate = failureRate;
+        return this;
+    }
+
+    /**
+     * @param crumbIssuer if CSRF protection is enabled. Crumbs are issued but not checked. Off by default.
+     * @return the server
+     */
+    public FakeJenkinsServer crumbIssuer(boolean crumbIssuer) {
+        this.crumbIssuer = crumbIssuer;
+        return this;
+    }
+
+    /**
+     * Send a notification like the Jenkins Notification plugin does when a build is queued, started, completed and
+     * finalized. The queue is then advanced by a timer, so builds start and finish without requests to the server.
+     * Off by default.
+     *
+     * @param notificationUrl URL to POST the notifications to. Failed notifications are not retried.
+     * @return the server
+     */
+    public FakeJenkinsServer notificationUrl(String notificationUrl) {
+        this.notificationUrl = notificationUrl;
+        return this;
+    }
+
+    /**
+     * Start listening on a free port of the loopback interface.
+     *
+     * @return the server
+     * @throws IOException if the server can't be bound
+     */
+    public FakeJenkinsServer start() throws IOException {
+        log = consoleOutput(logSize);
+        artifact = new byte[artifactSize];
+        new Random(random.nextLong()).nextBytes(artifact);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool(new NamedThreadFactory("fake-jenkins"));
+        server.setExecutor(executor);
+        server.createContext("/", new Handler());
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        if (notificationUrl != null) {
+            notifier = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("fake-jenkins-notifier"));
+            notifier.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    advanceQueue();
+                }
+            }, 10, 10, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * @return the root URL of the server, ending with a slash
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return number of requests received so far
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return names of the existing jobs
+     */
+    public Set<String> getJobNames() {
+        return Collections.unmodifiableSet(new TreeSet<String>(jobs.keySet()));
+    }
+
+    /**
+     * @param jobName name of the job
+     * @return the config.xml of the job, null if there is no such job
+     */
+    public String getJobConfig(String jobName) {
+        final Job job = jobs.get(jobName);
+        return job != null ? job.config : null;
+    }
+
+    /**
+     * Create a job without going through HTTP, to prepare a test.
+     *
+     * @param jobName name of the job
+     * @param config  config.xml of the job
+     */
+    public void addJob(String jobName, String config) {
+        jobs.put(jobName, new Job(jobName, config));
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+        if (notifier != null) {
+            notifier.shutdownNow();
+        }
+    }
+
+    private class Handler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requestCount.incrementAndGet();
+            try {
+                if (responseLatency > 0) {
+                    Thread.sleep(responseLatency);
+                }
+                if (failureRate > 0 && random.nextDouble() < failureRate) {
+                    respond(exchange, 503, "text/plain", "Service Unavailable".getBytes(UTF_8));
+                } else {
+                    route(exchange);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                respond(exchange, 500, "text/plain", String.valueOf(e).getBytes(UTF_8));
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        final String method = exchange.getRequestMethod();
+        final Map<String, String> params = new HashMap<String, String>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        final byte[] body = readBody(exchange.getRequestBody());
+        final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+            parseForm(new String(body, UTF_8), params);
+        }
+
+        String path = exchange.getRequestURI().getRawPath().replaceAll("/{2,}", "/");
+        final boolean api = path.endsWith("/api/json");
+        if (api) {
+            path = path.substring(0, path.length() - "/api/json".length());
+        }
+        if (path.endsWith("/") && path.length() > 1) {
+            path = path.substring(0, path.length() - 1);
+        }
+        final String[] segments = path.split("/");
+
+        advanceQueue();
+
+        if (path.isEmpty() || "/".equals(path)) {
+            json(exchange, rootJson(params.get("tree")));
+        } else if ("/crumbIssuer".equals(path)) {
+            if (crumbIssuer) {
+                json(exchange, "{\"crumb\":\"fake-crumb\",\"crumbRequestField\":\"Jenkins-Crumb\"}");
+            } else {
+                notFound(exchange);
+            }
+        } else if ("/createItem".equals(path) && "POST".equals(method)) {
+            createJob(exchange, params.get("name"), new String(body, UTF_8));
+        } else if ("/queue".equals(path)) {
+            json(exchange, queueJson());
+        } else if (segments.length == 4 && "/queue/item".equals("/" + segments[1] + "/" + segments[2])) {
+            final QueueItem item = queue.get(Long.valueOf(segments[3]));
+            if (item == null) {
+                notFound(exchange);
+            } else {
+                json(exchange, item.toJson());
+            }
+        } else if ("/computer".equals(path)) {
+            json(exchange, "{\"busyExecutors\":" + busyExecutors() + ",\"totalExecutors\":" + executors + "}");
+        } else if (path.startsWith("/credentials/") && "POST".equals(method)) {
+            respond(exchange, 200, "text/plain", new byte[0]);
+        } else if (segments.length >= 3 && "job".equals(segments[1])) {
+            routeJob(exchange, method, decode(segments[2]), segments, params, body);
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private void routeJob(HttpExchange exchange, String method, String jobName, String[] segments, Map<String, String> params, byte[] body) throws IOException {
+        final Job job = jobs.get(jobName);
+        if (job == null) {
+            notFound(exchange);
+            return;
+        }
+        final String action = segments.length > 3 ? segments[3] : "";
+
+        if (action.isEmpty()) {
+            json(exchange, job.toJson(params.get("tree")));
+        } else if ("config.xml".equals(action)) {
+            if ("POST".equals(method)) {
+                job.config = new String(body, UTF_8);
+                respond(exchange, 200, "text/plain", new byte[0]);
+            } else {
+                respond(exchange, 200, "application/xml", job.config.getBytes(UTF_8));
+            }
+        } else if ("doDelete".equals(action)) {
+            jobs.remove(jobName);
+            respond(exchange, 200, "text/plain", new byte[0]);
+        } else if ("build".equals(action) || "buildWithParameters".equals(action)) {
+            final QueueItem item = enqueue(job);
+            exchange.getResponseHeaders().set("Location", url + "queue/item/" + item.id + "/");
+            respond(exchange, 201, "text/plain", new byte[0]);
+        } else {
+            final Build build = job.getBuild(action);
+            if (build == null) {
+                notFound(exchange);
+            } else {
+                routeBuild(exchange, build, segments.length > 4 ? segments[4] : "", params);
+            }
+        }
+    }
+
+    private void routeBuild(HttpExchange exchange, Build build, String action, Map<String, String> params) throws IOException {
+        if (action.isEmpty()) {
+            json(exchange, build.toJson());
+        } else if ("logText".equals(action)) {
+            final int available = build.availableLog();
+            final int start = Math.min(available, params.containsKey("start") ? Integer.parseInt(params.get("start")) : 0);
+            exchange.getResponseHeaders().set("X-Text-Size", String.valueOf(available));
+            if (build.isBuilding()) {
+                exchange.getResponseHeaders().set("X-More-Data", "true");
+            }
+            final byte[] chunk = new byte[available - start];
+            System.arraycopy(log, start, chunk, 0, chunk.length);
+            respond(exchange, 200, "text/plain;charset=UTF-8", chunk);
+        } else if ("consoleText".equals(action)) {
+            final byte[] text = new byte[build.availableLog()];
+            System.arraycopy(log, 0, text, 0, text.length);
+            respond(exchange, 200, "text/plain;charset=UTF-8", text);
+        } else if ("artifact".equals(action)) {
+            respond(exchange, 200, "application/octet-stream", artifact);
+        } else if ("stop".equals(action)) {
+            build.abort();
+            respond(exchange, 200, "text/plain", new byte[0]);
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private void createJob(HttpExchange exchange, String jobName, String config) throws IOException {
+        if (jobName == null || config.isEmpty()) {
+            respond(exchange, 400, "text/plain", "Job name and config are required".getBytes(UTF_8));
+        } else if (jobs.putIfAbsent(jobName, new Job(jobName, config)) != null) {
+            respond(exchange, 400, "text/plain", ("A job already exists with the name " + jobName).getBytes(UTF_8));
+        } else {
+            respond(exchange, 200, "text/plain", new byte[0]);
+        }
+    }
+
+    private QueueItem enqueue(Job job) {
+        final QueueItem item = new QueueItem(queueIds.incrementAndGet(), job);
+        queue.put(item.id, item);
+        sendNotification(job, 0, item.id, "QUEUED", null);
+        return item;
+    }
+
+    /**
+     * Start the queued builds whose queue delay passed, as long as there are free executors.
+     */
+    private synchronized void advanceQueue() {
+        final long now = System.currentTimeMillis();
+        final Iterator<Build> runningBuilds = running.iterator();
+        while (runningBuilds.hasNext()) {
+            final Build build = runningBuilds.next();
+            if (!build.isBuilding()) {
+                runningBuilds.remove();
+                final String result = build.abortedAt >= 0 ? "ABORTED" : "SUCCESS";
+                sendNotification(build.job, build.number, build.queueId, "COMPLETED", result);
+                sendNotification(build.job, build.number, build.queueId, "FINALIZED", result);
+            }
+        }
+        for (QueueItem item : queue.values()) {
+            if (running.size() >= executors) {
+                break;
+            }
+            if (item.build == null && now - item.inQueueSince >= queueDelay) {
+                item.build = item.job.startBuild(now, item.id);
+                running.add(item.build);
+                sendNotification(item.job, item.build.number, item.id, "STARTED", null);
+            }
+        }
+        // Jenkins forgets queue items a while after they left the queue
+        final Iterator<QueueItem> items = queue.values().iterator();
+        while (items.hasNext()) {
+            final QueueItem item = items.next();
+            if (item.build != null && now - item.build.startedAt > 5 * 60 * 1000L) {
+                items.remove();
+            }
+        }
+    }
+
+    private void sendNotification(Job job, int buildNumber, long queueId, String phase, String result) {
+        if (notifier == null) {
+            return;
+        }
+        final String json = "{\"name\":" + quote(job.name) + ",\"url\":" + quote("job/" + encode(job.name) + "/")
+            + ",\"build\":{\"number\":" + buildNumber + ",\"queue_id\":" + queueId + ",\"phase\":\"" + phase + "\""
+            + ",\"status\":" + (result == null ? "null" : quote(result))
+            + ",\"full_url\":" + (buildNumber > 0 ? quote(jobUrl(job.name) + buildNumber + "/") : "null") + "}}";
+        try {
+            notifier.execute(new Runnable() {
+                @Override
+                public void run() {
+                    post(json);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed
+        }
+    }
+
+    private void post(String json) {
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(notificationUrl).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            final OutputStream out = connection.getOutputStream();
+            try {
+                out.write(json.getBytes(UTF_8));
+            } finally {
+                out.close();
+            }
+            connection.getResponseCode();
+            connection.disconnect();
+        } catch (IOException e) {
+            // like Jenkins, a notification that can't be sent is lost
+        }
+    }
+
+    private synchronized int busyExecutors() {
+        return running.size();
+    }
+
+    private String rootJson(String tree) {
+        final List<String> jobNames = range(new ArrayList<String>(getJobNames()), tree);
+        final StringBuilder json = new StringBuilder("{\"mode\":\"NORMAL\",\"numExecutors\":").append(executors).append(",\"jobs\":[");
+        boolean first = true;
+        for (String jobName : jobNames) {
+            final Job job = jobs.get(jobName);
+            if (job == null) {
+                continue;
+            }
+            final Map.Entry<Integer, Build> lastBuild = job.builds.firstEntry();
+            json.append(first ? "" : ",").append("{\"name\":").append(quote(jobName)).append(",\"url\":").append(quote(jobUrl(jobName)))
+                .append(",\"lastBuild\":").append(lastBuild == null ? "null" : lastBuild.getValue().toJson()).append('}');
+            first = false;
+        }
+        return json.append("]}").toString();
+    }
+
+    private String queueJson() {
+        final StringBuilder json = new StringBuilder("{\"items\":[");
+        boolean first = true;
+        for (QueueItem item : queue.values()) {
+            if (item.build == null) {
+                json.append(first ? "" : ",").append(item.toJson());
+                first = false;
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    private String jobUrl(String jobName) {
+        return url + "job/" + encode(jobName) + "/";
+    }
+
+    private class Job {
+        private final String name;
+        private volatile String config;
+        private final ConcurrentSkipListMap<Integer, Build> builds = new ConcurrentSkipListMap<Integer, Build>(Collections.<Integer>reverseOrder());
+        private int nextBuildNumber = 1;
+
+        Job(String name, String config) {
+            this.name = name;
+            this.config = config;
+        }
+
+        synchronized Build startBuild(long now, long queueId) {
+            final Build build = new Build(this, nextBuildNumber++, now, queueId);
+            builds.put(build.number, build);
+            while (builds.size() > MAX_BUILDS_IN_JOB) {
+                builds.pollLastEntry();
+            }
+            return build;
+        }
+
+        Build getBuild(String reference) {
+            if ("lastBuild".equals(reference)) {
+                return builds.isEmpty() ? null : builds.firstEntry().getValue();
+            }
+            try {
+                return builds.get(Integer.valueOf(reference));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        String toJson(String tree) {
+            final StringBuilder json = new StringBuilder("{\"name\":").append(quote(name))
+                .append(",\"displayName\":").append(quote(name))
+                .append(",\"url\":").append(quote(jobUrl(name)))
+                .append(",\"buildable\":true,\"inQueue\":").append(isInQueue())
+                .append(",\"nextBuildNumber\":").append(nextBuildNumber())
+                .append(",\"builds\":[");
+            boolean first = true;
+            for (Build build : builds.values()) {
+                json.append(first ? "" : ",").append(build.toReferenceJson());
+                first = false;
+            }
+            json.append("],\"firstBuild\":").append(builds.isEmpty() ? "null" : builds.lastEntry().getValue().toReferenceJson());
+            json.append(",\"lastBuild\":").append(builds.isEmpty() ? "null" : builds.firstEntry().getValue().toReferenceJson());
+            if (tree != null && tree.contains("allBuilds")) {
+                // newest first, like Jenkins, with the range of the tree query if there is one
+                json.append(",\"allBuilds\":[");
+                first = true;
+                for (Build build : range(new ArrayList<Build>(builds.values()), tree)) {
+                    json.append(first ? "" : ",").append(build.toJson());
+                    first = false;
+                }
+                json.append(']');
+            }
+            return json.append('}').toString();
+        }
+
+        private synchronized int nextBuildNumber() {
+            return nextBuildNumber;
+        }
+
+        private boolean isInQueue() {
+            for (QueueItem item : queue.values()) {
+                if (item.job == this && item.build == null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private class Build {
+        private final Job job;
+        private final int number;
+        private final long startedAt;
+        private final long queueId;
+        private volatile long abortedAt = -1;
+
+        Build(Job job, int number, long startedAt, long queueId) {
+            this.job = job;
+            this.number = number;
+            this.startedAt = startedAt;
+            this.queueId = queueId;
+        }
+
+        boolean isBuilding() {
+            return abortedAt < 0 && System.currentTimeMillis() - startedAt < buildDuration;
+        }
+
+        void abort() {
+            if (isBuilding()) {
+                abortedAt = System.currentTimeMillis();
+            }
+        }
+
+        /**
+         * @return how much of the log is written, growing with the elapsed time of the build
+         */
+        int availableLog() {
+            if (buildDuration <= 0 || !isBuilding() && abortedAt < 0) {
+                return log.length;
+            }
+            final long end = abortedAt >= 0 ? abortedAt : System.currentTimeMillis();
+            return (int) Math.min(log.length, log.length * (end - startedAt) / buildDuration);
+        }
+
+        String url() {
+            return jobUrl(job.name) + number + "/";
+        }
+
+        String toReferenceJson() {
+            return "{\"number\":" + number + ",\"url\":" + quote(url()) + "}";
+        }
+
+        String toJson() {
+            final boolean building = isBuilding();
+            final String result = building ? "null" : abortedAt >= 0 ? "\"ABORTED\"" : "\"SUCCESS\"";
+            final long duration = building ? 0 : abortedAt >= 0 ? abortedAt - startedAt : buildDuration;
+            return "{\"number\":" + number + ",\"id\":\"" + number + "\",\"url\":" + quote(url())
+                + ",\"displayName\":\"#" + number + "\",\"fullDisplayName\":" + quote(job.name + " #" + number)
+                + ",\"building\":" + building + ",\"result\":" + result
+                + ",\"duration\":" + duration + ",\"estimatedDuration\":" + buildDuration
+                + ",\"timestamp\":" + startedAt + ",\"builtOn\":\"\",\"actions\":[]"
+                + ",\"artifacts\":[{\"displayPath\":\"app-debug.apk\",\"fileName\":\"app-debug.apk\",\"relativePath\":\"" + ARTIFACT_PATH + "\"}]}";
+        }
+    }
+
+    private class QueueItem {
+        private final long id;
+        private final Job job;
+        private final long inQueueSince;
+        private volatile Build build;
+
+        QueueItem(long id, Job job) {
+            this.id = id;
+            this.job = job;
+            this.inQueueSince = System.currentTimeMillis();
+        }
+
+        String toJson() {
+            final Build started = build;
+            return "{\"id\":" + id + ",\"url\":\"queue/item/" + id + "/\",\"blocked\":false,\"buildable\":" + (started == null)
+                + ",\"cancelled\":false,\"stuck\":false,\"inQueueSince\":" + inQueueSince
+                + ",\"why\":" + (started == null ? "\"Waiting for next available executor\"" : "null")
+                + ",\"task\":{\"name\":" + quote(job.name) + ",\"url\":" + quote(jobUrl(job.name)) + "}"
+                + ",\"executable\":" + (started == null ? "null" : started.toReferenceJson()) + "}";
+        }
+    }
+
+    private static byte[] consoleOutput(int size) {
+        final StringBuilder text = new StringBuilder(size + 100);
+        int line = 0;
+        while (text.length() < size) {
+            text.append("[INFO] Step ").append(++line).append(": :app:compileDebugJavaWithJavac UP-TO-DATE\n");
+        }
+        text.setLength(size);
+        return text.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * @return the page of the items asked for by the tree query, like <code>jobs[name]{0,500}</code>. All items if there is no range.
+     */
+    private static <T> List<T> range(List<T> items, String tree) {
+        final Matcher range = tree != null ? TREE_RANGE.matcher(tree) : null;
+        if (range == null || !range.find()) {
+            return items;
+        }
+        final int from = Math.min(items.size(), Integer.parseInt(range.group(1)));
+        return items.subList(from, Math.min(items.size(), Math.max(from, Integer.parseInt(range.group(2)))));
+    }
+
+    private static void json(HttpExchange exchange, String json) throws IOException {
+        respond(exchange, 200, "application/json;charset=UTF-8", json.getBytes(UTF_8));
+    }
+
+    private static void notFound(HttpExchange exchange) throws IOException {
+        respond(exchange, 404, "text/plain", "Not Found".getBytes(UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("X-Jenkins", JENKINS_VERSION);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            final OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            final int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(decode(pair.substring(0, separator)), decode(pair.substring(separator + 1)));
+            }
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
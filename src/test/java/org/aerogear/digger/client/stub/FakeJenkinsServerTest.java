@@ -0,0 +1,154 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.stub;
+
+import com.offbytwo.jenkins.model.BuildResult;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import org.aerogear.digger.client.DiggerClient;
+import org.aerogear.digger.client.model.BuildField;
+import org.aerogear.digger.client.model.BuildProjection;
+import org.aerogear.digger.client.model.BuildSummary;
+import org.aerogear.digger.client.model.BuildTriggerStatus;
+import org.aerogear.digger.client.model.RetryOptions;
+import org.aerogear.digger.client.services.ArtifactsService;
+import org.aerogear.digger.client.services.BuildService;
+import org.aerogear.digger.client.services.JobService;
+import org.aerogear.digger.client.util.DiggerClientException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class FakeJenkinsServerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FakeJenkinsServer jenkins;
+    private DiggerClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        jenkins = new FakeJenkinsServer()
+            .queueDelay(100)
+            .buildDuration(200)
+            .logSize(1000)
+            .artifactSize(2048)
+            .start();
+        client = DiggerClient.builder()
+            .withAuth(jenkins.getUrl(), "admin", "admin")
+            .createJobService(new JobService(false))
+            .triggerBuildService(new BuildService(50, 50))
+            .artifactsService(new ArtifactsService())
+            .build();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        jenkins.close();
+    }
+
+    @Test
+    public void shouldRunWholeWorkflow() throws Exception {
+        client.createJob("app", "https://github.com/aerogear/digger-helloworld", "master", null);
+        assertThat(jenkins.getJobConfig("app")).contains("https://github.com/aerogear/digger-helloworld");
+
+        BuildTriggerStatus status = client.build("app", 10000);
+        assertThat(status.getState()).isEqualTo(BuildTriggerStatus.State.STARTED_BUILDING);
+        assertThat(status.getBuildNumber()).isEqualTo(1);
+
+        BuildWithDetails details = client.getBuildDetails("app", 1);
+        while (details.isBuilding()) {
+            Thread.sleep(50);
+            details = client.getBuildDetails("app", 1);
+        }
+        assertThat(client.getBuildLogs("app", 1)).hasSize(1000);
+
+        File artifact = temporaryFolder.newFile("app.apk");
+        client.saveArtifact("app", 1, ".*\\.apk", artifact);
+        assertThat(artifact.length()).isEqualTo(2048);
+
+        client.deleteJob("app", null);
+        assertThat(jenkins.getJobNames()).isEmpty();
+    }
+
+    @Test
+    public void shouldAwaitBuildCompletion() throws Exception {
+        client.createJob("app", "https://github.com/aerogear/digger-helloworld", "master", null);
+        BuildTriggerStatus status = client.build("app", 10000);
+
+        BuildSummary summary = client.awaitCompletion("app", status.getBuildNumber()).get(10, TimeUnit.SECONDS);
+
+        assertThat(summary.isCompleted()).isTrue();
+        assertThat(summary.getResult()).isEqualTo(BuildResult.SUCCESS);
+        assertThat(summary.getDuration()).isEqualTo(200);
+    }
+
+    @Test
+    public void shouldFetchBuildProjection() throws Exception {
+        client.createJob("app", "https://github.com/aerogear/digger-helloworld", "master", null);
+        BuildTriggerStatus status = client.build("app", 10000);
+        client.awaitCompletion("app", status.getBuildNumber()).get(10, TimeUnit.SECONDS);
+
+        BuildProjection build = client.getBuildProjection("app", status.getBuildNumber(), BuildField.RESULT, BuildField.ARTIFACTS);
+
+        assertThat(build.getNumber()).isEqualTo(status.getBuildNumber());
+        assertThat(build.getResult()).isEqualTo(BuildResult.SUCCESS);
+        assertThat(build.getArtifacts()).hasSize(1);
+        assertThat(build.getArtifacts().get(0).getFileName()).isEqualTo("app-debug.apk");
+    }
+
+    @Test
+    public void shouldFailAwaitingUnknownBuild() throws Exception {
+        client.createJob("app", "https://github.com/aerogear/digger-helloworld", "master", null);
+        try {
+            client.awaitCompletion("app", 42).get(10, TimeUnit.SECONDS);
+            fail("Build should not be found");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    public void shouldFailRequestsAtConfiguredRate() throws Exception {
+        FakeJenkinsServer failing = new FakeJenkinsServer().failureRate(1).start();
+        DiggerClient failingClient = DiggerClient.builder()
+            .withAuth(failing.getUrl(), "admin", "admin")
+            .createJobService(new JobService(false))
+            .retryOptions(RetryOptions.noRetries())
+            .build();
+        failing.addJob("app", "<project/>");
+        try {
+            failingClient.getJob("app");
+            fail("Jenkins should be unavailable");
+        } catch (DiggerClientException e) {
+            assertThat(failing.getRequestCount()).isEqualTo(1);
+        } finally {
+            failingClient.close();
+            failing.close();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.tracing;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlowCallLoggerTest {
+
+    @Test
+    public void shouldFormatSpanTree() {
+        Tracing tracing = new Tracing(new SlowCallLogger(0));
+        Span build = tracing.startForBuild("build", "test", 4);
+        tracing.end(tracing.start("POST /job/test/build"));
+        Span poll = tracing.start("GET /queue/item/1/api/json");
+        poll.setError(new IOException("Connection reset"));
+        tracing.end(poll);
+        tracing.end(build);
+
+        String[] lines = SlowCallLogger.format(build).split("\n");
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("build{job=test, build=4} ").endsWith(" ms");
+        assertThat(lines[1]).startsWith("  POST /job/test/build{} ");
+        assertThat(lines[2]).startsWith("  GET /queue/item/1/api/json{} ").endsWith("failed: java.io.IOException: Connection reset");
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.tracing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TracingTest {
+
+    @Mock
+    private DiggerTracer tracer;
+
+    private Tracing tracing;
+
+    @Before
+    public void setUp() {
+        tracing = new Tracing(tracer);
+    }
+
+    @Test
+    public void shouldNestSpansOnSameThread() {
+        Span build = tracing.start("build", "job", "test");
+        Span trigger = tracing.start("POST /job/test/build");
+        tracing.end(trigger);
+        Span poll = tracing.start("GET /queue/item/1/api/json");
+        tracing.end(poll);
+        tracing.end(build);
+
+        assertThat(trigger.getParent()).isSameAs(build);
+        assertThat(poll.getParent()).isSameAs(build);
+        assertThat(build.getChildren()).containsExactly(trigger, poll);
+        assertThat(build.getAttributes()).containsEntry("job", "test");
+        assertThat(build.getDurationNanos()).isGreaterThanOrEqualTo(0);
+        verify(tracer).onSpanStart(build);
+        verify(tracer).onSpanEnd(build);
+    }
+
+    @Test
+    public void shouldStartTopLevelSpanAfterEnd() {
+        tracing.end(tracing.start("getJob"));
+
+        assertThat(tracing.start("getBuildLogs").getParent()).isNull();
+    }
+
+    @Test
+    public void shouldNotTraceWhenTurnedOff() {
+        Tracing off = new Tracing(null);
+
+        Span span = off.startForBuild("getBuildDetails", "test", 1);
+        off.end(span);
+
+        assertThat(off.isEnabled()).isFalse();
+        assertThat(span).isNull();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import org.aerogear.digger.client.model.AdmissionOptions;
+import org.aerogear.digger.client.model.AdmissionOptions.Pool;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.message.BasicHttpRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AdmissionControlledHttpClientTest extends HttpClientTestSupport {
+
+    private AdmissionOptions options;
+
+    @Before
+    public void setUp() throws Exception {
+        whenExecuted().thenAnswer(new Answer<CloseableHttpResponse>() {
+            @Override
+            public CloseableHttpResponse answer(InvocationOnMock invocation) throws Throwable {
+                return response(200, 3);
+            }
+        });
+        options = new AdmissionOptions();
+        options.setPool(Pool.ARTIFACTS, new AdmissionOptions.PoolOptions(0, 0, 1, 0));
+    }
+
+    @Test
+    public void shouldClassifyRequests() {
+        assertThat(AdmissionControlledHttpClient.poolOf(new BasicHttpRequest("GET", "/job/test/1/artifact/app.apk"))).isEqualTo(Pool.ARTIFACTS);
+        assertThat(AdmissionControlledHttpClient.poolOf(new BasicHttpRequest("GET", "/job/test/1/logText/progressiveText?start=0"))).isEqualTo(Pool.LOG_STREAMING);
+        assertThat(AdmissionControlledHttpClient.poolOf(new BasicHttpRequest("GET", "/job/test/1/consoleText"))).isEqualTo(Pool.LOG_STREAMING);
+        assertThat(AdmissionControlledHttpClient.poolOf(new BasicHttpRequest("POST", "/job/test/build"))).isEqualTo(Pool.CONTROL);
+    }
+
+    @Test
+    public void shouldHoldArtifactPermitUntilStreamIsClosed() throws Exception {
+        AdmissionControlledHttpClient client = new AdmissionControlledHttpClient(delegate, options);
+
+        CloseableHttpResponse response = client.execute(HOST, new BasicHttpRequest("GET", "/job/test/1/artifact/app.apk"));
+        InputStream content = response.getEntity().getContent();
+        assertThat(client.getInFlight(Pool.ARTIFACTS)).isEqualTo(1);
+
+        try {
+            client.execute(HOST, new BasicHttpRequest("GET", "/job/test/1/artifact/other.apk"));
+            fail("Second download should be rejected");
+        } catch (RequestRejectedException e) {
+            // expected
+        }
+
+        // other pools are not affected
+        client.execute(HOST, new BasicHttpRequest("POST", "/job/test/build"));
+        assertThat(client.getInFlight(Pool.CONTROL)).isEqualTo(0);
+
+        content.close();
+        content.close();
+        assertThat(client.getInFlight(Pool.ARTIFACTS)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReleaseArtifactPermitAtEndOfStream() throws Exception {
+        AdmissionControlledHttpClient client = new AdmissionControlledHttpClient(delegate, options);
+
+        InputStream content = client.execute(HOST, new BasicHttpRequest("GET", "/job/test/1/artifact/app.apk")).getEntity().getContent();
+        while (content.read() != -1) {
+            assertThat(client.getInFlight(Pool.ARTIFACTS)).isEqualTo(1);
+        }
+        assertThat(client.getInFlight(Pool.ARTIFACTS)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRejectRequestsOverRate() throws Exception {
+        options.setPool(Pool.CONTROL, new AdmissionOptions.PoolOptions(1, 1, 32, 0));
+        AdmissionControlledHttpClient client = new AdmissionControlledHttpClient(delegate, options);
+
+        client.execute(HOST, new BasicHttpRequest("GET", "/job/test/api/json"));
+        try {
+            client.execute(HOST, new BasicHttpRequest("GET", "/job/test/api/json"));
+            fail("Second request should be over the rate");
+        } catch (RequestRejectedException e) {
+            // expected
+        }
+        assertThat(client.getInFlight(Pool.CONTROL)).isEqualTo(0);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import org.aerogear.digger.client.model.CircuitBreakerOptions;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.message.BasicHttpRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CircuitBreakerHttpClientTest extends HttpClientTestSupport {
+
+    private CircuitBreakerHttpClient client;
+
+    @Before
+    public void setUp() {
+        CircuitBreakerOptions options = new CircuitBreakerOptions();
+        options.setFailureThreshold(2);
+        options.setOpenDuration(60000);
+        client = new CircuitBreakerHttpClient(delegate, options);
+    }
+
+    @Test
+    public void shouldOpenOnConnectionFailures() throws Exception {
+        whenExecuted()
+            .thenThrow(new IOException("Connection refused"));
+
+        executeFailing();
+        executeFailing();
+
+        assertThat(client.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldOpenOnFailureStatusCodes() throws Exception {
+        whenExecuted()
+            .thenReturn(response(503));
+
+        client.execute(HOST, new BasicHttpRequest("GET", "/api/json"));
+        client.execute(HOST, new BasicHttpRequest("GET", "/api/json"));
+
+        assertThat(client.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldIgnoreConnectionPoolTimeouts() throws Exception {
+        whenExecuted()
+            .thenThrow(new ConnectionPoolTimeoutException("Timeout waiting for connection from pool"));
+
+        executeFailing();
+        executeFailing();
+
+        assertThat(client.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private void executeFailing() {
+        try {
+            client.execute(HOST, new BasicHttpRequest("GET", "/api/json"));
+            fail("Request should fail");
+        } catch (IOException expected) {
+            // counted or ignored by the circuit breaker
+        }
+    }
+}
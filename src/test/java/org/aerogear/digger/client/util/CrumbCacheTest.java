@@ -0,0 +1,102 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.model.Crumb;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CrumbCacheTest {
+
+    @Mock
+    private JenkinsHttpClient jenkinsHttpClient;
+
+    private CrumbCache crumbCache;
+
+    @Before
+    public void setUp() throws Exception {
+        Crumb crumb = mock(Crumb.class);
+        when(crumb.getCrumbRequestField()).thenReturn("Jenkins-Crumb");
+        when(crumb.getCrumb()).thenReturn("abc");
+        when(jenkinsHttpClient.get("/crumbIssuer", Crumb.class)).thenReturn(crumb);
+
+        crumbCache = new CrumbCache(CrumbCache.DEFAULT_TTL);
+        crumbCache.setJenkinsHttpClient(jenkinsHttpClient);
+    }
+
+    @Test
+    public void shouldReuseCrumbForWriteRequests() throws Exception {
+        BasicHttpRequest first = new BasicHttpRequest("POST", "/job/test/build");
+        BasicHttpRequest second = new BasicHttpRequest("POST", "/createItem");
+        crumbCache.process(first, new BasicHttpContext());
+        crumbCache.process(second, new BasicHttpContext());
+
+        assertThat(first.getFirstHeader("Jenkins-Crumb").getValue()).isEqualTo("abc");
+        assertThat(second.getFirstHeader("Jenkins-Crumb").getValue()).isEqualTo("abc");
+        verify(jenkinsHttpClient, times(1)).get("/crumbIssuer", Crumb.class);
+    }
+
+    @Test
+    public void shouldNotAddCrumbToReadRequests() throws Exception {
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/job/test/api/json");
+        crumbCache.process(request, new BasicHttpContext());
+
+        assertThat(request.containsHeader("Jenkins-Crumb")).isFalse();
+        verify(jenkinsHttpClient, times(0)).get("/crumbIssuer", Crumb.class);
+    }
+
+    @Test
+    public void shouldRefreshCrumbWhenRejected() throws Exception {
+        HttpContext context = new BasicHttpContext();
+        crumbCache.process(new BasicHttpRequest("POST", "/job/test/build"), context);
+
+        BasicHttpResponse forbidden = new BasicHttpResponse(HttpVersion.HTTP_1_1, 403, "Forbidden");
+        assertThat(crumbCache.retryRequest(forbidden, 1, context)).isTrue();
+
+        crumbCache.process(new BasicHttpRequest("POST", "/job/test/build"), context);
+        assertThat(crumbCache.retryRequest(forbidden, 2, context)).isFalse();
+        verify(jenkinsHttpClient, times(2)).get("/crumbIssuer", Crumb.class);
+    }
+
+    @Test
+    public void shouldRememberThatCrumbsAreNotIssued() throws Exception {
+        when(jenkinsHttpClient.get("/crumbIssuer", Crumb.class)).thenThrow(new HttpResponseException(404, "Not Found"));
+
+        BasicHttpRequest request = new BasicHttpRequest("POST", "/job/test/build");
+        crumbCache.process(request, new BasicHttpContext());
+        crumbCache.process(new BasicHttpRequest("POST", "/job/test/build"), new BasicHttpContext());
+
+        assertThat(request.getAllHeaders()).isEmpty();
+        verify(jenkinsHttpClient, times(1)).get("/crumbIssuer", Crumb.class);
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.mockito.Mock;
+import org.mockito.stubbing.OngoingStubbing;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Base of the tests of the HTTP clients that wrap another client.
+ * The wrapped client is a mock, see {@link #delegate}. Tests must run with the Mockito runner.
+ */
+public abstract class HttpClientTestSupport {
+
+    protected static final HttpHost HOST = new HttpHost("localhost", 8080);
+
+    @Mock
+    protected CloseableHttpClient delegate;
+
+    /**
+     * @return the stubbing of the delegate for any request
+     */
+    protected OngoingStubbing<CloseableHttpResponse> whenExecuted() throws IOException {
+        return when(delegate.execute(any(HttpHost.class), any(HttpRequest.class), any(HttpContext.class)));
+    }
+
+    /**
+     * @param statusCode the status code of the response
+     * @return a response without content
+     */
+    protected static CloseableHttpResponse response(int statusCode) {
+        return new TestResponse(statusCode);
+    }
+
+    /**
+     * @param statusCode    the status code of the response
+     * @param contentLength the number of bytes of the content
+     * @return a response with the given number of zero bytes as content. The content can be read once.
+     */
+    protected static CloseableHttpResponse response(int statusCode, int contentLength) {
+        final TestResponse response = new TestResponse(statusCode);
+        response.setEntity(new InputStreamEntity(new ByteArrayInputStream(new byte[contentLength]), contentLength));
+        return response;
+    }
+
+    private static class TestResponse extends BasicHttpResponse implements CloseableHttpResponse {
+        TestResponse(int statusCode) {
+            super(HttpVersion.HTTP_1_1, statusCode, "");
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
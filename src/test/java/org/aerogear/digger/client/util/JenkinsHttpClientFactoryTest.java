@@ -0,0 +1,164 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.aerogear.digger.client.model.HttpTransportOptions;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JenkinsHttpClientFactoryTest {
+
+    private HttpServer server;
+    private final List<String> authorizations = new CopyOnWriteArrayList<String>();
+    private final List<InetSocketAddress> remoteAddresses = new CopyOnWriteArrayList<InetSocketAddress>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final String authorization = exchange.getRequestHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+                authorizations.add(authorization != null ? authorization : "");
+                remoteAddresses.add(exchange.getRemoteAddress());
+                final byte[] body = "{}".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void shouldConfigureConnectionPool() {
+        HttpTransportOptions options = new HttpTransportOptions();
+        options.setMaxConnections(10);
+        options.setMaxConnectionsPerRoute(5);
+        options.setSocketTimeout(1234);
+        options.setTcpNoDelay(false);
+
+        PoolingHttpClientConnectionManager connectionManager = JenkinsHttpClientFactory.newConnectionManager(options);
+
+        assertThat(connectionManager.getMaxTotal()).isEqualTo(10);
+        assertThat(connectionManager.getDefaultMaxPerRoute()).isEqualTo(5);
+        assertThat(connectionManager.getDefaultSocketConfig().getSoTimeout()).isEqualTo(1234);
+        assertThat(connectionManager.getDefaultSocketConfig().isSoKeepAlive()).isTrue();
+        assertThat(connectionManager.getDefaultSocketConfig().isTcpNoDelay()).isFalse();
+        connectionManager.shutdown();
+    }
+
+    @Test
+    public void shouldKeepConnectionsAliveAsLongAsJenkinsTells() {
+        ConnectionKeepAliveStrategy strategy = JenkinsHttpClientFactory.keepAliveStrategy(30000);
+        BasicHttpResponse withHeader = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        withHeader.addHeader("Keep-Alive", "timeout=5, max=100");
+        BasicHttpResponse withoutHeader = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+
+        assertThat(strategy.getKeepAliveDuration(withHeader, new BasicHttpContext())).isEqualTo(5000);
+        assertThat(strategy.getKeepAliveDuration(withoutHeader, new BasicHttpContext())).isEqualTo(30000);
+    }
+
+    @Test
+    public void shouldSendCredentialsPreemptively() throws Exception {
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/api/json");
+
+        new JenkinsHttpClientFactory.PreemptiveBasicAuth("admin", "secret").process(request, new BasicHttpContext());
+
+        // base64 of admin:secret
+        assertThat(request.getFirstHeader(HttpHeaders.AUTHORIZATION).getValue()).isEqualTo("Basic YWRtaW46c2VjcmV0");
+    }
+
+    @Test
+    public void shouldKeepAuthorizationOfRequest() throws Exception {
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/api/json");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer token");
+
+        new JenkinsHttpClientFactory.PreemptiveBasicAuth("admin", "secret").process(request, new BasicHttpContext());
+
+        assertThat(request.getHeaders(HttpHeaders.AUTHORIZATION)).hasSize(1);
+        assertThat(request.getFirstHeader(HttpHeaders.AUTHORIZATION).getValue()).isEqualTo("Bearer token");
+    }
+
+    @Test
+    public void shouldAuthenticateAndReuseConnections() throws Exception {
+        CloseableHttpClient client = JenkinsHttpClientFactory.createHttpClient(new JenkinsAuth(url(), "admin", "secret"),
+            JenkinsHttpClientFactory.newHttpClientBuilder(new HttpTransportOptions()));
+        try {
+            get(client);
+            get(client);
+        } finally {
+            client.close();
+        }
+
+        // no challenge round trip
+        assertThat(authorizations).containsExactly("Basic YWRtaW46c2VjcmV0", "Basic YWRtaW46c2VjcmV0");
+        assertThat(remoteAddresses.get(1)).isEqualTo(remoteAddresses.get(0));
+    }
+
+    @Test
+    public void shouldNotAuthenticateWithoutUser() throws Exception {
+        CloseableHttpClient client = JenkinsHttpClientFactory.createHttpClient(new JenkinsAuth(url(), null, null),
+            JenkinsHttpClientFactory.newHttpClientBuilder(new HttpTransportOptions()));
+        try {
+            get(client);
+        } finally {
+            client.close();
+        }
+
+        assertThat(authorizations).containsExactly("");
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    private void get(CloseableHttpClient client) throws IOException {
+        CloseableHttpResponse response = client.execute(new HttpGet(url() + "api/json"));
+        try {
+            EntityUtils.consume(response.getEntity());
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.util;
+
+import org.aerogear.digger.client.model.RetryOptions;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RetryingHttpClientTest extends HttpClientTestSupport {
+
+    private RetryingHttpClient client;
+
+    @Before
+    public void setUp() {
+        RetryOptions options = new RetryOptions();
+        options.setInitialBackoff(1);
+        options.setMaxBackoff(10);
+        client = new RetryingHttpClient(delegate, options);
+    }
+
+    @Test
+    public void shouldRetryGetOnBadGateway() throws Exception {
+        whenExecuted()
+            .thenReturn(response(502), response(200));
+
+        CloseableHttpResponse response = client.execute(HOST, new BasicHttpRequest("GET", "/queue/api/json"));
+
+        assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+        assertThat(client.getRetryCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReturnLastResponseWhenAttemptsRunOut() throws Exception {
+        whenExecuted()
+            .thenReturn(response(503));
+
+        CloseableHttpResponse response = client.execute(HOST, new BasicHttpRequest("GET", "/queue/api/json"));
+
+        assertThat(response.getStatusLine().getStatusCode()).isEqualTo(503);
+        verify(delegate, times(RetryOptions.DEFAULT_MAX_ATTEMPTS)).execute(any(HttpHost.class), any(HttpRequest.class), any(HttpContext.class));
+    }
+
+    @Test
+    public void shouldRetryGetOnIOException() throws Exception {
+        whenExecuted()
+            .thenThrow(new IOException("Connection reset"))
+            .thenReturn(response(200));
+
+        CloseableHttpResponse response = client.execute(HOST, new BasicHttpRequest("GET", "/job/test/api/json"));
+
+        assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+    }
+
+    @Test
+    public void shouldNotRetryPost() throws Exception {
+        whenExecuted()
+            .thenReturn(response(502));
+
+        CloseableHttpResponse response = client.execute(HOST, new BasicHttpRequest("POST", "/job/test/build"));
+
+        assertThat(response.getStatusLine().getStatusCode()).isEqualTo(502);
+        verify(delegate, times(1)).execute(any(HttpHost.class), any(HttpRequest.class), any(HttpContext.class));
+    }
+
+    @Test
+    public void shouldNotRetryWhenCircuitIsOpen() throws Exception {
+        whenExecuted()
+            .thenThrow(new CircuitOpenException("open"));
+
+        try {
+            client.execute(HOST, new BasicHttpRequest("GET", "/job/test/api/json"));
+            fail("Should not retry when circuit is open");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+        verify(delegate, times(1)).execute(any(HttpHost.class), any(HttpRequest.class), any(HttpContext.class));
+    }
+
+    @Test
+    public void shouldKeepBackoffWithinBounds() {
+        for (int attempt = 1; attempt < 10; attempt++) {
+            long expectedCap = Math.min(10, (long) Math.pow(2, attempt - 1));
+            assertThat(client.backoff(attempt)).isBetween(expectedCap / 2, expectedCap);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aerogear.digger.client.watch;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.model.BuildResult;
+import org.aerogear.digger.client.DiggerClient;
+import org.aerogear.digger.client.services.ArtifactsService;
+import org.aerogear.digger.client.services.BuildService;
+import org.aerogear.digger.client.services.JobService;
+import org.aerogear.digger.client.stub.FakeJenkinsServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JobStatusWatcherTest {
+
+    private FakeJenkinsServer jenkins;
+    private DiggerClient client;
+    private final List<JobStatus[]> changes = new ArrayList<JobStatus[]>();
+
+    private final JobStatusListener listener = new JobStatusListener() {
+        @Override
+        public void onChange(JobStatus previous, JobStatus current) {
+            changes.add(new JobStatus[]{previous, current});
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        jenkins = new FakeJenkinsServer()
+            .queueDelay(0)
+            .buildDuration(100)
+            .start();
+        client = DiggerClient.builder()
+            .withAuth(jenkins.getUrl(), "admin", "admin")
+            .createJobService(new JobService(false))
+            .triggerBuildService(new BuildService(20, 20))
+            .artifactsService(new ArtifactsService())
+            .build();
+        jenkins.addJob("app-1", "<project/>");
+        jenkins.addJob("app-2", "<project/>");
+        jenkins.addJob("app-3", "<project/>");
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        jenkins.close();
+    }
+
+    @Test
+    public void shouldReportAllJobsOnFirstRefresh() throws Exception {
+        JobStatusWatcher watcher = client.createJobStatusWatcher();
+        watcher.addListener(listener);
+
+        assertThat(watcher.refresh()).isEqualTo(3);
+
+        assertThat(changes).hasSize(3);
+        assertThat(changes.get(0)[0]).isNull();
+        assertThat(watcher.getSnapshot()).containsOnlyKeys("app-1", "app-2", "app-3");
+        assertThat(watcher.getSnapshot().get("app-1").getLastBuildNumber()).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldReportOnlyChangedJobs() throws Exception {
+        JobStatusWatcher watcher = client.createJobStatusWatcher();
+        watcher.refresh();
+        watcher.addListener(listener);
+
+        int buildNumber = client.build("app-2", 10000).getBuildNumber();
+        client.awaitCompletion("app-2", buildNumber).get(10, TimeUnit.SECONDS);
+        assertThat(watcher.refresh()).isEqualTo(1);
+
+        assertThat(changes).hasSize(1);
+        JobStatus current = changes.get(0)[1];
+        assertThat(current.getJobName()).isEqualTo("app-2");
+        assertThat(current.getLastBuildNumber()).isEqualTo(buildNumber);
+        assertThat(current.getResult()).isEqualTo(BuildResult.SUCCESS);
+
+        assertThat(watcher.refresh()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReportDeletedJobs() throws Exception {
+        JobStatusWatcher watcher = client.createJobStatusWatcher();
+        watcher.refresh();
+        watcher.addListener(listener);
+
+        client.deleteJob("app-3", null);
+        watcher.refresh();
+
+        assertThat(changes).hasSize(1);
+        assertThat(changes.get(0)[0].getJobName()).isEqualTo("app-3");
+        assertThat(changes.get(0)[1]).isNull();
+    }
+
+    @Test
+    public void shouldFetchJobsInPages() throws Exception {
+        JobStatusWatcher watcher = client.createJobStatusWatcher("", 2);
+        long requestsBefore = jenkins.getRequestCount();
+
+        watcher.refresh();
+
+        assertThat(watcher.getSnapshot()).hasSize(3);
+        assertThat(jenkins.getRequestCount() - requestsBefore).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotReportDeletedJobsWhenJobsMovedBetweenPages() throws Exception {
+        final JenkinsHttpClient jenkinsHttpClient = mock(JenkinsHttpClient.class);
+        when(jenkinsHttpClient.get(anyString(), eq(JobStatusWatcher.JobList.class)))
+            .thenReturn(jobs("app-1", "app-2"), jobs("app-2", "app-3"))
+            // app-1 deleted between the pages: the second page starts with app-3
+            .thenReturn(jobs("app-1", "app-2"), jobs("app-3"))
+            .thenReturn(jobs("app-2", "app-3"), jobs("app-3"));
+        JobStatusWatcher watcher = new JobStatusWatcher(jenkinsHttpClient, "", 2);
+        watcher.refresh();
+        watcher.addListener(listener);
+
+        assertThat(watcher.refresh()).isEqualTo(0);
+        assertThat(watcher.getSnapshot()).containsOnlyKeys("app-1", "app-2", "app-3");
+
+        assertThat(watcher.refresh()).isEqualTo(1);
+        assertThat(changes.get(0)[0].getJobName()).isEqualTo("app-1");
+        assertThat(changes.get(0)[1]).isNull();
+        assertThat(watcher.getSnapshot()).containsOnlyKeys("app-2", "app-3");
+    }
+
+    private static JobStatusWatcher.JobList jobs(String... names) {
+        final List<JobStatusWatcher.JobEntry> entries = new ArrayList<JobStatusWatcher.JobEntry>();
+        for (String name : names) {
+            final JobStatusWatcher.JobEntry entry = new JobStatusWatcher.JobEntry();
+            entry.setName(name);
+            entries.add(entry);
+        }
+        final JobStatusWatcher.JobList jobs = new JobStatusWatcher.JobList();
+        jobs.setJobs(entries);
+        return jobs;
+    }
+}